@@ -0,0 +1,42 @@
+package com.metrics.light;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-of-run report generation over collectors holding 1M and 10M recorded samples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class GenerateReportBenchmark {
+    private static final int DURATION_SECONDS = 60;
+    
+    @Param({"1000000", "10000000"})
+    public int samples;
+    
+    private MetricsCollector collector;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        collector = new MetricsCollector(LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS, DURATION_SECONDS);
+        collector.start(0);
+        
+        // Spread the samples evenly over the run so the per-second timeline is populated
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long spacing = TimeUnit.SECONDS.toNanos(DURATION_SECONDS) / samples;
+        for (int i = 0; i < samples; i++) {
+            collector.recordResponseAt(i * spacing, random.nextLong(100_000L, 100_000_000L), random.nextInt(100) != 0);
+        }
+    }
+    
+    @Benchmark
+    public MetricsReport generateReport() {
+        return collector.generateReport(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+    }
+}
@@ -0,0 +1,76 @@
+package com.metrics.light;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of one request through the classic engine (render, send, receive, record)
+ * against an in-process loopback server, so engine changes can be compared on the same
+ * machine without network noise.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+// Without TCP_NODELAY the JDK server's small responses stall on delayed ACKs
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@Threads(8)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+    private static final byte[] RESPONSE = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+    
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private HttpRequestSender sender;
+    private RequestTemplate template;
+    private MetricsCollector collector;
+    
+    @Setup
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            exchange.getResponseBody().write(RESPONSE);
+            exchange.close();
+        });
+        serverThreads = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverThreads);
+        server.start();
+        
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/orders/{uuid}";
+        template = RequestTemplate.compile("curl -X POST " + url
+                + " -H 'Content-Type: application/json' -H 'X-Trace-ID: {uuid}' -d '{\"orderId\":\"{uuid}\"}'");
+        sender = new HttpRequestSender();
+        collector = new MetricsCollector(LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS, 60);
+        collector.start(System.nanoTime());
+    }
+    
+    @TearDown
+    public void tearDown() {
+        sender.close();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+    
+    @Benchmark
+    public HttpResponse sendAndRecord() throws Exception {
+        long start = System.nanoTime();
+        HttpResponse response = sender.sendRequest(template);
+        collector.recordResponse(System.nanoTime() - start, response.isSuccess());
+        return response;
+    }
+}
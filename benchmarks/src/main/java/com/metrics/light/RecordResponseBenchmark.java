@@ -0,0 +1,68 @@
+package com.metrics.light;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one response in {@link MetricsCollector} as the number of recording
+ * threads grows, which shows contention on shared counters and histogram stripes. The
+ * {@code intervals} parameter adds the live interval recording used for interim reports.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordResponseBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class Collector {
+        @Param({"false", "true"})
+        boolean intervals;
+        
+        MetricsCollector collector;
+        
+        @Setup
+        public void setUp() {
+            collector = new MetricsCollector(LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS, 60);
+            if (intervals) {
+                collector.enableIntervalRecording();
+            }
+            collector.start(System.nanoTime());
+        }
+    }
+    
+    /**
+     * Per-thread xorshift source of response times between roughly 0.1 ms and 100 ms.
+     */
+    @State(Scope.Thread)
+    public static class Latencies {
+        private long seed = System.nanoTime() | 1;
+        
+        long next() {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            return 100_000L + (seed >>> 1) % 100_000_000L;
+        }
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public void threads01(Collector state, Latencies latencies) {
+        state.collector.recordResponse(latencies.next(), true);
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public void threads08(Collector state, Latencies latencies) {
+        state.collector.recordResponse(latencies.next(), true);
+    }
+    
+    @Benchmark
+    @Threads(64)
+    public void threads64(Collector state, Latencies latencies) {
+        state.collector.recordResponse(latencies.next(), true);
+    }
+}
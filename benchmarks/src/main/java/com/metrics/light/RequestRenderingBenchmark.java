@@ -0,0 +1,54 @@
+package com.metrics.light;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of turning the configured curl command into a request: the legacy
+ * parse-and-replace path against rendering from the precompiled template.
+ *
+ * Run with {@code -prof gc} to see the allocation rate of each path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestRenderingBenchmark {
+    static final String CURL_COMMAND = "curl -X PUT http://localhost:8080/api/orders/12345 \\\n"
+            + "  -H 'Authorization: Bearer {uuid}' \\\n"
+            + "  -H 'Content-Type: application/json' \\\n"
+            + "  -H 'X-Trace-ID: {uuid}' \\\n"
+            + "  -H 'X-Client-Version: 1.0.0' \\\n"
+            + "  -d '{\"orderId\": \"{uuid}\", \"status\": \"processing\", "
+            + "\"items\": [{\"id\": 1, \"quantity\": 2}, {\"id\": 2, \"quantity\": 1}]}'";
+    
+    private HttpRequestSender sender;
+    private RequestTemplate template;
+    private RequestTemplate.RenderBuffer buffer;
+    
+    @Setup
+    public void setUp() {
+        sender = new HttpRequestSender();
+        template = RequestTemplate.compile(CURL_COMMAND);
+        buffer = new RequestTemplate.RenderBuffer();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        sender.close();
+    }
+    
+    @Benchmark
+    public RequestDetails parseWithUuidReplacement() {
+        return CurlCommandParser.parseWithUuidReplacement(CURL_COMMAND);
+    }
+    
+    @Benchmark
+    public ClassicHttpRequest createHttpRequest() {
+        return sender.createHttpRequest(template, buffer);
+    }
+}
@@ -0,0 +1,324 @@
+package com.metrics.light;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire format between a {@link LoadCoordinator} and its {@link LoadAgent}s.
+ *
+ * Every message is a type byte followed by its payload, written with {@link DataOutput};
+ * messages from an agent carry a length prefix so they can be read whole. The coordinator
+ * opens with {@link #MAGIC}, {@link #VERSION} and the agent's shared token, sends
+ * {@link #CONFIGURE} and, once every agent has answered {@link #READY}, sends {@link #GO}
+ * to all of them at once. Agents then stream {@link #INTERVAL} histograms for live reporting and finish with
+ * a {@link #RESULT} (or {@link #FAILED}).
+ */
+final class AgentProtocol {
+    static final int MAGIC = 0x4D4C4147; // "MLAG"
+    static final int VERSION = 13;
+    static final int DEFAULT_PORT = 7070;
+    // Read by both the agent and the coordinator when no token is given on the command line
+    static final String TOKEN_ENV = "METRICS_LIGHT_AGENT_TOKEN";
+    
+    static final byte CONFIGURE = 1;
+    static final byte READY = 2;
+    static final byte GO = 3;
+    static final byte INTERVAL = 4;
+    static final byte RESULT = 5;
+    static final byte FAILED = 6;
+    
+    // Upper bounds on lengths and counts a peer may announce, so that a corrupt or hostile
+    // message fails with a protocol error instead of exhausting memory
+    static final int MAX_STRING_BYTES = 16 << 20;
+    static final int MAX_PAYLOAD_BYTES = 1 << 30;
+    static final int MAX_COUNT = 65_536;
+    static final int MAX_TOKEN_BYTES = 1024;
+    
+    private AgentProtocol() {
+    }
+    
+    /**
+     * Writes the share of a test that one agent runs. The request set is sent as parsed
+     * request details, so agents need no local curl.txt or scenario file.
+     */
+    static void writeConfiguration(DataOutput out, TestConfiguration config, Scenario scenario) throws IOException {
+        out.writeInt(config.getUsers());
+        out.writeInt(config.getThreads());
+        out.writeInt(config.getDurationSeconds());
+        out.writeInt(config.getDelayMs());
+        writeString(out, config.getThinkTime().getSpec());
+        out.writeInt(config.getHistogramDigits());
+        writeString(out, config.getEngine().name());
+        out.writeBoolean(config.isHttp2());
+        writeString(out, config.getIdPrefix());
+        out.writeInt(config.getBodyPoolSize());
+        
+        ConnectionSettings connections = config.getConnectionSettings();
+        out.writeInt(connections.getMaxConnections());
+        out.writeInt(connections.getMaxConnectionsPerRoute());
+        out.writeInt(connections.getConnectTimeoutMs());
+        out.writeInt(connections.getPoolTimeoutMs());
+        out.writeInt(connections.getResponseTimeoutMs());
+        out.writeInt(connections.getIdleEvictionSeconds());
+        out.writeInt(connections.getConnectionTtlSeconds());
+        out.writeBoolean(connections.isKeepAlive());
+        
+        writeString(out, config.getBodyMode().name());
+        ResponseValidator validator = config.getResponseValidator();
+        writeOptionalString(out, validator.getStatusSpec());
+        writeOptionalString(out, validator.getContains());
+        writeOptionalString(out, validator.getRegex());
+        writeOptionalString(out, validator.getJsonPath());
+        out.writeInt(validator.getPrefixBytes());
+        
+        out.writeInt(config.getWarmupSeconds());
+        out.writeLong(config.getWarmupRequests());
+        out.writeBoolean(config.isShowWarmup());
+        
+        RateSchedule schedule = config.getRateSchedule();
+        out.writeBoolean(schedule != null);
+        if (schedule != null) {
+            out.writeDouble(schedule.getStartRate());
+            out.writeInt(schedule.getStages().size());
+            for (RateSchedule.Stage stage : schedule.getStages()) {
+                out.writeLong(stage.getDurationSeconds());
+                out.writeDouble(stage.getTargetRate());
+            }
+        }
+        
+        LoadProfile profile = config.getLoadProfile();
+        writeOptionalString(out, profile != null ? profile.getSpec() : null);
+        if (profile != null) {
+            out.writeDouble(profile.getStartLevel());
+            out.writeDouble(profile.getScale());
+        }
+        
+        // Agents open the feeder files at the same paths before compiling the requests
+        out.writeInt(config.getFeeders().size());
+        for (String feeder : config.getFeeders()) {
+            writeString(out, feeder);
+        }
+        out.writeInt(config.getFeederPartition());
+        out.writeInt(config.getFeederPartitions());
+        SessionSettings sessions = config.getSessions();
+        out.writeBoolean(sessions != null);
+        if (sessions != null) {
+            out.writeInt(sessions.getExtractorSpecs().size());
+            for (String extractor : sessions.getExtractorSpecs()) {
+                writeString(out, extractor);
+            }
+            writeString(out, sessions.getLoginCurlCommand() != null ? sessions.getLoginCurlCommand() : "");
+            out.writeInt(sessions.getRefreshSeconds());
+        }
+        
+        writeString(out, scenario.getMode().name());
+        out.writeInt(scenario.size());
+        for (Scenario.Step step : scenario.getSteps()) {
+            RequestDetails details = step.getTemplate().getDetails();
+            writeString(out, step.getName());
+            out.writeInt(step.getWeight());
+            writeString(out, details.getUrl());
+            writeString(out, details.getMethod());
+            Map<String, String> headers = details.getHeaders();
+            out.writeInt(headers.size());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                writeString(out, header.getKey());
+                writeString(out, header.getValue());
+            }
+            out.writeBoolean(details.getBody() != null);
+            if (details.getBody() != null) {
+                writeString(out, details.getBody());
+            }
+        }
+    }
+    
+    /**
+     * Reads the configuration written by {@link #writeConfiguration}.
+     *
+     * @param allowLocalFiles whether the configuration may make this process read its own
+     *                        files, through feeders or {@code {file:path}} placeholders
+     */
+    static TestConfiguration readConfiguration(DataInput in, boolean allowLocalFiles) throws IOException {
+        int users = in.readInt();
+        int threads = in.readInt();
+        int duration = in.readInt();
+        int delay = in.readInt();
+        
+        TestConfiguration config = new TestConfiguration(null, users, threads, duration, delay);
+        config.setThinkTime(ThinkTime.parse(readString(in)));
+        config.setHistogramDigits(in.readInt());
+        config.setEngine(TestConfiguration.Engine.valueOf(readString(in)));
+        config.setHttp2(in.readBoolean());
+        config.setIdPrefix(readString(in));
+        config.setBodyPoolSize(in.readInt());
+        
+        ConnectionSettings connections = config.getConnectionSettings();
+        connections.setMaxConnections(in.readInt());
+        connections.setMaxConnectionsPerRoute(in.readInt());
+        connections.setConnectTimeoutMs(in.readInt());
+        connections.setPoolTimeoutMs(in.readInt());
+        connections.setResponseTimeoutMs(in.readInt());
+        connections.setIdleEvictionSeconds(in.readInt());
+        connections.setConnectionTtlSeconds(in.readInt());
+        connections.setKeepAlive(in.readBoolean());
+        
+        config.setBodyMode(TestConfiguration.BodyMode.valueOf(readString(in)));
+        ResponseValidator validator = config.getResponseValidator();
+        String statusSpec = readOptionalString(in);
+        if (statusSpec != null) {
+            validator.setAcceptedStatuses(statusSpec);
+        }
+        String contains = readOptionalString(in);
+        if (contains != null) {
+            validator.setContains(contains);
+        }
+        String regex = readOptionalString(in);
+        if (regex != null) {
+            validator.setRegex(regex);
+        }
+        String jsonPath = readOptionalString(in);
+        if (jsonPath != null) {
+            validator.setJsonPath(jsonPath);
+        }
+        validator.setPrefixBytes(in.readInt());
+        
+        config.setWarmupSeconds(in.readInt());
+        config.setWarmupRequests(in.readLong());
+        config.setShowWarmup(in.readBoolean());
+        
+        if (in.readBoolean()) {
+            double startRate = in.readDouble();
+            int stageCount = readCount(in, "rate stage");
+            List<RateSchedule.Stage> stages = new ArrayList<>(stageCount);
+            for (int i = 0; i < stageCount; i++) {
+                stages.add(new RateSchedule.Stage(in.readLong(), in.readDouble()));
+            }
+            config.setRateSchedule(new RateSchedule(startRate, stages));
+        }
+        
+        String profileSpec = readOptionalString(in);
+        if (profileSpec != null) {
+            double startLevel = in.readDouble();
+            double scale = in.readDouble();
+            config.setLoadProfile(LoadProfile.parse(profileSpec, startLevel).scaled(scale));
+        }
+        
+        int feederCount = readCount(in, "feeder");
+        List<String> feeders = new ArrayList<>(feederCount);
+        for (int i = 0; i < feederCount; i++) {
+            feeders.add(readString(in));
+        }
+        if (!feeders.isEmpty() && !allowLocalFiles) {
+            throw new IllegalArgumentException("Feeders read files on the agent; start the agent with --allow-local-files to accept them");
+        }
+        config.setFeeders(feeders);
+        config.setFeederPartition(in.readInt(), in.readInt());
+        Feeder.clearRegistered();
+        for (String feeder : feeders) {
+            try {
+                Feeder.register(feeder, config.getFeederPartition(), config.getFeederPartitions());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot open feeder " + feeder + ": " + e.getMessage(), e);
+            }
+        }
+        
+        UserSession.clearDeclared();
+        if (in.readBoolean()) {
+            int extractorCount = readCount(in, "extractor");
+            List<String> extractors = new ArrayList<>(extractorCount);
+            for (int i = 0; i < extractorCount; i++) {
+                extractors.add(readString(in));
+            }
+            SessionSettings sessions = new SessionSettings(extractors);
+            String login = checkLocalFiles(readString(in), allowLocalFiles);
+            sessions.setLoginCurlCommand(login.isEmpty() ? null : login);
+            sessions.setRefreshSeconds(in.readInt());
+            config.setSessions(sessions);
+        }
+        
+        Scenario.Mode mode = Scenario.Mode.valueOf(readString(in));
+        int stepCount = readCount(in, "request");
+        List<Scenario.Step> steps = new ArrayList<>(stepCount);
+        for (int i = 0; i < stepCount; i++) {
+            String name = readString(in);
+            int weight = in.readInt();
+            String url = checkLocalFiles(readString(in), allowLocalFiles);
+            String method = readString(in);
+            int headerCount = readCount(in, "header");
+            Map<String, String> headers = new HashMap<>();
+            for (int h = 0; h < headerCount; h++) {
+                headers.put(checkLocalFiles(readString(in), allowLocalFiles), checkLocalFiles(readString(in), allowLocalFiles));
+            }
+            String body = in.readBoolean() ? checkLocalFiles(readString(in), allowLocalFiles) : null;
+            steps.add(new Scenario.Step(name, RequestTemplate.compile(new RequestDetails(url, method, headers, body)), weight));
+        }
+        config.setScenario(new Scenario(steps, mode));
+        return config;
+    }
+    
+    /**
+     * Rejects request text with a {@code {file:path}} placeholder, which would be read from
+     * this process's file system, unless local files are allowed.
+     */
+    private static String checkLocalFiles(String text, boolean allowLocalFiles) {
+        if (!allowLocalFiles && text.contains("{file:")) {
+            throw new IllegalArgumentException("{file:...} placeholders read files on the agent; "
+                    + "start the agent with --allow-local-files to accept them");
+        }
+        return text;
+    }
+    
+    /**
+     * Like {@link DataOutput#writeUTF} but without its 64 KB limit, for request bodies.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readLength(in, MAX_STRING_BYTES, "string")];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads a byte length and checks it against {@code max}.
+     */
+    static int readLength(DataInput in, int max, String what) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > max) {
+            throw new IOException("Protocol error: " + what + " length " + length + " is outside 0-" + max);
+        }
+        return length;
+    }
+    
+    /**
+     * Reads the number of items that follow and checks it against {@link #MAX_COUNT}.
+     */
+    static int readCount(DataInput in, String what) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Protocol error: " + what + " count " + count + " is outside 0-" + MAX_COUNT);
+        }
+        return count;
+    }
+    
+    static void writeOptionalString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+    
+    static String readOptionalString(DataInput in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+}
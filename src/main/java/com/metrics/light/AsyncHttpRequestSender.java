@@ -0,0 +1,210 @@
+package com.metrics.light;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityProducer;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import java.util.Arrays;
+
+/**
+ * Sends HTTP requests on a non-blocking I/O reactor so that concurrency is bounded by
+ * in-flight requests rather than by threads.
+ *
+ * The reactor runs one I/O thread per core. With HTTP/2 enabled, concurrent requests to
+ * the same host are multiplexed as streams over a shared connection. Connection phases are
+ * not timed on this engine, since they run on reactor threads shared by many requests.
+ */
+public class AsyncHttpRequestSender {
+    private final CloseableHttpAsyncClient httpClient;
+    private final ThreadLocal<RequestTemplate.RenderBuffer> renderBuffers =
+            ThreadLocal.withInitial(RequestTemplate.RenderBuffer::new);
+    private TestConfiguration.BodyMode bodyMode = TestConfiguration.BodyMode.DISCARD;
+    private ResponseValidator validator = new ResponseValidator();
+    private SessionSettings sessions;
+
+    /**
+     * @param settings pool, timeout and keep-alive settings
+     * @param maxInFlight maximum number of concurrent requests, used to size the connection pool
+     *                    when the settings do not set it explicitly
+     * @param http2 whether to use HTTP/2 (negotiated over TLS, prior knowledge over plain HTTP)
+     * @param secure whether the target is an https URL
+     */
+    public AsyncHttpRequestSender(ConnectionSettings settings, int maxInFlight, boolean http2, boolean secure) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.getPoolTimeoutMs()))
+                .setResponseTimeout(Timeout.ofMilliseconds(settings.getResponseTimeoutMs()))
+                .build();
+
+        HttpVersionPolicy versionPolicy = !http2 ? HttpVersionPolicy.FORCE_HTTP_1
+                : secure ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_2;
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.resolveMaxConnections(maxInFlight))
+                .setMaxConnPerRoute(settings.resolveMaxConnectionsPerRoute(maxInFlight))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(settings.getConnectTimeoutMs()))
+                        .setTimeToLive(settings.getConnectionTtlSeconds() > 0
+                                ? TimeValue.ofSeconds(settings.getConnectionTtlSeconds()) : TimeValue.NEG_ONE_MILLISECOND)
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(versionPolicy)
+                        .build())
+                .build();
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(Runtime.getRuntime().availableProcessors())
+                .setSoTimeout(Timeout.ofMilliseconds(settings.getResponseTimeoutMs()))
+                .build();
+
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setDefaultRequestConfig(requestConfig)
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(ioReactorConfig)
+                // All users share this client, so cookies are kept per user in their sessions instead
+                .disableCookieManagement();
+        if (settings.getIdleEvictionSeconds() > 0) {
+            builder.evictIdleConnections(TimeValue.ofSeconds(settings.getIdleEvictionSeconds()));
+        }
+        if (!settings.isKeepAlive()) {
+            builder.setConnectionReuseStrategy((request, response, context) -> false);
+        }
+        this.httpClient = builder.build();
+        this.httpClient.start();
+    }
+
+    /**
+     * Sets how response bodies are read and which responses count as successful. Must be
+     * called before the first request.
+     */
+    public void setResponseHandling(TestConfiguration.BodyMode bodyMode, ResponseValidator validator) {
+        this.bodyMode = bodyMode;
+        this.validator = validator;
+    }
+
+    /**
+     * Sets how responses update the sessions passed to {@link #sendRequest(RequestTemplate,
+     * UserSession, FutureCallback)}. Must be called before the first request.
+     */
+    public void setSessions(SessionSettings sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Renders a request from the template and sends it without blocking. The callback is
+     * invoked on an I/O reactor thread once the response has been fully received.
+     */
+    public void sendRequest(RequestTemplate template, FutureCallback<HttpResponse> callback) {
+        sendRequest(template, null, callback);
+    }
+
+    /**
+     * Sends a request on behalf of a user whose session is updated from the response before
+     * the callback runs. A user must not send again until its callback has been invoked.
+     */
+    public void sendRequest(RequestTemplate template, UserSession session, FutureCallback<HttpResponse> callback) {
+        RequestTemplate.RenderBuffer buffer = renderBuffers.get();
+        buffer.begin(session);
+
+        BasicHttpRequest request = new BasicHttpRequest(template.getMethod(), template.renderUri(buffer));
+        template.applyHeaders(request, buffer);
+        if (session != null) {
+            template.applyCookies(request, session);
+        }
+        boolean capture = session != null && sessions != null;
+
+        // The body outlives this call, so unless pooled it is copied out of the reused render buffer
+        AsyncEntityProducer entity = null;
+        if (template.hasBody()) {
+            int length = template.renderBody(buffer);
+            byte[] content = template.isBodyPooled() ? buffer.body() : Arrays.copyOf(buffer.body(), length);
+            entity = new BasicAsyncEntityProducer(content, RequestTemplate.BODY_CONTENT_TYPE);
+        }
+
+        if (bodyMode == TestConfiguration.BodyMode.IGNORE) {
+            // The reactor still has to read the body off the connection, it is just not counted
+            httpClient.execute(
+                    new BasicRequestProducer(request, entity),
+                    new BasicResponseConsumer<>(new DiscardingEntityConsumer<Void>()),
+                    new FutureCallback<Message<org.apache.hc.core5.http.HttpResponse, Void>>() {
+                        @Override
+                        public void completed(Message<org.apache.hc.core5.http.HttpResponse, Void> message) {
+                            int statusCode = message.getHead().getCode();
+                            if (capture) {
+                                sessions.capture(session, message.getHead(), SessionSettings.NO_BODY, 0);
+                            }
+                            callback.completed(new HttpResponse(statusCode, validator.isStatusAccepted(statusCode)));
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            callback.failed(e);
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            callback.cancelled();
+                        }
+                    });
+            return;
+        }
+
+        int prefixLimit = validator.inspectsBody() || (capture && sessions.readsBody()) ? validator.getPrefixBytes() : 0;
+        httpClient.execute(
+                new BasicRequestProducer(request, entity),
+                new BasicResponseConsumer<>(new ResponseBodySink.AsyncConsumer(prefixLimit)),
+                new FutureCallback<Message<org.apache.hc.core5.http.HttpResponse, ResponseBodySink>>() {
+                    @Override
+                    public void completed(Message<org.apache.hc.core5.http.HttpResponse, ResponseBodySink> message) {
+                        int statusCode = message.getHead().getCode();
+                        ResponseBodySink body = message.getBody();
+                        boolean success = validator.isStatusAccepted(statusCode);
+                        String assertionFailure = null;
+                        if (success && validator.inspectsBody()) {
+                            assertionFailure = body != null ? validator.check(body.prefix(), body.prefixLength())
+                                    : validator.check(new byte[0], 0);
+                            success = assertionFailure == null;
+                        }
+                        if (capture) {
+                            if (body != null) {
+                                sessions.capture(session, message.getHead(), body.prefix(), body.prefixLength());
+                            } else {
+                                sessions.capture(session, message.getHead(), SessionSettings.NO_BODY, 0);
+                            }
+                        }
+                        callback.completed(new HttpResponse(statusCode, success, body != null ? body.bytes() : 0,
+                                assertionFailure, null));
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        callback.failed(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        callback.cancelled();
+                    }
+                });
+    }
+
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+}
@@ -0,0 +1,155 @@
+package com.metrics.light;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares a run's response time distribution against a baseline run for regression gating.
+ *
+ * Thresholds are given per metric as {@code p99=+10%}, {@code p99.9=+5ms} or
+ * {@code mean=+20%}; a metric regresses when the current value exceeds the baseline value
+ * by more than its allowance. Both values are computed from the full histograms, so
+ * percentiles are read at the same rank from each distribution.
+ */
+public class BaselineComparison {
+    public static final String DEFAULT_THRESHOLDS = "p99=+10%";
+
+    private final List<Threshold> thresholds;
+    private final List<Result> results = new ArrayList<>();
+
+    private BaselineComparison(List<Threshold> thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Parses a comma-separated list of {@code <metric>=+<N>%} or {@code <metric>=+<N>ms}
+     * thresholds, where the metric is {@code pNN[.N]}, {@code mean} or {@code max}.
+     */
+    public static BaselineComparison parse(String spec) {
+        List<Threshold> thresholds = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String item = entry.trim().toLowerCase(Locale.ROOT);
+            if (item.isEmpty()) {
+                continue;
+            }
+            int equals = item.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Invalid threshold '" + entry.trim() + "', expected e.g. p99=+10%");
+            }
+            String metric = item.substring(0, equals).trim();
+            String allowance = item.substring(equals + 1).trim();
+            double percentile;
+            if (metric.equals("mean")) {
+                percentile = Threshold.MEAN;
+            } else if (metric.equals("max")) {
+                percentile = 100.0;
+            } else if (metric.startsWith("p")) {
+                percentile = parseNumber(entry, metric.substring(1));
+                if (percentile <= 0 || percentile > 100) {
+                    throw new IllegalArgumentException("Invalid threshold '" + entry.trim() + "': percentile must be in (0, 100]");
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid threshold '" + entry.trim() + "': metric must be pNN, mean or max");
+            }
+            boolean relative = allowance.endsWith("%");
+            String amount = allowance.substring(0, allowance.length() - (relative ? 1 : allowance.endsWith("ms") ? 2 : 0));
+            thresholds.add(new Threshold(metric, percentile, parseNumber(entry, amount), relative));
+        }
+        if (thresholds.isEmpty()) {
+            throw new IllegalArgumentException("No thresholds in '" + spec + "'");
+        }
+        return new BaselineComparison(thresholds);
+    }
+
+    private static double parseNumber(String entry, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid threshold '" + entry.trim() + "'");
+        }
+    }
+
+    /**
+     * Evaluates every threshold against the two distributions.
+     *
+     * @return true if no metric regressed
+     */
+    public boolean compare(LatencyHistogram baseline, LatencyHistogram current) {
+        results.clear();
+        boolean passed = true;
+        for (Threshold threshold : thresholds) {
+            double before = threshold.valueOf(baseline);
+            double after = threshold.valueOf(current);
+            double limit = threshold.relative ? before * (1 + threshold.allowance / 100.0) : before + threshold.allowance;
+            boolean regressed = after > limit;
+            results.add(new Result(threshold, before, after, regressed));
+            passed &= !regressed;
+        }
+        return passed;
+    }
+
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    public void print(String baselineName, PrintStream out) {
+        out.println("Baseline Comparison (" + baselineName + "):");
+        out.printf("  %-10s %12s %12s %10s %10s  %s%n", "Metric", "Baseline ms", "Current ms", "Change", "Allowed", "Result");
+        for (Result result : results) {
+            Threshold threshold = result.threshold;
+            double change = result.baselineMs > 0 ? (result.currentMs - result.baselineMs) * 100.0 / result.baselineMs : 0.0;
+            String allowed = String.format(Locale.ROOT, threshold.relative ? "+%.1f%%" : "+%.2fms", threshold.allowance);
+            out.printf(Locale.ROOT, "  %-10s %12.2f %12.2f %+9.1f%% %10s  %s%n", threshold.metric, result.baselineMs,
+                    result.currentMs, change, allowed, result.regressed ? "REGRESSION" : "ok");
+        }
+    }
+
+    private static final class Threshold {
+        static final double MEAN = -1;
+
+        private final String metric;
+        private final double percentile;
+        private final double allowance;
+        private final boolean relative;
+
+        Threshold(String metric, double percentile, double allowance, boolean relative) {
+            this.metric = metric;
+            this.percentile = percentile;
+            this.allowance = allowance;
+            this.relative = relative;
+        }
+
+        double valueOf(LatencyHistogram histogram) {
+            if (percentile == MEAN) {
+                return histogram.getMean() / 1_000_000.0;
+            }
+            return LatencySummary.toMillis(percentile == 100.0 ? histogram.getMaxValue()
+                    : histogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    /**
+     * Outcome of one threshold.
+     */
+    public static class Result {
+        private final Threshold threshold;
+        private final double baselineMs;
+        private final double currentMs;
+        private final boolean regressed;
+
+        Result(Threshold threshold, double baselineMs, double currentMs, boolean regressed) {
+            this.threshold = threshold;
+            this.baselineMs = baselineMs;
+            this.currentMs = currentMs;
+            this.regressed = regressed;
+        }
+
+        public String getMetric() { return threshold.metric; }
+        public double getBaselineMs() { return baselineMs; }
+        public double getCurrentMs() { return currentMs; }
+        public boolean isRegressed() { return regressed; }
+    }
+}
@@ -0,0 +1,108 @@
+package com.metrics.light;
+
+/**
+ * Connection pool, timeout and keep-alive settings shared by the HTTP engines.
+ */
+public class ConnectionSettings {
+    private int maxConnections;
+    private int maxConnectionsPerRoute;
+    private int connectTimeoutMs = 10_000;
+    private int poolTimeoutMs = 10_000;
+    private int responseTimeoutMs = 30_000;
+    private int idleEvictionSeconds;
+    private int connectionTtlSeconds;
+    private boolean keepAlive = true;
+    
+    /**
+     * Returns the pool size, or 0 to derive it from the test's concurrency.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+    
+    /**
+     * Returns the pool size per target host, or 0 for the same as the whole pool.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+    
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+    
+    /**
+     * Returns the pool size to use for a test running up to {@code concurrency} requests at once.
+     */
+    public int resolveMaxConnections(int concurrency) {
+        return maxConnections > 0 ? maxConnections : Math.max(1, concurrency);
+    }
+    
+    public int resolveMaxConnectionsPerRoute(int concurrency) {
+        return maxConnectionsPerRoute > 0 ? maxConnectionsPerRoute : resolveMaxConnections(concurrency);
+    }
+    
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+    
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+    
+    /**
+     * Returns how long a request may wait for a pooled connection.
+     */
+    public int getPoolTimeoutMs() {
+        return poolTimeoutMs;
+    }
+    
+    public void setPoolTimeoutMs(int poolTimeoutMs) {
+        this.poolTimeoutMs = poolTimeoutMs;
+    }
+    
+    public int getResponseTimeoutMs() {
+        return responseTimeoutMs;
+    }
+    
+    public void setResponseTimeoutMs(int responseTimeoutMs) {
+        this.responseTimeoutMs = responseTimeoutMs;
+    }
+    
+    /**
+     * Returns after how many idle seconds pooled connections are closed, or 0 to keep them.
+     */
+    public int getIdleEvictionSeconds() {
+        return idleEvictionSeconds;
+    }
+    
+    public void setIdleEvictionSeconds(int idleEvictionSeconds) {
+        this.idleEvictionSeconds = idleEvictionSeconds;
+    }
+    
+    /**
+     * Returns the maximum lifetime of a connection in seconds, or 0 for no limit.
+     */
+    public int getConnectionTtlSeconds() {
+        return connectionTtlSeconds;
+    }
+    
+    public void setConnectionTtlSeconds(int connectionTtlSeconds) {
+        this.connectionTtlSeconds = connectionTtlSeconds;
+    }
+    
+    /**
+     * Whether connections are reused; when false every request opens a new connection.
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+    
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+}
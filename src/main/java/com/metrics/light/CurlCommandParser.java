@@ -14,6 +14,11 @@ public class CurlCommandParser {
     private static final Pattern METHOD_PATTERN = Pattern.compile("(?:-X|--request)\\s+([A-Z]+)");
     private static final Pattern HEADER_PATTERN = Pattern.compile("(?:-H|--header)\\s+['\"]([^'\"]+)['\"]");
     private static final Pattern DATA_PATTERN = Pattern.compile("(?:-d|--data|--data-raw)\\s+(['\"])([^'\"]*(?:\\\\.[^'\"]*)*?)\\1");
+    // Body patterns for single and double quoted data; DOTALL handles multiline content
+    private static final Pattern[] BODY_PATTERNS = {
+        Pattern.compile("(?:-d|--data|--data-raw)\\s+'([^']*)'", Pattern.DOTALL),
+        Pattern.compile("(?:-d|--data|--data-raw)\\s+\"([^\"]*)\"", Pattern.DOTALL)
+    };
     
     public static RequestDetails parse(String curlCommand) {
         if (curlCommand == null || curlCommand.trim().isEmpty()) {
@@ -30,15 +35,17 @@ public class CurlCommandParser {
     
     /**
      * Creates a RequestDetails with {uuid} tokens replaced with generated correlation IDs.
+     * 
+     * The load test itself compiles the command once into a {@link RequestTemplate}; this
+     * method re-parses the whole command and is meant for one-off requests.
      */
     public static RequestDetails parseWithUuidReplacement(String curlCommand) {
         if (curlCommand == null || curlCommand.trim().isEmpty()) {
             throw new IllegalArgumentException("Curl command cannot be null or empty");
         }
         
-        // Generate unique UUID for this request
-        String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
-        String generatedId = "APPLOADID" + uuid;
+        // Generate a unique correlation ID for this request
+        String generatedId = IdGenerator.newCorrelationId();
         
         // Replace all {uuid} tokens in the curl command
         String processedCommand = curlCommand.replace("{uuid}", generatedId);
@@ -109,14 +116,7 @@ public class CurlCommandParser {
     
     private static String extractBody(String curlCommand) {
         // Try multiple patterns for different curl data flag formats
-        // Use DOTALL flag to handle multiline content
-        String[] patterns = {
-            "(?:-d|--data|--data-raw)\\s+'([^']*)'",      // Single quotes
-            "(?:-d|--data|--data-raw)\\s+\"([^\"]*)\""     // Double quotes
-        };
-        
-        for (String patternStr : patterns) {
-            Pattern pattern = Pattern.compile(patternStr, Pattern.DOTALL);
+        for (Pattern pattern : BODY_PATTERNS) {
             Matcher matcher = pattern.matcher(curlCommand);
             if (matcher.find()) {
                 return matcher.group(1);
@@ -0,0 +1,68 @@
+package com.metrics.light;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * Coarse classification of a request outcome, stable enough to be stored in result logs.
+ */
+public enum ErrorClass {
+    NONE(0),
+    HTTP_STATUS(1),
+    TIMEOUT(2),
+    CONNECT(3),
+    TLS(4),
+    IO(5),
+    OTHER(6),
+    /** The status was accepted but the body failed a {@link ResponseValidator} check. */
+    ASSERTION(7);
+    
+    private static final ErrorClass[] BY_CODE = values();
+    
+    private final int code;
+    
+    ErrorClass(int code) {
+        this.code = code;
+    }
+    
+    public int getCode() {
+        return code;
+    }
+    
+    public static ErrorClass fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : OTHER;
+    }
+    
+    /**
+     * Classifies a response by its status code: anything outside 2xx is an HTTP error.
+     */
+    public static ErrorClass forStatus(int statusCode) {
+        return statusCode >= 200 && statusCode < 300 ? NONE : HTTP_STATUS;
+    }
+    
+    /**
+     * Classifies an exception thrown while sending a request, looking through its causes.
+     */
+    public static ErrorClass forException(Throwable error) {
+        int depth = 0;
+        for (Throwable current = error; current != null && depth < 8; current = current.getCause(), depth++) {
+            if (current instanceof SocketTimeoutException
+                    || current instanceof java.util.concurrent.TimeoutException
+                    || current.getClass().getSimpleName().contains("Timeout")) {
+                return TIMEOUT;
+            }
+            if (current instanceof ConnectException || current instanceof UnknownHostException
+                    || current instanceof NoRouteToHostException) {
+                return CONNECT;
+            }
+            if (current instanceof SSLException) {
+                return TLS;
+            }
+        }
+        return error instanceof IOException ? IO : OTHER;
+    }
+}
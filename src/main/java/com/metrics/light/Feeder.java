@@ -0,0 +1,417 @@
+package com.metrics.light;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A data file whose rows fill the {col:name} placeholders of request templates.
+ *
+ * Files hold one record per line, either CSV with a header row naming the columns or JSON
+ * lines whose first record's fields name them. The file is memory-mapped rather than read
+ * into the heap, and rows are located through a sparse index holding the offset of every
+ * {@link #INDEX_STRIDE}th row, built as far as rows are needed: file order strategies index
+ * as they advance, the others index the whole file on first use. Rows are picked per
+ * request by one of the {@link Strategy strategies}; picking is a lock-free counter
+ * increment or a random draw, and every placeholder of one request sees the same row.
+ *
+ * Feeders are registered process-wide before templates are compiled, as the correlation
+ * ID prefix is.
+ */
+final class Feeder {
+    static final int INDEX_STRIDE = 16;
+    private static final int MAX_REGION_BYTES = Integer.MAX_VALUE - 8;
+    private static final int INDEX_CHUNK_ROWS = 64 * 1024;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final List<Feeder> REGISTERED = new CopyOnWriteArrayList<>();
+
+    /**
+     * How rows are handed out to requests.
+     */
+    enum Strategy {
+        /** File order, every row once; the test stops when the rows run out. */
+        SEQUENTIAL,
+        /** File order, starting over after the last row. */
+        CIRCULAR,
+        /** A random row for every request, with repeats. */
+        RANDOM,
+        /** Every row once in a shuffled order; the test stops when the rows run out. */
+        UNIQUE
+    }
+
+    private final int id;
+    private final Path path;
+    private final Strategy strategy;
+    private final boolean json;
+    private final String[] columns;
+    private final MappedByteBuffer[] regions;
+    private final long size;
+    private final long firstRowOffset;
+    private final AtomicLong next = new AtomicLong();
+    // Agents each take every partitions-th row, so rows stay unique across agents
+    private final int partition;
+    private final int partitions;
+
+    // Offsets of rows 0, INDEX_STRIDE, 2 * INDEX_STRIDE, ...; extended under the lock only
+    private volatile long[] index = new long[1024];
+    private volatile long indexedRows;
+    private volatile boolean fullyIndexed;
+    private long scanOffset;
+    private long uniqueStride;
+
+    private Feeder(int id, Path path, Strategy strategy, int partition, int partitions) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.strategy = strategy;
+        this.partition = partition;
+        this.partitions = partitions;
+        String name = path.getFileName().toString().toLowerCase();
+        this.json = name.endsWith(".jsonl") || name.endsWith(".ndjson");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            int regionCount = (int) Math.max(1, (size + MAX_REGION_BYTES - 1) / MAX_REGION_BYTES);
+            this.regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                long start = (long) i * MAX_REGION_BYTES;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAX_REGION_BYTES, size - start));
+            }
+        }
+
+        long headerEnd = lineEnd(0);
+        String header = new String(read(0, headerEnd), StandardCharsets.UTF_8).trim();
+        if (header.isEmpty()) {
+            throw new IllegalArgumentException("Feeder file " + path + " is empty");
+        }
+        if (json) {
+            JsonNode first = JSON.readTree(header);
+            if (first == null || !first.isObject()) {
+                throw new IllegalArgumentException("Feeder file " + path + " must hold one JSON object per line");
+            }
+            List<String> names = new ArrayList<>();
+            first.fieldNames().forEachRemaining(names::add);
+            this.columns = names.toArray(new String[0]);
+            this.firstRowOffset = 0;
+        } else {
+            this.columns = splitCsv(header).toArray(new String[0]);
+            this.firstRowOffset = Math.min(size, headerEnd + 1);
+        }
+        this.scanOffset = firstRowOffset;
+    }
+
+    /**
+     * Opens a feeder from a {@code <file>[:<strategy>]} spec and registers it for template
+     * compilation.
+     *
+     * @param partition which share of the rows this process uses, out of {@code partitions}
+     */
+    static Feeder register(String spec, int partition, int partitions) throws IOException {
+        String file = spec;
+        Strategy strategy = Strategy.CIRCULAR;
+        int colon = spec.lastIndexOf(':');
+        if (colon > 0) {
+            String suffix = spec.substring(colon + 1).trim().toUpperCase();
+            for (Strategy candidate : Strategy.values()) {
+                if (candidate.name().equals(suffix)) {
+                    strategy = candidate;
+                    file = spec.substring(0, colon);
+                }
+            }
+        }
+        Feeder feeder = new Feeder(REGISTERED.size(), Path.of(file.trim()), strategy, partition, partitions);
+        for (String column : feeder.columns) {
+            if (find(column) != null) {
+                throw new IllegalArgumentException("Feeder column '" + column + "' is defined by more than one feeder");
+            }
+        }
+        REGISTERED.add(feeder);
+        return feeder;
+    }
+
+    static void clearRegistered() {
+        REGISTERED.clear();
+    }
+
+    /**
+     * Returns the feeder defining the column, or null if none does.
+     */
+    static Feeder find(String column) {
+        for (Feeder feeder : REGISTERED) {
+            if (feeder.columnIndex(column) >= 0) {
+                return feeder;
+            }
+        }
+        return null;
+    }
+
+    int columnIndex(String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a column of the row picked for the request being rendered into the buffer.
+     */
+    String value(RequestTemplate.RenderBuffer buffer, int column) {
+        Cursor cursor = buffer.cursor(id, columns.length);
+        if (cursor.row < 0) {
+            cursor.row = nextRow();
+            parseRow(cursor);
+        }
+        String value = cursor.values[column];
+        return value != null ? value : "";
+    }
+
+    private long nextRow() {
+        switch (strategy) {
+            case SEQUENTIAL: {
+                long row = next.getAndIncrement() * partitions + partition;
+                if (!ensureIndexed(row)) {
+                    throw new ExhaustedException(path);
+                }
+                return row;
+            }
+            case CIRCULAR: {
+                long rows = rowCount();
+                long share = Math.max(1, (rows - partition + partitions - 1) / partitions);
+                return Math.min(rows - 1, (next.getAndIncrement() % share) * partitions + partition);
+            }
+            case RANDOM:
+                return ThreadLocalRandom.current().nextLong(rowCount());
+            default: {
+                long rows = rowCount();
+                long n = next.getAndIncrement() * partitions + partition;
+                if (n >= rows) {
+                    throw new ExhaustedException(path);
+                }
+                // A stride coprime to the row count visits every row exactly once
+                return mulMod(n, uniqueStride, rows);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of data rows, indexing the whole file on first use.
+     */
+    long rowCount() {
+        if (!fullyIndexed) {
+            ensureIndexed(Long.MAX_VALUE);
+        }
+        if (indexedRows == 0) {
+            throw new ExhaustedException(path);
+        }
+        return indexedRows;
+    }
+
+    /**
+     * Extends the index until it covers the row; returns false if the file has fewer rows.
+     */
+    private boolean ensureIndexed(long row) {
+        if (row < indexedRows) {
+            return true;
+        }
+        synchronized (this) {
+            long target = row == Long.MAX_VALUE ? Long.MAX_VALUE : row + INDEX_CHUNK_ROWS;
+            long rows = indexedRows;
+            long[] offsets = index;
+            while (rows < target && scanOffset < size) {
+                long end = lineEnd(scanOffset);
+                if (end > scanOffset && !isBlank(scanOffset, end)) {
+                    if (rows % INDEX_STRIDE == 0) {
+                        int slot = (int) (rows / INDEX_STRIDE);
+                        if (slot == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        }
+                        offsets[slot] = scanOffset;
+                    }
+                    rows++;
+                }
+                scanOffset = end + 1;
+            }
+            index = offsets;
+            indexedRows = rows;
+            if (scanOffset >= size && !fullyIndexed) {
+                fullyIndexed = true;
+                uniqueStride = coprimeStride(rows);
+            }
+            return row < rows;
+        }
+    }
+
+    /**
+     * Returns a stride near the golden section of the row count that shares no factor with
+     * it. It depends only on the row count, so every agent walks the same permutation.
+     */
+    private static long coprimeStride(long rows) {
+        if (rows <= 2) {
+            return 1;
+        }
+        long stride = (long) (rows * 0.6180339887);
+        while (gcd(stride, rows) != 1) {
+            stride++;
+        }
+        return stride;
+    }
+
+    /**
+     * Returns a * b mod m for 0 <= a, b < m, falling back to doubling and adding when the
+     * product overflows a long, as it does for files of more than about three billion rows.
+     */
+    static long mulMod(long a, long b, long m) {
+        if (Math.multiplyHigh(a, b) == 0 && a * b >= 0) {
+            return a * b % m;
+        }
+        long result = 0;
+        for (; b > 0; b >>>= 1) {
+            if ((b & 1) != 0) {
+                result = result >= m - a ? result - (m - a) : result + a;
+            }
+            a = a >= m - a ? a - (m - a) : a + a;
+        }
+        return result;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private void parseRow(Cursor cursor) {
+        long[] offsets = index;
+        long offset = offsets[(int) (cursor.row / INDEX_STRIDE)];
+        // Skip forward from the indexed row, over the same lines the index builder counted
+        for (long skip = cursor.row % INDEX_STRIDE; ; ) {
+            long end = lineEnd(offset);
+            if (end > offset && !isBlank(offset, end)) {
+                if (skip == 0) {
+                    fill(cursor, read(offset, end));
+                    break;
+                }
+                skip--;
+            }
+            offset = end + 1;
+        }
+    }
+
+    private void fill(Cursor cursor, byte[] line) {
+        if (json) {
+            try {
+                JsonNode record = JSON.readTree(line);
+                for (int i = 0; i < columns.length; i++) {
+                    JsonNode value = record != null ? record.get(columns[i]) : null;
+                    cursor.values[i] = value == null || value.isNull() ? null
+                            : value.isValueNode() ? value.asText() : value.toString();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Invalid JSON in feeder file " + path + " at row " + cursor.row, e);
+            }
+        } else {
+            List<String> fields = splitCsv(new String(line, StandardCharsets.UTF_8));
+            for (int i = 0; i < columns.length; i++) {
+                cursor.values[i] = i < fields.size() ? fields.get(i) : null;
+            }
+        }
+    }
+
+    /**
+     * Splits a CSV line, honouring double-quoted fields with doubled quotes inside.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private byte get(long offset) {
+        return regions[(int) (offset / MAX_REGION_BYTES)].get((int) (offset % MAX_REGION_BYTES));
+    }
+
+    /** Returns the offset of the newline ending the line that starts at the offset, or the file size. */
+    private long lineEnd(long offset) {
+        long position = offset;
+        while (position < size && get(position) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean isBlank(long start, long end) {
+        for (long position = start; position < end; position++) {
+            byte b = get(position);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] read(long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = get(start + i);
+        }
+        return bytes;
+    }
+
+    Path getPath() { return path; }
+    Strategy getStrategy() { return strategy; }
+
+    /**
+     * A thread's row for the request being rendered, held by its render buffer.
+     */
+    static final class Cursor {
+        long row = -1;
+        final String[] values;
+
+        Cursor(int columns) {
+            this.values = new String[columns];
+        }
+    }
+
+    /**
+     * Thrown when a sequential or unique feeder has handed out all of its rows.
+     */
+    static final class ExhaustedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        ExhaustedException(Path path) {
+            super("Feeder " + path + " has no rows left");
+        }
+    }
+}
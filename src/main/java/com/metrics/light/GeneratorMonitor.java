@@ -0,0 +1,201 @@
+package com.metrics.light;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Watches the health of the load generator itself while a test runs, so that bad results
+ * can be told apart from a generator that could not keep up.
+ *
+ * A daemon thread repeatedly parks for {@link #HICCUP_RESOLUTION_NANOS} and records how
+ * much later than asked it woke up: in the style of jHiccup, any stall of the process,
+ * whether a GC pause, CPU starvation or the OS descheduling it, shows up in that histogram
+ * exactly as it delays the senders. The same thread samples process CPU and heap usage once
+ * a second, and GC pauses are taken from the collectors' notifications.
+ */
+final class GeneratorMonitor implements NotificationListener {
+    static final long HICCUP_RESOLUTION_NANOS = 1_000_000;
+    private static final long SAMPLE_INTERVAL_NANOS = 1_000_000_000;
+
+    // The generator is reported saturated when any of these is exceeded
+    static final double CPU_SATURATION_PERCENT = 90.0;
+    static final double GC_SATURATION_PERCENT = 5.0;
+    static final double HEAP_SATURATION_PERCENT = 90.0;
+    static final double HICCUP_SATURATION_MS = 10.0;
+
+    private final LatencyHistogram hiccups = new LatencyHistogram();
+    private final com.sun.management.OperatingSystemMXBean os;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final Set<String> heapPools = new HashSet<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final AtomicLong gcPauses = new AtomicLong();
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+    private final AtomicLong maxGcPauseMillis = new AtomicLong();
+    private final AtomicLong peakHeapAfterGcBytes = new AtomicLong();
+
+    private volatile boolean stopped;
+    private Thread thread;
+    private long startNanos;
+    private long endNanos;
+    private long startCpuNanos;
+    private long endCpuNanos;
+    // Written by the monitor thread only, read after it has been joined
+    private double peakCpuPercent = -1;
+    private long peakHeapBytes;
+
+    GeneratorMonitor() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        os = bean instanceof com.sun.management.OperatingSystemMXBean ? (com.sun.management.OperatingSystemMXBean) bean : null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+    }
+
+    /**
+     * Starts monitoring; called when the measured part of the run starts.
+     */
+    void start() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        startNanos = System.nanoTime();
+        startCpuNanos = processCpuNanos();
+        thread = new Thread(this::run, "generator-monitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops monitoring and waits for the monitor thread to finish.
+     *
+     * @return false if monitoring never started, as when a test ends during its warm-up
+     */
+    boolean stop() throws InterruptedException {
+        if (thread == null) {
+            return false;
+        }
+        stopped = true;
+        thread.join();
+        endNanos = System.nanoTime();
+        endCpuNanos = processCpuNanos();
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // Already removed
+            }
+        }
+        return true;
+    }
+
+    private void run() {
+        long nextSample = System.nanoTime() + SAMPLE_INTERVAL_NANOS;
+        long lastCpuNanos = processCpuNanos();
+        long lastSampleNanos = System.nanoTime();
+        while (!stopped) {
+            long before = System.nanoTime();
+            LockSupport.parkNanos(HICCUP_RESOLUTION_NANOS);
+            long now = System.nanoTime();
+            hiccups.recordValue(Math.max(0, now - before - HICCUP_RESOLUTION_NANOS));
+
+            if (now - nextSample >= 0) {
+                nextSample += SAMPLE_INTERVAL_NANOS;
+                long cpuNanos = processCpuNanos();
+                if (cpuNanos >= 0 && lastCpuNanos >= 0) {
+                    peakCpuPercent = Math.max(peakCpuPercent, cpuPercent(cpuNanos - lastCpuNanos, now - lastSampleNanos));
+                }
+                lastCpuNanos = cpuNanos;
+                lastSampleNanos = now;
+                peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // Concurrent cycles of ZGC and Shenandoah run alongside the application; only their pauses stop it
+        if (info.getGcAction().contains("cycle")) {
+            return;
+        }
+        long afterGc = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                afterGc += pool.getValue().getUsed();
+            }
+        }
+        peakHeapAfterGcBytes.accumulateAndGet(afterGc, Math::max);
+        long pauseMillis = info.getGcInfo().getDuration();
+        gcPauses.incrementAndGet();
+        gcPauseMillis.addAndGet(pauseMillis);
+        maxGcPauseMillis.accumulateAndGet(pauseMillis, Math::max);
+    }
+
+    /**
+     * Returns what was observed between {@link #start()} and {@link #stop()}.
+     */
+    MetricsReport.GeneratorHealth getHealth() {
+        long wallNanos = Math.max(1, endNanos - startNanos);
+        double meanCpuPercent = startCpuNanos >= 0 && endCpuNanos >= 0 ? cpuPercent(endCpuNanos - startCpuNanos, wallNanos) : -1;
+        double gcPercent = 100.0 * TimeUnit.MILLISECONDS.toNanos(gcPauseMillis.get()) / wallNanos;
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        long peakHeap = Math.max(peakHeapBytes, heap.getUsed());
+        LatencySummary hiccupTimes = LatencySummary.from(hiccups);
+
+        List<String> reasons = new ArrayList<>();
+        if (meanCpuPercent >= CPU_SATURATION_PERCENT) {
+            reasons.add(String.format("process CPU averaged %.1f%% of %d cores (threshold %.0f%%)",
+                    meanCpuPercent, cores, CPU_SATURATION_PERCENT));
+        }
+        if (gcPercent >= GC_SATURATION_PERCENT) {
+            reasons.add(String.format("GC pauses took %.1f%% of the run (threshold %.0f%%)", gcPercent, GC_SATURATION_PERCENT));
+        }
+        long liveHeap = peakHeapAfterGcBytes.get();
+        if (heap.getMax() > 0 && 100.0 * liveHeap / heap.getMax() >= HEAP_SATURATION_PERCENT) {
+            reasons.add(String.format("heap left after GC peaked at %.1f%% of the maximum (threshold %.0f%%)",
+                    100.0 * liveHeap / heap.getMax(), HEAP_SATURATION_PERCENT));
+        }
+        if (hiccupTimes.getP99() >= HICCUP_SATURATION_MS) {
+            reasons.add(String.format("P99 scheduling hiccup was %.2f ms (threshold %.0f ms)", hiccupTimes.getP99(), HICCUP_SATURATION_MS));
+        }
+        return new MetricsReport.GeneratorHealth(cores, meanCpuPercent, peakCpuPercent, gcPauses.get(), gcPauseMillis.get(),
+                maxGcPauseMillis.get(), gcPercent, peakHeap, liveHeap, heap.getMax(), hiccupTimes, reasons);
+    }
+
+    private long processCpuNanos() {
+        return os != null ? os.getProcessCpuTime() : -1;
+    }
+
+    private double cpuPercent(long cpuNanos, long wallNanos) {
+        return 100.0 * cpuNanos / ((double) wallNanos * cores);
+    }
+}
@@ -4,12 +4,21 @@ import org.apache.hc.client5.http.classic.methods.*;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.core5.http.ClassicHttpRequest;
-import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.HttpClientConnection;
+import org.apache.hc.core5.http.io.HttpResponseInformationCallback;
+import org.apache.hc.core5.http.impl.io.HttpRequestExecutor;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.net.ssl.*;
 import java.security.cert.X509Certificate;
 import java.security.NoSuchAlgorithmException;
@@ -17,11 +26,33 @@ import java.security.KeyManagementException;
 
 /**
  * Handles HTTP request sending with connection pooling and timeout configuration.
+ *
+ * Every request also records how long it waited for a pooled connection, how long it spent
+ * connecting and in the TLS handshake when a new connection was opened, and its time to
+ * first byte; see {@link HttpResponse#getPhaseNanos()}. Responses returned for templates
+ * are reused per thread and valid until the thread's next request.
  */
 public class HttpRequestSender {
     private final CloseableHttpClient httpClient;
+    private final ThreadLocal<RequestTemplate.RenderBuffer> renderBuffers =
+            ThreadLocal.withInitial(RequestTemplate.RenderBuffer::new);
+    private final ThreadLocal<ResponseBodySink> bodySinks = ThreadLocal.withInitial(ResponseBodySink::new);
+    // Responses are consumed before the thread sends again, so one holder per thread is reused
+    private final ThreadLocal<HttpResponse> responses = ThreadLocal.withInitial(HttpResponse::new);
+    private TestConfiguration.BodyMode bodyMode = TestConfiguration.BodyMode.DISCARD;
+    private ResponseValidator validator = new ResponseValidator();
+    private SessionSettings sessions;
     
     public HttpRequestSender() {
+        this(new ConnectionSettings(), 200);
+    }
+    
+    /**
+     * @param settings pool, timeout and keep-alive settings
+     * @param concurrency maximum number of concurrent requests, used to size the pool when
+     *                    the settings do not set it explicitly
+     */
+    public HttpRequestSender(ConnectionSettings settings, int concurrency) {
         // Check if SSL bypass flags are set and configure accordingly
         boolean sslBypassRequested = "false".equals(System.getProperty("com.sun.net.ssl.checkRevocation")) || 
                                    "true".equals(System.getProperty("trust_all_cert"));
@@ -32,18 +63,52 @@ public class HttpRequestSender {
         }
         
         RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectionRequestTimeout(Timeout.ofSeconds(10))
-                .setResponseTimeout(Timeout.ofSeconds(30))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.getPoolTimeoutMs()))
+                .setResponseTimeout(Timeout.ofMilliseconds(settings.getResponseTimeoutMs()))
                 .build();
         
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(200);
-        connectionManager.setDefaultMaxPerRoute(50);
+        TimedConnectionManager connectionManager = new TimedConnectionManager(TimeValue.NEG_ONE_MILLISECOND);
+        connectionManager.setMaxTotal(settings.resolveMaxConnections(concurrency));
+        connectionManager.setDefaultMaxPerRoute(settings.resolveMaxConnectionsPerRoute(concurrency));
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(settings.getConnectTimeoutMs()))
+                .setTimeToLive(settings.getConnectionTtlSeconds() > 0
+                        ? TimeValue.ofSeconds(settings.getConnectionTtlSeconds()) : TimeValue.NEG_ONE_MILLISECOND)
+                .build());
         
-        this.httpClient = HttpClientBuilder.create()
+        HttpClientBuilder builder = HttpClientBuilder.create()
                 .setDefaultRequestConfig(requestConfig)
                 .setConnectionManager(connectionManager)
-                .build();
+                .setRequestExecutor(new TimedRequestExecutor())
+                // All users share this client, so cookies are kept per user in their sessions instead
+                .disableCookieManagement();
+        if (settings.getIdleEvictionSeconds() > 0) {
+            builder.evictIdleConnections(TimeValue.ofSeconds(settings.getIdleEvictionSeconds()));
+        }
+        if (!settings.isKeepAlive()) {
+            // Tell the server as well, so it does not hold on to the other end of the connection
+            builder.setConnectionReuseStrategy((request, response, context) -> false)
+                    .addRequestInterceptorFirst((request, entity, context) ->
+                            request.setHeader(HttpHeaders.CONNECTION, "close"));
+        }
+        this.httpClient = builder.build();
+    }
+    
+    /**
+     * Sets how response bodies are read and which responses count as successful. Must be
+     * called before the first request.
+     */
+    public void setResponseHandling(TestConfiguration.BodyMode bodyMode, ResponseValidator validator) {
+        this.bodyMode = bodyMode;
+        this.validator = validator;
+    }
+    
+    /**
+     * Sets how responses update the sessions passed to {@link #sendRequest(RequestTemplate, UserSession)}.
+     * Must be called before the first request.
+     */
+    public void setSessions(SessionSettings sessions) {
+        this.sessions = sessions;
     }
     
     private void initializeSSLBypass() {
@@ -87,13 +152,62 @@ public class HttpRequestSender {
     }
     
     public HttpResponse sendRequest(RequestDetails requestDetails) throws Exception {
-        ClassicHttpRequest request = createHttpRequest(requestDetails);
+        return sendRequest(RequestTemplate.compile(requestDetails));
+    }
+    
+    /**
+     * Renders a request from a precompiled template into the calling thread's buffer and sends it.
+     */
+    public HttpResponse sendRequest(RequestTemplate template) throws Exception {
+        return sendRequest(template, null);
+    }
+    
+    /**
+     * Sends a request on behalf of a user: the session's values and cookies go into the
+     * request, and the response's cookies and extracted values back into the session.
+     */
+    public HttpResponse sendRequest(RequestTemplate template, UserSession session) throws Exception {
+        RequestTemplate.RenderBuffer buffer = renderBuffers.get();
+        RequestTimings timings = RequestTimings.current();
+        timings.reset();
+        long buildStart = System.nanoTime();
+        ClassicHttpRequest request = createHttpRequest(template, buffer, session);
+        timings.set(RequestPhase.BUILD, System.nanoTime() - buildStart);
+        boolean capture = session != null && sessions != null;
         
         try (CloseableHttpResponse response = httpClient.execute(request)) {
             int statusCode = response.getCode();
-            boolean success = statusCode >= 200 && statusCode < 300;
+            boolean success = validator.isStatusAccepted(statusCode);
+            long bytesReceived = -1;
+            String assertionFailure = null;
             
-            return new HttpResponse(statusCode, success);
+            if (bodyMode == TestConfiguration.BodyMode.DISCARD) {
+                // Reading to the end lets the connection go back to the pool instead of being closed
+                long bodyStart = System.nanoTime();
+                ResponseBodySink sink = bodySinks.get();
+                sink.begin((success && validator.inspectsBody()) || (capture && sessions.readsBody())
+                        ? validator.getPrefixBytes() : 0);
+                if (response.getEntity() != null) {
+                    try (InputStream content = response.getEntity().getContent()) {
+                        sink.consume(content);
+                    }
+                }
+                long bodyNanos = System.nanoTime() - bodyStart;
+                timings.set(RequestPhase.BODY, bodyNanos);
+                timings.set(RequestPhase.TTLB, timings.get(RequestPhase.TTFB) + bodyNanos);
+                bytesReceived = sink.bytes();
+                if (success && validator.inspectsBody()) {
+                    assertionFailure = validator.check(sink.prefix(), sink.prefixLength());
+                    success = assertionFailure == null;
+                }
+                if (capture) {
+                    sessions.capture(session, response, sink.prefix(), sink.prefixLength());
+                }
+            } else if (capture) {
+                sessions.capture(session, response, SessionSettings.NO_BODY, 0);
+            }
+            
+            return responses.get().set(statusCode, success, bytesReceived, assertionFailure, timings.nanos());
             
         } catch (Exception e) {
             // Re-throw exception to allow upper layer error handling
@@ -101,50 +215,28 @@ public class HttpRequestSender {
         }
     }
     
-    private ClassicHttpRequest createHttpRequest(RequestDetails requestDetails) throws Exception {
-        String method = requestDetails.getMethod().toUpperCase();
-        String url = requestDetails.getUrl();
-        
-        ClassicHttpRequest request;
-        
-        switch (method) {
-            case "GET":
-                request = new HttpGet(url);
-                break;
-            case "POST":
-                request = new HttpPost(url);
-                break;
-            case "PUT":
-                request = new HttpPut(url);
-                break;
-            case "DELETE":
-                request = new HttpDelete(url);
-                break;
-            case "PATCH":
-                request = new HttpPatch(url);
-                break;
-            case "HEAD":
-                request = new HttpHead(url);
-                break;
-            case "OPTIONS":
-                request = new HttpOptions(url);
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported HTTP method: " + method);
-        }
+    /**
+     * Renders a request without sending it. Package-private so the benchmarks can measure the
+     * per-request rendering cost on its own.
+     */
+    ClassicHttpRequest createHttpRequest(RequestTemplate template, RequestTemplate.RenderBuffer buffer) {
+        return createHttpRequest(template, buffer, null);
+    }
+    
+    private ClassicHttpRequest createHttpRequest(RequestTemplate template, RequestTemplate.RenderBuffer buffer,
+                                                 UserSession session) {
+        buffer.begin(session);
         
-        // Add headers
-        Map<String, String> headers = requestDetails.getHeaders();
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            request.setHeader(entry.getKey(), entry.getValue());
+        HttpUriRequestBase request = new HttpUriRequestBase(template.getMethod().name(), template.renderUri(buffer));
+        template.applyHeaders(request, buffer);
+        if (session != null) {
+            template.applyCookies(request, session);
         }
         
-        // Add body for methods that support it
-        if (requestDetails.getBody() != null && (request instanceof HttpPost || 
-                                               request instanceof HttpPut || 
-                                               request instanceof HttpPatch)) {
-            StringEntity entity = new StringEntity(requestDetails.getBody());
-            ((HttpUriRequestBase) request).setEntity(entity);
+        // The entity wraps the reused buffer directly; it is fully written before execute returns
+        if (template.hasBody()) {
+            int length = template.renderBody(buffer);
+            request.setEntity(new ByteArrayEntity(buffer.body(), 0, length, RequestTemplate.BODY_CONTENT_TYPE));
         }
         
         return request;
@@ -157,4 +249,28 @@ public class HttpRequestSender {
             // Ignore close errors
         }
     }
+    
+    /**
+     * Times writing the request and the wait until the response head has been received.
+     */
+    private static class TimedRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public ClassicHttpResponse execute(ClassicHttpRequest request, HttpClientConnection connection,
+                                           HttpResponseInformationCallback informationCallback,
+                                           HttpContext context) throws IOException, HttpException {
+            TimedClientConnection timed = TimedClientConnection.wrap(connection);
+            long start = System.nanoTime();
+            try {
+                ClassicHttpResponse response = super.execute(request, timed, informationCallback, context);
+                RequestTimings timings = RequestTimings.current();
+                timings.set(RequestPhase.TTFB, System.nanoTime() - start);
+                if (timed.getFlushedNanos() >= 0) {
+                    timings.set(RequestPhase.WRITE, timed.getFlushedNanos() - start);
+                }
+                return response;
+            } finally {
+                timed.release();
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -2,14 +2,48 @@ package com.metrics.light;
 
 /**
  * Represents an HTTP response with status code and success indicator.
+ *
+ * The blocking sender hands out one reused instance per thread, so a response it returns
+ * is only valid until the same thread sends its next request.
  */
 public class HttpResponse {
-    private final int statusCode;
-    private final boolean success;
+    private int statusCode;
+    private boolean success;
+    private long bytesReceived;
+    private String assertionFailure;
+    private long[] phaseNanos;
+    
+    /**
+     * Creates an empty holder to be filled with {@link #set}.
+     */
+    HttpResponse() {
+    }
     
     public HttpResponse(int statusCode, boolean success) {
+        this(statusCode, success, -1, null, null);
+    }
+    
+    /**
+     * @param bytesReceived size of the body read, or -1 if the body was not read
+     * @param assertionFailure description of the failed body check, or null if all passed
+     * @param phaseNanos duration per {@link RequestPhase}, or null if not timed
+     */
+    public HttpResponse(int statusCode, boolean success, long bytesReceived, String assertionFailure,
+                        long[] phaseNanos) {
+        set(statusCode, success, bytesReceived, assertionFailure, phaseNanos);
+    }
+    
+    /**
+     * Refills this response for the next request; see {@link #HttpResponse(int, boolean, long, String, long[])}.
+     */
+    HttpResponse set(int statusCode, boolean success, long bytesReceived, String assertionFailure,
+                     long[] phaseNanos) {
         this.statusCode = statusCode;
         this.success = success;
+        this.bytesReceived = bytesReceived;
+        this.assertionFailure = assertionFailure;
+        this.phaseNanos = phaseNanos;
+        return this;
     }
     
     public int getStatusCode() {
@@ -19,4 +53,24 @@ public class HttpResponse {
     public boolean isSuccess() {
         return success;
     }
-}
\ No newline at end of file
+    
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+    
+    /**
+     * Returns why the body failed a {@link ResponseValidator} check, or null if it passed or
+     * was not checked.
+     */
+    public String getAssertionFailure() {
+        return assertionFailure;
+    }
+    
+    /**
+     * Returns the duration of each {@link RequestPhase}, indexed by ordinal, with -1 for
+     * phases that did not happen; or null if the engine does not time phases.
+     */
+    public long[] getPhaseNanos() {
+        return phaseNanos;
+    }
+}
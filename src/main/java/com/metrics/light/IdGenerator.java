@@ -0,0 +1,91 @@
+package com.metrics.light;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the values of the per-request template tokens.
+ *
+ * Request numbers come from a run-wide sequence that threads reserve in blocks, so drawing
+ * one is a plain increment of a per-thread counter. The {uuid} correlation ID is the
+ * configured prefix followed by the request number passed through a bijective 64-bit mix
+ * and written as 16 hex digits: IDs look random but can never collide within a run. All
+ * values are appended straight into the caller's builder without intermediate strings.
+ */
+final class IdGenerator {
+    static final String DEFAULT_PREFIX = "APPLOADID";
+    static final int BLOCK_SIZE = 1024;
+    static final int DEFAULT_RANDOM_LENGTH = 8;
+    static final int MAX_RANDOM_LENGTH = 64;
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final AtomicLong NEXT_BLOCK = new AtomicLong();
+    private static final AtomicInteger NEXT_WORKER = new AtomicInteger();
+    // Differs per process so that separate runs (or agents) produce different IDs
+    private static final long SALT = ThreadLocalRandom.current().nextLong();
+    private static volatile String prefix = DEFAULT_PREFIX;
+    
+    private IdGenerator() {
+    }
+    
+    static void setPrefix(String newPrefix) {
+        prefix = newPrefix;
+    }
+    
+    static String getPrefix() {
+        return prefix;
+    }
+    
+    /**
+     * Reserves the next block of {@link #BLOCK_SIZE} request numbers and returns its first.
+     */
+    static long reserveBlock() {
+        return NEXT_BLOCK.getAndAdd(BLOCK_SIZE);
+    }
+    
+    static int nextWorkerNumber() {
+        return NEXT_WORKER.getAndIncrement();
+    }
+    
+    static void appendCorrelationId(StringBuilder out, long sequence) {
+        out.append(prefix);
+        appendHex(out, mix(sequence ^ SALT), 16);
+    }
+    
+    /**
+     * Appends {@code length} random hex digits.
+     */
+    static void appendRandom(StringBuilder out, int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (length > 0) {
+            int digits = Math.min(length, 16);
+            appendHex(out, random.nextLong(), digits);
+            length -= digits;
+        }
+    }
+    
+    /**
+     * Returns a correlation ID as a string, for one-off requests outside a render buffer.
+     */
+    static String newCorrelationId() {
+        StringBuilder out = new StringBuilder(prefix.length() + 16);
+        appendCorrelationId(out, NEXT_BLOCK.getAndIncrement());
+        return out.toString();
+    }
+    
+    private static void appendHex(StringBuilder out, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.append(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+    
+    /**
+     * SplitMix64 finalizer; a bijection on 64-bit values, so distinct inputs stay distinct.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,98 @@
+package com.metrics.light;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.PrintStream;
+
+/**
+ * Prints one line of live metrics per reporting interval while a test is running.
+ *
+ * Each line covers only the requests completed since the previous line, taken from the
+ * collector's interval recorder, so percentiles reflect the current state of the target
+ * rather than the run so far. Lines are either human-readable text or JSON objects, one per
+ * line, for dashboards and scripts.
+ */
+public class InterimReporter implements Runnable {
+    /**
+     * Output format of the interim lines.
+     */
+    public enum Format {
+        TEXT,
+        JSON
+    }
+    
+    private final MetricsCollector metricsCollector;
+    private final Format format;
+    private final PrintStream out;
+    private final ObjectMapper json;
+    private long startNanos;
+    private long lastReportNanos;
+    private long totalRequests;
+    
+    public InterimReporter(MetricsCollector metricsCollector, Format format, PrintStream out) {
+        this.metricsCollector = metricsCollector;
+        this.format = format;
+        this.out = out;
+        this.json = format == Format.JSON ? new ObjectMapper() : null;
+        start(System.nanoTime());
+    }
+    
+    /**
+     * Marks the start of the run; the first interval is measured from this instant.
+     */
+    public void start(long startNanos) {
+        this.startNanos = startNanos;
+        this.lastReportNanos = startNanos;
+    }
+    
+    @Override
+    public void run() {
+        IntervalRecorder.Snapshot interval = metricsCollector.getIntervalSnapshot();
+        long now = System.nanoTime();
+        double intervalSeconds = Math.max(1, now - lastReportNanos) / 1_000_000_000.0;
+        double elapsedSeconds = (now - startNanos) / 1_000_000_000.0;
+        lastReportNanos = now;
+        
+        long requests = interval.getRequests();
+        totalRequests += requests;
+        double tps = requests / intervalSeconds;
+        double errorRate = requests > 0 ? interval.getErrors() * 100.0 / requests : 0.0;
+        LatencyHistogram histogram = interval.getHistogram();
+        
+        if (format == Format.JSON) {
+            ObjectNode line = json.createObjectNode();
+            line.put("elapsedSeconds", round(elapsedSeconds));
+            line.put("requests", requests);
+            line.put("totalRequests", totalRequests);
+            line.put("tps", round(tps));
+            line.put("errors", interval.getErrors());
+            line.put("errorRatePercent", round(errorRate));
+            line.put("p50Ms", round(percentileMillis(histogram, 50.0)));
+            line.put("p90Ms", round(percentileMillis(histogram, 90.0)));
+            line.put("p99Ms", round(percentileMillis(histogram, 99.0)));
+            line.put("maxMs", round(requests > 0 ? LatencySummary.toMillis(histogram.getMaxValue()) : 0.0));
+            try {
+                out.println(json.writeValueAsString(line));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize interim metrics", e);
+            }
+        } else {
+            out.printf("[%6.1fs] %8d req (%d total) | %9.1f req/s | errors %6.2f%% | "
+                            + "p50 %8.2f | p90 %8.2f | p99 %8.2f | max %8.2f ms%n",
+                    elapsedSeconds, requests, totalRequests, tps, errorRate,
+                    percentileMillis(histogram, 50.0), percentileMillis(histogram, 90.0),
+                    percentileMillis(histogram, 99.0),
+                    requests > 0 ? LatencySummary.toMillis(histogram.getMaxValue()) : 0.0);
+        }
+    }
+    
+    private static double percentileMillis(LatencyHistogram histogram, double percentile) {
+        return histogram.getTotalCount() > 0 ? LatencySummary.toMillis(histogram.getValueAtPercentile(percentile)) : 0.0;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
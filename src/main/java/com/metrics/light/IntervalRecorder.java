@@ -0,0 +1,129 @@
+package com.metrics.light;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records response times for the current reporting interval and hands out interval
+ * snapshots without blocking writers.
+ *
+ * Each stripe holds two histograms that alternate between being recorded into and being
+ * read, and its own {@link WriterReaderPhaser}: taking a snapshot swaps every stripe's pair
+ * and waits only for that stripe's writers already in flight, so reporting never stops
+ * recording and never copies the full run's data. Stripes are picked per recording thread
+ * like the collector's recorders, so threads rarely touch the same phaser or histogram.
+ */
+public class IntervalRecorder {
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram interval;
+    private long errorsAtLastSnapshot;
+
+    public IntervalRecorder(int significantDigits) {
+        this.stripes = new Stripe[MetricsCollector.stripeCount()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(significantDigits);
+        }
+        this.stripeMask = stripes.length - 1;
+        this.interval = new LatencyHistogram(significantDigits);
+    }
+
+    public void record(long responseTimeNanos, boolean success) {
+        Stripe stripe = stripes[MetricsCollector.stripeForCurrentThread(stripeMask)];
+        long criticalValue = stripe.phaser.writerCriticalSectionEnter();
+        try {
+            stripe.active.recordValue(responseTimeNanos);
+        } finally {
+            stripe.phaser.writerCriticalSectionExit(criticalValue);
+        }
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Adds an interval recorded elsewhere, such as on a remote agent.
+     */
+    public void add(LatencyHistogram histogram, long errorCount) {
+        Stripe stripe = stripes[MetricsCollector.stripeForCurrentThread(stripeMask)];
+        long criticalValue = stripe.phaser.writerCriticalSectionEnter();
+        try {
+            stripe.active.add(histogram);
+        } finally {
+            stripe.phaser.writerCriticalSectionExit(criticalValue);
+        }
+        errors.add(errorCount);
+    }
+
+    /**
+     * Returns everything recorded since the previous call. The returned snapshot stays valid
+     * until the next call, after which it is recycled.
+     */
+    public synchronized Snapshot getIntervalSnapshot() {
+        interval.reset();
+        for (Stripe stripe : stripes) {
+            stripe.drainInto(interval);
+        }
+
+        long errorsNow = errors.sum();
+        long intervalErrors = errorsNow - errorsAtLastSnapshot;
+        errorsAtLastSnapshot = errorsNow;
+        return new Snapshot(interval, intervalErrors);
+    }
+
+    private static final class Stripe {
+        // Allocated ahead of the histograms, so the phasers of neighbouring stripes are
+        // kept apart in memory by their histograms' count arrays
+        private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+        private volatile LatencyHistogram active;
+        private LatencyHistogram inactive;
+
+        Stripe(int significantDigits) {
+            this.active = new LatencyHistogram(significantDigits);
+            this.inactive = new LatencyHistogram(significantDigits);
+        }
+
+        /**
+         * Swaps the histograms and adds everything recorded since the previous swap to the
+         * target, once writers of the old histogram have left it.
+         */
+        void drainInto(LatencyHistogram target) {
+            phaser.readerLock();
+            try {
+                inactive.reset();
+                LatencyHistogram recorded = active;
+                active = inactive;
+                inactive = recorded;
+                phaser.flipPhase();
+                target.add(recorded);
+            } finally {
+                phaser.readerUnlock();
+            }
+        }
+    }
+
+    /**
+     * Response times and error count for one reporting interval.
+     */
+    public static class Snapshot {
+        private final LatencyHistogram histogram;
+        private final long errors;
+
+        Snapshot(LatencyHistogram histogram, long errors) {
+            this.histogram = histogram;
+            this.errors = errors;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getRequests() {
+            return histogram.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.metrics.light;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory log-linear latency histogram in the style of HdrHistogram.
+ *
+ * Values are recorded in nanoseconds. Each power-of-two bucket is split into linear
+ * sub-buckets sized from the configured number of significant decimal digits, so the
+ * relative error of any reported value stays below 10^-digits regardless of magnitude.
+ * Recording is lock-free and allocation-free, and histograms can be merged with {@link #add}.
+ */
+public class LatencyHistogram {
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+    public static final long DEFAULT_HIGHEST_TRACKABLE_NANOS = 3_600_000_000_000L; // 1 hour
+
+    private final int significantDigits;
+    private final long highestTrackableValue;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int subBucketCount;
+    private final int leadingZeroCountBase;
+    private final int bucketCount;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount;
+    private final AtomicLong totalSum;
+    private final AtomicLong minValue;
+    private final AtomicLong maxValue;
+
+    public LatencyHistogram() {
+        this(DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    public LatencyHistogram(int significantDigits) {
+        this(significantDigits, DEFAULT_HIGHEST_TRACKABLE_NANOS);
+    }
+
+    public LatencyHistogram(int significantDigits, long highestTrackableValue) {
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("Significant digits must be between 1 and 5");
+        }
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("Highest trackable value must be at least 2");
+        }
+        this.significantDigits = significantDigits;
+        this.highestTrackableValue = highestTrackableValue;
+
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = (int) Math.ceil(Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        this.subBucketCount = 1 << subBucketCountMagnitude;
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = subBucketCount - 1;
+        this.leadingZeroCountBase = 64 - subBucketCountMagnitude;
+        this.bucketCount = bucketsNeededToCover(highestTrackableValue);
+
+        this.counts = new AtomicLongArray((bucketCount + 1) * subBucketHalfCount);
+        this.totalCount = new AtomicLong(0);
+        this.totalSum = new AtomicLong(0);
+        this.minValue = new AtomicLong(Long.MAX_VALUE);
+        this.maxValue = new AtomicLong(0);
+    }
+
+    private int bucketsNeededToCover(long value) {
+        long smallestUntrackableValue = subBucketCount;
+        int bucketsNeeded = 1;
+        while (smallestUntrackableValue <= value) {
+            if (smallestUntrackableValue > Long.MAX_VALUE / 2) {
+                return bucketsNeeded + 1;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketsNeeded++;
+        }
+        return bucketsNeeded;
+    }
+
+    /**
+     * Records a single value. Values above the highest trackable value are clamped to it.
+     */
+    public void recordValue(long value) {
+        recordValueWithCount(value, 1);
+    }
+
+    public void recordValueWithCount(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        if (value < 0) {
+            value = 0;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+        }
+
+        counts.addAndGet(countsIndexFor(value), count);
+        totalCount.addAndGet(count);
+        totalSum.addAndGet(value * count);
+
+        // Only fall into a CAS loop when the extreme actually moves
+        long currentMin = minValue.get();
+        while (value < currentMin && !minValue.compareAndSet(currentMin, value)) {
+            currentMin = minValue.get();
+        }
+        long currentMax = maxValue.get();
+        while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * Adds all recorded values of another histogram with the same layout into this one.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.significantDigits != significantDigits || other.highestTrackableValue != highestTrackableValue) {
+            throw new IllegalArgumentException("Cannot merge histograms with different layouts");
+        }
+        if (other.getTotalCount() == 0) {
+            return;
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+
+        long otherMin = other.minValue.get();
+        long currentMin = minValue.get();
+        while (otherMin < currentMin && !minValue.compareAndSet(currentMin, otherMin)) {
+            currentMin = minValue.get();
+        }
+        long otherMax = other.maxValue.get();
+        long currentMax = maxValue.get();
+        while (otherMax > currentMax && !maxValue.compareAndSet(currentMax, otherMax)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * Creates an empty histogram with the same layout as this one.
+     */
+    public LatencyHistogram newEmptyCopy() {
+        return new LatencyHistogram(significantDigits, highestTrackableValue);
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = newEmptyCopy();
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        minValue.set(Long.MAX_VALUE);
+        maxValue.set(0);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMinValue() {
+        return totalCount.get() == 0 ? 0 : minValue.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * Returns how many recorded values fall at or below the given value, to the
+     * histogram's precision.
+     */
+    public long getCountAtOrBelow(long value) {
+        if (value < 0) {
+            return 0;
+        }
+        int last = countsIndexFor(Math.min(value, highestTrackableValue));
+        long count = 0;
+        for (int i = 0; i <= last; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0.0 : (double) totalSum.get() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall,
+     * reported as the highest value equivalent to the bucket that holds it.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        double requested = Math.min(Math.max(percentile, 0.0), 100.0);
+        long countAtPercentile = Math.max(1, (long) Math.ceil((requested / 100.0) * count));
+
+        long runningCount = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            runningCount += counts.get(i);
+            if (runningCount >= countAtPercentile) {
+                long value = highestEquivalentValue(valueFromIndex(i));
+                return Math.min(value, getMaxValue());
+            }
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * Writes the layout and the non-empty counts of this histogram, so that it can be rebuilt
+     * in another process with {@link #decode} and merged there.
+     */
+    public void encode(DataOutput out) throws IOException {
+        out.writeInt(significantDigits);
+        out.writeLong(highestTrackableValue);
+        out.writeLong(totalSum.get());
+        out.writeLong(minValue.get());
+        out.writeLong(maxValue.get());
+
+        int nonEmpty = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0) {
+                nonEmpty++;
+            }
+        }
+        out.writeInt(nonEmpty);
+        for (int i = 0; i < counts.length() && nonEmpty > 0; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                out.writeInt(i);
+                out.writeLong(count);
+                nonEmpty--;
+            }
+        }
+    }
+
+    /**
+     * Reads a histogram written by {@link #encode}.
+     */
+    public static LatencyHistogram decode(DataInput in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram(in.readInt(), in.readLong());
+        histogram.totalSum.set(in.readLong());
+        histogram.minValue.set(in.readLong());
+        histogram.maxValue.set(in.readLong());
+
+        int nonEmpty = in.readInt();
+        long total = 0;
+        for (int i = 0; i < nonEmpty; i++) {
+            int index = in.readInt();
+            long count = in.readLong();
+            if (index < 0 || index >= histogram.counts.length()) {
+                throw new IOException("Histogram bucket index out of range: " + index);
+            }
+            histogram.counts.set(index, count);
+            total += count;
+        }
+        histogram.totalCount.set(total);
+        return histogram;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    private int countsIndexFor(long value) {
+        int bucketIndex = bucketIndexFor(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int bucketBaseIndex = (bucketIndex + 1) << subBucketHalfCountMagnitude;
+        return bucketBaseIndex + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private int bucketIndexFor(long value) {
+        return leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private long highestEquivalentValue(long value) {
+        int bucketIndex = bucketIndexFor(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int adjustedBucket = (subBucketIndex >= subBucketCount) ? bucketIndex + 1 : bucketIndex;
+        long lowestEquivalent = (long) subBucketIndex << bucketIndex;
+        return lowestEquivalent + (1L << adjustedBucket) - 1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.metrics.light;
+
+/**
+ * Percentile summary of a latency histogram, with all values in milliseconds.
+ */
+public class LatencySummary {
+    private final long count;
+    private final double p50;
+    private final double p75;
+    private final double p90;
+    private final double p99;
+    private final double p99_9;
+    private final double p99_99;
+    private final double min;
+    private final double max;
+    private final double mean;
+
+    public LatencySummary(long count, double p50, double p75, double p90, double p99, double p99_9, double p99_99,
+                          double min, double max, double mean) {
+        this.count = count;
+        this.p50 = p50;
+        this.p75 = p75;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p99_9 = p99_9;
+        this.p99_99 = p99_99;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+    }
+
+    public static LatencySummary from(LatencyHistogram histogram) {
+        return new LatencySummary(
+                histogram.getTotalCount(),
+                toMillis(histogram.getValueAtPercentile(50.0)),
+                toMillis(histogram.getValueAtPercentile(75.0)),
+                toMillis(histogram.getValueAtPercentile(90.0)),
+                toMillis(histogram.getValueAtPercentile(99.0)),
+                toMillis(histogram.getValueAtPercentile(99.9)),
+                toMillis(histogram.getValueAtPercentile(99.99)),
+                toMillis(histogram.getMinValue()),
+                toMillis(histogram.getMaxValue()),
+                histogram.getMean() / 1_000_000.0);
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // Getters
+    public long getCount() { return count; }
+    public double getP50() { return p50; }
+    public double getP75() { return p75; }
+    public double getP90() { return p90; }
+    public double getP99() { return p99; }
+    public double getP99_9() { return p99_9; }
+    public double getP99_99() { return p99_99; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public double getMean() { return mean; }
+}
@@ -0,0 +1,170 @@
+package com.metrics.light;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Runs its share of a distributed load test on behalf of a {@link LoadCoordinator}.
+ *
+ * The agent listens on a TCP port and serves one coordinator at a time: it receives the
+ * configuration, prepares the executor, starts on the coordinator's signal, ships interval
+ * histograms every second while the test runs and finally its complete metrics snapshot.
+ *
+ * An agent runs whatever test a coordinator sends it, so it only listens on the loopback
+ * interface unless given another bind address, and only accepts coordinators presenting
+ * its shared token. Feeder files and {@code {file:path}} placeholders would make the agent
+ * read its own files on the coordinator's behalf; they are rejected unless the agent was
+ * started with local files allowed.
+ */
+public class LoadAgent {
+    // Time a connecting coordinator has to authenticate and send its configuration
+    private static final int HANDSHAKE_TIMEOUT_MS = 30_000;
+    
+    private final int port;
+    private final byte[] token;
+    private InetAddress bindAddress = InetAddress.getLoopbackAddress();
+    private boolean allowLocalFiles;
+    
+    public LoadAgent(int port, String token) {
+        this.port = port;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Sets the interface to listen on; the loopback interface by default.
+     */
+    public void setBindAddress(InetAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+    
+    /**
+     * Lets coordinators use feeder files and {@code {file:path}} placeholders, which the
+     * agent reads from its own file system.
+     */
+    public void setAllowLocalFiles(boolean allowLocalFiles) {
+        this.allowLocalFiles = allowLocalFiles;
+    }
+    
+    /**
+     * Serves coordinators until the process is stopped.
+     */
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, bindAddress)) {
+            System.out.println("Agent listening on " + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort()
+                    + (allowLocalFiles ? " (local files allowed)" : ""));
+            while (true) {
+                try (Socket socket = server.accept()) {
+                    System.out.println("Coordinator connected from " + socket.getRemoteSocketAddress());
+                    serve(socket);
+                } catch (IOException e) {
+                    System.err.println("Coordinator session failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+        if (in.readInt() != AgentProtocol.MAGIC || in.readInt() != AgentProtocol.VERSION) {
+            throw new IOException("Unsupported coordinator protocol");
+        }
+        byte[] presented = new byte[AgentProtocol.readLength(in, AgentProtocol.MAX_TOKEN_BYTES, "token")];
+        in.readFully(presented);
+        if (!MessageDigest.isEqual(presented, token)) {
+            send(out, AgentProtocol.FAILED, "Authentication failed: wrong agent token".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("Rejected coordinator " + socket.getRemoteSocketAddress() + ": wrong agent token");
+        }
+        if (in.readByte() != AgentProtocol.CONFIGURE) {
+            throw new IOException("Expected configuration from coordinator");
+        }
+        
+        LoadTestExecutor executor;
+        TestConfiguration config;
+        try {
+            config = AgentProtocol.readConfiguration(in, allowLocalFiles);
+            config.setReportIntervalSeconds(1);
+            executor = new LoadTestExecutor(config);
+        } catch (RuntimeException e) {
+            fail(out, e);
+            return;
+        }
+        
+        MetricsCollector collector = executor.getMetricsCollector();
+        executor.setInterimTask(() -> shipInterval(out, collector));
+        send(out, AgentProtocol.READY, null);
+        
+        // The other agents may still be preparing, so wait for the start signal without a timeout
+        socket.setSoTimeout(0);
+        if (in.readByte() != AgentProtocol.GO) {
+            throw new IOException("Expected start signal from coordinator");
+        }
+        System.out.printf("Running %d user(s) on %d thread(s) for %d seconds%n",
+                config.getUsers(), config.getThreads(), config.getDurationSeconds());
+        
+        try {
+            executor.execute();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(out, e);
+            return;
+        } catch (IOException | RuntimeException e) {
+            fail(out, e);
+            return;
+        }
+        
+        // Flush the last partial interval before the final snapshot
+        shipInterval(out, collector);
+        
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        DataOutputStream resultOut = new DataOutputStream(result);
+        resultOut.writeLong(executor.getActualDurationMs());
+        collector.writeSnapshot(resultOut);
+        send(out, AgentProtocol.RESULT, result.toByteArray());
+    }
+    
+    private static void shipInterval(DataOutputStream out, MetricsCollector collector) {
+        IntervalRecorder.Snapshot interval = collector.getIntervalSnapshot();
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream payloadOut = new DataOutputStream(payload);
+            payloadOut.writeLong(interval.getErrors());
+            interval.getHistogram().encode(payloadOut);
+            send(out, AgentProtocol.INTERVAL, payload.toByteArray());
+        } catch (IOException e) {
+            System.err.println("Could not send interval to coordinator: " + e.getMessage());
+        }
+    }
+    
+    private static void fail(DataOutputStream out, Exception e) throws IOException {
+        System.err.println("Agent run failed: " + e.getMessage());
+        send(out, AgentProtocol.FAILED, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Writes one length-prefixed message. Synchronized because interval shipping runs on the
+     * executor's reporting thread.
+     */
+    private static void send(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(payload != null ? payload.length : 0);
+            if (payload != null) {
+                out.write(payload);
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.metrics.light;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a load test across several {@link LoadAgent}s and reports the combined result.
+ *
+ * Users, threads and arrival rate are split evenly across the agents. Every agent is
+ * configured and prepared first, then all are started together. Interval histograms streamed
+ * by the agents feed the live report, and the agents' final snapshots (histograms, counters
+ * and per-second timelines) are merged into one collector for the final report, so
+ * percentiles are exact over all samples rather than averaged.
+ */
+public class LoadCoordinator {
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    
+    private final TestConfiguration config;
+    private final List<InetSocketAddress> agents;
+    private final String token;
+    private MetricsReport report;
+    
+    /**
+     * @param token the shared token the agents were started with
+     */
+    public LoadCoordinator(TestConfiguration config, List<InetSocketAddress> agents, String token) {
+        this.config = config;
+        this.agents = agents;
+        this.token = token;
+    }
+    
+    /**
+     * Parses a comma-separated list of {@code host:port} agent addresses; the port defaults
+     * to {@value AgentProtocol#DEFAULT_PORT}.
+     */
+    public static List<InetSocketAddress> parseAgents(String spec) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String agent : spec.split(",")) {
+            agent = agent.trim();
+            if (agent.isEmpty()) {
+                continue;
+            }
+            int colon = agent.lastIndexOf(':');
+            try {
+                addresses.add(colon < 0
+                        ? InetSocketAddress.createUnresolved(agent, AgentProtocol.DEFAULT_PORT)
+                        : InetSocketAddress.createUnresolved(agent.substring(0, colon),
+                                Integer.parseInt(agent.substring(colon + 1))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid agent address '" + agent + "', expected host:port");
+            }
+        }
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("No agents given");
+        }
+        return addresses;
+    }
+    
+    /**
+     * Returns the merged report of the last {@link #execute()} run.
+     */
+    public MetricsReport getReport() {
+        return report;
+    }
+    
+    public void execute() throws IOException, InterruptedException {
+        Scenario scenario = config.getScenario() != null ? config.getScenario() : Scenario.single(config.getCurlCommand());
+        MetricsCollector collector = new MetricsCollector(config.getHistogramDigits(), config.getDurationSeconds());
+        if (config.getLoadProfile() != null) {
+            collector.setStages(config.getLoadProfile().getStages(config.getDurationSeconds()));
+        }
+        List<AgentConnection> connections = new ArrayList<>();
+        
+        try {
+            for (int i = 0; i < agents.size(); i++) {
+                AgentConnection connection = new AgentConnection(agents.get(i));
+                connections.add(connection);
+                connection.configure(token, shareOf(i), scenario);
+            }
+            for (AgentConnection connection : connections) {
+                connection.awaitReady();
+            }
+            
+            // Start everyone as close together as possible
+            long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            collector.start(startNanos);
+            for (AgentConnection connection : connections) {
+                connection.go();
+            }
+            System.out.println("Started " + connections.size() + " agent(s)");
+            
+            CountDownLatch finished = new CountDownLatch(connections.size());
+            for (AgentConnection connection : connections) {
+                Thread reader = new Thread(() -> {
+                    connection.readUntilResult(collector);
+                    finished.countDown();
+                }, "agent-reader-" + connection.address);
+                reader.setDaemon(true);
+                reader.start();
+            }
+            
+            InterimReporter interimReporter = new InterimReporter(collector, config.getReportFormat(), System.out);
+            interimReporter.start(startNanos);
+            ScheduledExecutorService metricsReporter = Executors.newSingleThreadScheduledExecutor();
+            int interval = config.getReportIntervalSeconds();
+            // Agents only ship intervals once their warm-up is over
+            metricsReporter.scheduleAtFixedRate(interimReporter, config.getWarmupSeconds() + interval, interval, TimeUnit.SECONDS);
+            
+            finished.await();
+            metricsReporter.shutdown();
+            
+            // With a warm-up the wall-clock time overstates the measured run; the agents' own durations are exact
+            boolean warmup = config.getWarmupSeconds() > 0 || config.getWarmupRequests() > 0;
+            long actualDuration = warmup ? 0 : System.currentTimeMillis() - startTime;
+            for (AgentConnection connection : connections) {
+                if (connection.failure != null) {
+                    throw new IOException("Agent " + connection.address + " failed: " + connection.failure);
+                }
+                actualDuration = Math.max(actualDuration, connection.mergeResult(collector));
+            }
+            
+            System.out.println("\n" + "=".repeat(80));
+            System.out.println("LOAD TEST COMPLETED (" + connections.size() + " agents)");
+            System.out.println("=".repeat(80));
+            report = collector.generateReport(actualDuration);
+            ReportPrinter.print(report, System.out);
+        } finally {
+            for (AgentConnection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+    
+    /**
+     * Returns the configuration for the given agent: an even share of users, threads and
+     * arrival rate, with any remainder going to the first agents. Connection settings apply
+     * to each agent's own pool.
+     */
+    private TestConfiguration shareOf(int agent) {
+        int count = agents.size();
+        int users = config.getUsers() / count + (agent < config.getUsers() % count ? 1 : 0);
+        int threads = config.getThreads() / count + (agent < config.getThreads() % count ? 1 : 0);
+        threads = Math.max(1, Math.min(threads, users));
+        
+        TestConfiguration share = new TestConfiguration(config.getCurlCommand(), users, threads,
+                config.getDurationSeconds(), config.getDelayMs());
+        share.setThinkTime(config.getThinkTime());
+        share.setFeeders(config.getFeeders());
+        share.setSessions(config.getSessions());
+        share.setFeederPartition(agent, count);
+        share.setHistogramDigits(config.getHistogramDigits());
+        share.setEngine(config.getEngine());
+        share.setHttp2(config.isHttp2());
+        share.setIdPrefix(config.getIdPrefix());
+        share.setBodyPoolSize(config.getBodyPoolSize());
+        share.setConnectionSettings(config.getConnectionSettings());
+        share.setBodyMode(config.getBodyMode());
+        share.setResponseValidator(config.getResponseValidator());
+        share.setWarmupSeconds(config.getWarmupSeconds());
+        share.setWarmupRequests(config.getWarmupRequests() / count + (agent < config.getWarmupRequests() % count ? 1 : 0));
+        share.setShowWarmup(config.isShowWarmup());
+        if (config.getRateSchedule() != null) {
+            share.setRateSchedule(config.getRateSchedule().scaled(1.0 / count));
+        }
+        if (config.getLoadProfile() != null) {
+            // Active users are split in proportion to each agent's share of the users
+            share.setLoadProfile(config.getLoadProfile().scaled(config.isOpenModel()
+                    ? 1.0 / count : (double) users / config.getUsers()));
+        }
+        return share;
+    }
+    
+    /**
+     * The coordinator's side of the session with one agent.
+     */
+    private static class AgentConnection {
+        private final InetSocketAddress address;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private volatile String failure;
+        private byte[] result;
+        
+        AgentConnection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket();
+            socket.setTcpNoDelay(true);
+            try {
+                socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()), CONNECT_TIMEOUT_MS);
+            } catch (IOException e) {
+                throw new IOException("Could not connect to agent " + address + ": " + e.getMessage(), e);
+            }
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+        
+        void configure(String token, TestConfiguration share, Scenario scenario) throws IOException {
+            out.writeInt(AgentProtocol.MAGIC);
+            out.writeInt(AgentProtocol.VERSION);
+            AgentProtocol.writeString(out, token);
+            out.writeByte(AgentProtocol.CONFIGURE);
+            AgentProtocol.writeConfiguration(out, share, scenario);
+            out.flush();
+        }
+        
+        void awaitReady() throws IOException {
+            byte type = in.readByte();
+            byte[] payload = readPayload();
+            if (type == AgentProtocol.FAILED) {
+                throw new IOException("Agent " + address + " rejected the test: "
+                        + new String(payload, StandardCharsets.UTF_8));
+            }
+            if (type != AgentProtocol.READY) {
+                throw new IOException("Unexpected message " + type + " from agent " + address);
+            }
+        }
+        
+        void go() throws IOException {
+            out.writeByte(AgentProtocol.GO);
+            out.flush();
+        }
+        
+        /**
+         * Feeds interval snapshots into the live metrics until the agent's final result
+         * (or failure) arrives.
+         */
+        void readUntilResult(MetricsCollector collector) {
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    byte[] payload = readPayload();
+                    if (type == AgentProtocol.INTERVAL) {
+                        DataInputStream interval = new DataInputStream(new ByteArrayInputStream(payload));
+                        long errors = interval.readLong();
+                        collector.mergeInterval(LatencyHistogram.decode(interval), errors);
+                    } else if (type == AgentProtocol.RESULT) {
+                        result = payload;
+                        return;
+                    } else if (type == AgentProtocol.FAILED) {
+                        failure = new String(payload, StandardCharsets.UTF_8);
+                        return;
+                    } else {
+                        failure = "unexpected message " + type;
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                failure = e.getMessage();
+            }
+        }
+        
+        /**
+         * Merges the agent's final snapshot and returns the duration it reported.
+         */
+        long mergeResult(MetricsCollector collector) throws IOException {
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(result));
+            long durationMs = data.readLong();
+            collector.mergeSnapshot(data);
+            return durationMs;
+        }
+        
+        private byte[] readPayload() throws IOException {
+            byte[] payload = new byte[AgentProtocol.readLength(in, AgentProtocol.MAX_PAYLOAD_BYTES, "message")];
+            in.readFully(payload);
+            return payload;
+        }
+        
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore close errors
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.metrics.light;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Load level over time, built from ramp, hold, step and spike stages.
+ *
+ * In the closed model the level is the number of active users; in the open model it is
+ * the target arrival rate. The level starts at a base value and each stage moves it:
+ * <ul>
+ *   <li>{@code ramp:30s:100} changes it linearly to 100 over 30 seconds</li>
+ *   <li>{@code hold:1m} keeps it for a minute</li>
+ *   <li>{@code step:4x30s:+25} raises it by 25 four times, holding each level for 30 seconds</li>
+ *   <li>{@code spike:10s:500} jumps to 500 for 10 seconds, then back to the previous level</li>
+ * </ul>
+ * Step and spike targets may be absolute or relative ({@code +N}, {@code -N}). After the
+ * last stage the final level is held until the test ends.
+ */
+public class LoadProfile {
+    private final String spec;
+    private final double startLevel;
+    private final double scale;
+    private final RateSchedule levels;
+    private final List<Stage> stages;
+
+    private LoadProfile(String spec, double startLevel, double scale, RateSchedule levels, List<Stage> stages) {
+        this.spec = spec;
+        this.startLevel = startLevel;
+        this.scale = scale;
+        this.levels = levels;
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Parses a comma-separated stage list, starting from the given level.
+     */
+    public static LoadProfile parse(String spec, double startLevel) {
+        return parse(spec, startLevel, 1.0);
+    }
+
+    private static LoadProfile parse(String spec, double startLevel, double scale) {
+        // Levels are kept as a rate schedule; zero-length ramps are instant jumps
+        List<RateSchedule.Stage> ramps = new ArrayList<>();
+        List<Stage> stages = new ArrayList<>();
+        double level = startLevel;
+        long elapsed = 0;
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String kind = parts[0].trim().toLowerCase();
+            try {
+                switch (kind) {
+                    case "ramp": {
+                        expectParts(entry, parts, 3);
+                        long duration = parseDuration(entry, parts[1]);
+                        double target = parseTarget(entry, parts[2], level);
+                        ramps.add(new RateSchedule.Stage(duration, target));
+                        stages.add(new Stage(String.format("ramp %s->%s", format(level), format(target)), elapsed, duration));
+                        level = target;
+                        elapsed += duration;
+                        break;
+                    }
+                    case "hold": {
+                        expectParts(entry, parts, 2);
+                        long duration = parseDuration(entry, parts[1]);
+                        ramps.add(new RateSchedule.Stage(duration, level));
+                        stages.add(new Stage("hold " + format(level), elapsed, duration));
+                        elapsed += duration;
+                        break;
+                    }
+                    case "step": {
+                        expectParts(entry, parts, 3);
+                        String durationPart = parts[1].trim().toLowerCase();
+                        int count = 1;
+                        int times = durationPart.indexOf('x');
+                        if (times > 0) {
+                            count = Integer.parseInt(durationPart.substring(0, times));
+                            durationPart = durationPart.substring(times + 1);
+                        }
+                        long duration = parseDuration(entry, durationPart);
+                        if (count <= 0) {
+                            throw new IllegalArgumentException("Invalid load profile stage '" + entry.trim() + "'");
+                        }
+                        for (int i = 0; i < count; i++) {
+                            level = parseTarget(entry, parts[2], level);
+                            ramps.add(new RateSchedule.Stage(0, level));
+                            ramps.add(new RateSchedule.Stage(duration, level));
+                            stages.add(new Stage("step " + format(level), elapsed, duration));
+                            elapsed += duration;
+                        }
+                        break;
+                    }
+                    case "spike": {
+                        expectParts(entry, parts, 3);
+                        long duration = parseDuration(entry, parts[1]);
+                        double peak = parseTarget(entry, parts[2], level);
+                        ramps.add(new RateSchedule.Stage(0, peak));
+                        ramps.add(new RateSchedule.Stage(duration, peak));
+                        ramps.add(new RateSchedule.Stage(0, level));
+                        stages.add(new Stage("spike " + format(peak), elapsed, duration));
+                        elapsed += duration;
+                        break;
+                    }
+                    default:
+                        throw new IllegalArgumentException("Unknown load profile stage '" + entry.trim()
+                                + "', expected ramp, hold, step or spike");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid load profile stage '" + entry.trim() + "'");
+            }
+        }
+        return new LoadProfile(spec, startLevel, scale, new RateSchedule(startLevel, ramps), stages);
+    }
+
+    private static void expectParts(String entry, String[] parts, int count) {
+        if (parts.length != count) {
+            throw new IllegalArgumentException("Invalid load profile stage '" + entry.trim() + "'");
+        }
+    }
+
+    private static long parseDuration(String entry, String value) {
+        long seconds = RateSchedule.parseDurationSeconds(value.trim());
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("Invalid load profile stage '" + entry.trim() + "': duration must be positive");
+        }
+        return seconds;
+    }
+
+    private static double parseTarget(String entry, String value, double current) {
+        String target = value.trim();
+        double level = target.startsWith("+") || target.startsWith("-")
+                ? current + Double.parseDouble(target) : Double.parseDouble(target);
+        if (level < 0) {
+            throw new IllegalArgumentException("Invalid load profile stage '" + entry.trim() + "': level must be non-negative");
+        }
+        return level;
+    }
+
+    private static String format(double level) {
+        return level == Math.rint(level) ? String.valueOf((long) level) : String.format("%.1f", level);
+    }
+
+    /**
+     * Returns the load level at the given offset from the test start.
+     */
+    public double levelAt(long elapsedNanos) {
+        return levels.rateAt(elapsedNanos) * scale;
+    }
+
+    /**
+     * Returns the profile as an arrival rate schedule, for the open model.
+     */
+    public RateSchedule toRateSchedule() {
+        return scale == 1.0 ? levels : levels.scaled(scale);
+    }
+
+    /**
+     * Returns this profile with every level multiplied by the given factor, for splitting
+     * the load across several load generators.
+     */
+    public LoadProfile scaled(double factor) {
+        return parse(spec, startLevel, scale * factor);
+    }
+
+    /**
+     * Returns the highest level the profile reaches.
+     */
+    public double getPeakLevel() {
+        return levels.getPeakRate() * scale;
+    }
+
+    public long getDurationSeconds() {
+        long total = 0;
+        for (Stage stage : stages) {
+            total += stage.getDurationSeconds();
+        }
+        return total;
+    }
+
+    public String getSpec() { return spec; }
+    public double getStartLevel() { return startLevel; }
+    public double getScale() { return scale; }
+
+    /**
+     * Returns the stages that fall within a test of the given duration; if the test outlasts
+     * the profile, a final stage covers the rest of the run at the last level.
+     */
+    public List<Stage> getStages(long testDurationSeconds) {
+        List<Stage> result = new ArrayList<>();
+        for (Stage stage : stages) {
+            if (stage.getStartSecond() >= testDurationSeconds) {
+                break;
+            }
+            long duration = Math.min(stage.getDurationSeconds(), testDurationSeconds - stage.getStartSecond());
+            result.add(new Stage(stage.getName(), stage.getStartSecond(), duration));
+        }
+        long profileEnd = getDurationSeconds();
+        if (testDurationSeconds > profileEnd) {
+            double finalLevel = levels.rateAt(Long.MAX_VALUE / 2);
+            result.add(new Stage("hold " + format(finalLevel), profileEnd, testDurationSeconds - profileEnd));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * One stage of the profile, as a time range of the test.
+     */
+    public static class Stage {
+        private final String name;
+        private final long startSecond;
+        private final long durationSeconds;
+
+        public Stage(String name, long startSecond, long durationSeconds) {
+            this.name = name;
+            this.startSecond = startSecond;
+            this.durationSeconds = durationSeconds;
+        }
+
+        public String getName() { return name; }
+        public long getStartSecond() { return startSecond; }
+        public long getDurationSeconds() { return durationSeconds; }
+    }
+}
@@ -8,8 +8,19 @@ import org.apache.commons.cli.*;
  * Usage: java -jar metrics-light.jar -e <endpoint> -u <users> -t <threads> -d <duration>
  */
 public class LoadTestApp {
+    // Distinct from the exit code of configuration and runtime errors, so pipelines can tell them apart
+    static final int REGRESSION_EXIT_CODE = 2;
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("analyze")) {
+            analyze(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("agent")) {
+            agent(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
         Options options = createOptions();
         CommandLineParser parser = new DefaultParser();
         
@@ -33,15 +44,72 @@ public class LoadTestApp {
             validateConfiguration(config);
             
             System.out.println("Starting load test with configuration:");
-            System.out.println("  Curl Command (from curl.txt): " + config.getCurlCommand());
+            if (config.getScenario() != null) {
+                System.out.println("  Scenario: " + config.getScenario().size() + " request(s), "
+                        + config.getScenario().getMode().name().toLowerCase());
+            } else {
+                System.out.println("  Curl Command (from curl.txt): " + config.getCurlCommand());
+            }
             System.out.println("  Users: " + config.getUsers());
             System.out.println("  Threads: " + config.getThreads());
             System.out.println("  Duration: " + config.getDurationSeconds() + " seconds");
-            System.out.println("  Delay: " + config.getDelayMs() + " ms");
+            if (cmd.hasOption("think-time")) {
+                System.out.println("  Think Time: " + config.getThinkTime());
+            } else {
+                System.out.println("  Delay: " + config.getDelayMs() + " ms");
+            }
+            if (config.getLoadProfile() != null) {
+                System.out.println("  Load Profile: " + config.getLoadProfile()
+                        + (config.isOpenModel() ? " (requests/second)" : " (active users)"));
+            } else if (config.isOpenModel()) {
+                System.out.println("  Target Rate: " + config.getRateSchedule());
+            }
+            if (config.getWarmupRequests() > 0) {
+                System.out.println("  Warm-up: " + config.getWarmupRequests() + " requests");
+            } else if (config.getWarmupSeconds() > 0) {
+                System.out.println("  Warm-up: " + config.getWarmupSeconds() + " seconds");
+            }
+            if (config.getSessions() != null) {
+                SessionSettings sessionSettings = config.getSessions();
+                System.out.println("  Sessions: per-user cookies"
+                        + (sessionSettings.getExtractorSpecs().isEmpty() ? "" : ", extract " + String.join(", ", sessionSettings.getExtractorSpecs()))
+                        + (sessionSettings.getLoginCurlCommand() == null ? "" : ", login " + cmd.getOptionValue("login")
+                        + (sessionSettings.getRefreshSeconds() > 0 ? " every " + sessionSettings.getRefreshSeconds() + " s" : "")));
+            }
+            if (!config.getFeeders().isEmpty()) {
+                System.out.println("  Feeders: " + String.join(", ", config.getFeeders()));
+            }
+            System.out.println("  Engine: " + config.getEngine().name().toLowerCase() + (config.isHttp2() ? " (HTTP/2)" : ""));
+            ConnectionSettings connections = config.getConnectionSettings();
+            System.out.println("  Connections: pool " + connections.resolveMaxConnections(config.getUsers())
+                    + " (" + connections.resolveMaxConnectionsPerRoute(config.getUsers()) + " per host)"
+                    + (connections.isKeepAlive() ? "" : ", new connection per request"));
+            if (cmd.hasOption("agents")) {
+                System.out.println("  Agents: " + cmd.getOptionValue("agents"));
+            }
             System.out.println();
             
+            if (cmd.hasOption("agents")) {
+                java.util.List<java.net.InetSocketAddress> agents = LoadCoordinator.parseAgents(cmd.getOptionValue("agents"));
+                if (agents.size() > config.getUsers()) {
+                    throw new IllegalArgumentException("Number of users must be at least the number of agents");
+                }
+                if (config.getResultLogPath() != null) {
+                    throw new IllegalArgumentException("--result-log is not supported with --agents");
+                }
+                LoadCoordinator coordinator = new LoadCoordinator(config, agents, agentToken(cmd.getOptionValue("agent-token")));
+                coordinator.execute();
+                if (!exportReport(cmd, coordinator.getReport())) {
+                    System.exit(REGRESSION_EXIT_CODE);
+                }
+                return;
+            }
+            
             LoadTestExecutor executor = new LoadTestExecutor(config);
             executor.execute();
+            if (!exportReport(cmd, executor.getReport())) {
+                System.exit(REGRESSION_EXIT_CODE);
+            }
             
         } catch (ParseException e) {
             System.err.println("Error parsing command line arguments: " + e.getMessage());
@@ -89,6 +157,245 @@ public class LoadTestApp {
                 .desc("Delay between requests in milliseconds (default: 0)")
                 .build());
                 
+        options.addOption(Option.builder()
+                .longOpt("feeder")
+                .hasArg()
+                .desc("CSV (with a header row) or JSON-lines file whose columns fill {col:name} placeholders, as "
+                        + "<file>[:sequential|circular|random|unique] (default: circular); may be repeated")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("think-time")
+                .hasArg()
+                .desc("Pause each user takes after a response: a fixed duration (250ms), uniform:<min>-<max> "
+                        + "or exponential:<mean> (Poisson arrivals per user); replaces --delay")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("rate")
+                .hasArg()
+                .desc("Open-model mode: send requests at this fixed rate (requests/second) regardless of "
+                        + "response times; users become the maximum number of requests in flight")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("rate-stages")
+                .hasArg()
+                .desc("Open-model ramp stages as <duration>:<rps>,..., e.g. 30s:100,2m:500 "
+                        + "(ramps linearly from --rate, or 0, through each target)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("profile")
+                .hasArg()
+                .desc("Load profile as stages ramp:<duration>:<level>, hold:<duration>, "
+                        + "step:[<count>x]<duration>:<level> and spike:<duration>:<level>, e.g. "
+                        + "ramp:30s:50,step:3x30s:+50,spike:10s:400,hold:1m; levels are active users, "
+                        + "or requests/second starting from --rate in open-model mode")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("warmup")
+                .hasArg()
+                .desc("Run at full load before measuring, for a duration (e.g. 30s, 2m) or a number of "
+                        + "requests (e.g. 5000req); warm-up requests are excluded from the results")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("show-warmup")
+                .desc("Also print the full report for the warm-up requests")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("engine")
+                .hasArg()
+                .desc("HTTP engine: classic (blocking, one thread per in-flight request), async "
+                        + "(non-blocking I/O reactor, one in-flight request per user) or virtual "
+                        + "(one virtual thread per user, Java 21+) (default: classic)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("http2")
+                .desc("Use HTTP/2 with the async engine (ALPN over https, prior knowledge over http)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("result-log")
+                .hasArg()
+                .desc("Write one binary record per request to this file for offline analysis")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("precision")
+                .hasArg()
+                .desc("Significant digits kept by the latency histogram, 1-5 (default: 3)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("scenario")
+                .hasArg()
+                .desc("Run a multi-request scenario instead of curl.txt: a JSON-lines file (one request per "
+                        + "line with curl, curlFile or url, and optional name and weight) or a directory of "
+                        + "*.curl.txt files")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("scenario-mode")
+                .hasArg()
+                .desc("How scenario requests are picked: weighted (random, by weight) or journey "
+                        + "(each user runs them in order) (default: weighted)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("id-prefix")
+                .hasArg()
+                .desc("Prefix of the correlation IDs substituted for {uuid} (default: " + IdGenerator.DEFAULT_PREFIX + ")")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("sessions")
+                .desc("Give every user its own cookie jar, filled from the Set-Cookie headers of its responses")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("extract")
+                .hasArg()
+                .desc("Capture a value from each user's responses for {var:name} placeholders, as "
+                        + "name=$.json.path, name=header:Header-Name or name=regex:pattern; may be repeated "
+                        + "(implies --sessions)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("login")
+                .hasArg()
+                .desc("File with a curl command every user sends before its first request (implies --sessions)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("login-refresh")
+                .hasArg()
+                .desc("Send the --login request again this often, e.g. 5m, to refresh tokens (default: only once)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("body-pool")
+                .hasArg()
+                .desc("Render this many request bodies up front and cycle through them instead of "
+                        + "rendering every body as it is sent (default: 0, off)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("agents")
+                .hasArg()
+                .desc("Distributed mode: split the test across these agents (host:port,...), each started "
+                        + "with 'java -jar metrics-light.jar agent', and merge their results")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("agent-token")
+                .hasArg()
+                .desc("Shared token the agents were started with (default: $" + AgentProtocol.TOKEN_ENV + ")")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("report-interval")
+                .hasArg()
+                .desc("Seconds between live interim metric lines (default: 5)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("report-format")
+                .hasArg()
+                .desc("Format of the interim metric lines: text or json (one JSON object per line) (default: text)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("max-connections")
+                .hasArg()
+                .desc("Size of the connection pool (default: number of users)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("max-connections-per-route")
+                .hasArg()
+                .desc("Maximum pooled connections to a single host (default: same as --max-connections)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("connect-timeout")
+                .hasArg()
+                .desc("TCP connect timeout in milliseconds (default: 10000)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("pool-timeout")
+                .hasArg()
+                .desc("Maximum wait for a pooled connection in milliseconds (default: 10000)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("response-timeout")
+                .hasArg()
+                .desc("Response timeout in milliseconds (default: 30000)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("idle-evict")
+                .hasArg()
+                .desc("Close pooled connections idle for this many seconds (default: never)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("connection-ttl")
+                .hasArg()
+                .desc("Maximum lifetime of a connection in seconds (default: unlimited)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("no-keep-alive")
+                .desc("Open a new connection for every request instead of reusing pooled connections")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("response-body")
+                .hasArg()
+                .desc("Response body handling: discard (read to the end, counting bytes) or ignore "
+                        + "(close without reading) (default: discard)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("expect-status")
+                .hasArg()
+                .desc("Accepted status codes, e.g. 200,201,3xx,400-404 (default: 2xx)")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("expect-contains")
+                .hasArg()
+                .desc("Fail responses whose body does not contain this text")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("expect-regex")
+                .hasArg()
+                .desc("Fail responses whose body has no match for this regular expression")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("expect-json")
+                .hasArg()
+                .desc("Fail responses whose JSON body lacks this path, or with =value, does not hold "
+                        + "that value, e.g. $.status=ok or $.items[0].id")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("expect-prefix-bytes")
+                .hasArg()
+                .desc("Leading body bytes the body checks look at (default: " + ResponseValidator.DEFAULT_PREFIX_BYTES + ")")
+                .build());
+                
+        addExportOptions(options);
+        
         options.addOption(Option.builder("h")
                 .longOpt("help")
                 .desc("Show help")
@@ -97,14 +404,402 @@ public class LoadTestApp {
         return options;
     }
     
+    private static void addExportOptions(Options options) {
+        options.addOption(Option.builder()
+                .longOpt("export-json")
+                .hasArg()
+                .desc("Write the report, including the full response time histogram, as JSON to this file")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("export-csv")
+                .hasArg()
+                .desc("Write percentiles for the run, each endpoint and each stage as CSV to this file")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("export-histogram")
+                .hasArg()
+                .desc("Write the response time percentile distribution (HdrHistogram .hgrm layout) to this file")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("compare")
+                .hasArg()
+                .desc("Compare against a report written with --export-json and exit with code "
+                        + REGRESSION_EXIT_CODE + " if a threshold is exceeded")
+                .build());
+                
+        options.addOption(Option.builder()
+                .longOpt("threshold")
+                .hasArg()
+                .desc("Regression thresholds for --compare as <metric>=+<N>% or +<N>ms, with metric pNN, mean "
+                        + "or max, e.g. p99=+10%,p50=+2ms (default: " + BaselineComparison.DEFAULT_THRESHOLDS + ")")
+                .build());
+    }
+    
+    /**
+     * Checks the export options before the test runs, so a typo fails fast.
+     */
+    private static BaselineComparison parseComparison(CommandLine cmd) {
+        if (cmd.hasOption("threshold") && !cmd.hasOption("compare")) {
+            throw new IllegalArgumentException("--threshold requires --compare");
+        }
+        if (!cmd.hasOption("compare")) {
+            return null;
+        }
+        if (!java.nio.file.Files.isReadable(java.nio.file.Paths.get(cmd.getOptionValue("compare")))) {
+            throw new IllegalArgumentException("Cannot read baseline " + cmd.getOptionValue("compare"));
+        }
+        return BaselineComparison.parse(cmd.getOptionValue("threshold", BaselineComparison.DEFAULT_THRESHOLDS));
+    }
+    
+    /**
+     * Writes the requested exports of a final report and runs the baseline comparison.
+     *
+     * @return false if the report regressed against the baseline
+     */
+    private static boolean exportReport(CommandLine cmd, MetricsReport report) throws java.io.IOException {
+        if (cmd.hasOption("export-json")) {
+            ReportExporter.writeJson(report, java.nio.file.Paths.get(cmd.getOptionValue("export-json")));
+        }
+        if (cmd.hasOption("export-csv")) {
+            ReportExporter.writeCsv(report, java.nio.file.Paths.get(cmd.getOptionValue("export-csv")));
+        }
+        if (cmd.hasOption("export-histogram")) {
+            ReportExporter.writeHistogram(report.getResponseTimeHistogram(),
+                    java.nio.file.Paths.get(cmd.getOptionValue("export-histogram")));
+        }
+        BaselineComparison comparison = parseComparison(cmd);
+        if (comparison == null) {
+            return true;
+        }
+        java.nio.file.Path baseline = java.nio.file.Paths.get(cmd.getOptionValue("compare"));
+        boolean passed = comparison.compare(ReportExporter.readHistogram(baseline), report.getResponseTimeHistogram());
+        System.out.println();
+        comparison.print(baseline.toString(), System.out);
+        System.out.println(passed ? "No regression against the baseline" : "REGRESSION against the baseline");
+        return passed;
+    }
+    
     private static TestConfiguration parseConfiguration(CommandLine cmd) throws Exception {
-        String curlCommand = readCurlCommandFromFile();
+        parseComparison(cmd);
+        // Feeders must be registered before any request template is compiled
+        java.util.List<String> feeders = cmd.hasOption("feeder")
+                ? java.util.Arrays.asList(cmd.getOptionValues("feeder")) : java.util.Collections.emptyList();
+        for (String feeder : feeders) {
+            try {
+                Feeder.register(feeder, 0, 1);
+            } catch (java.io.IOException e) {
+                throw new IllegalArgumentException("Cannot open feeder " + feeder + ": " + e.getMessage());
+            }
+        }
+        // Extractors declare the {var:name} variables, so they too come before any template
+        SessionSettings sessions = null;
+        if (cmd.hasOption("sessions") || cmd.hasOption("extract") || cmd.hasOption("login")) {
+            sessions = new SessionSettings(cmd.hasOption("extract")
+                    ? java.util.Arrays.asList(cmd.getOptionValues("extract")) : java.util.Collections.emptyList());
+            if (cmd.hasOption("login")) {
+                String login = java.nio.file.Files.readString(java.nio.file.Paths.get(cmd.getOptionValue("login"))).trim();
+                RequestTemplate.compile(login);
+                sessions.setLoginCurlCommand(login);
+            }
+        }
+        if (cmd.hasOption("login-refresh")) {
+            if (sessions == null || sessions.getLoginCurlCommand() == null) {
+                throw new IllegalArgumentException("--login-refresh requires --login");
+            }
+            sessions.setRefreshSeconds((int) RateSchedule.parseDurationSeconds(cmd.getOptionValue("login-refresh").trim().toLowerCase()));
+        }
+        Scenario scenario = null;
+        if (cmd.hasOption("scenario")) {
+            Scenario.Mode mode = cmd.hasOption("scenario-mode")
+                    ? parseScenarioMode(cmd.getOptionValue("scenario-mode")) : Scenario.Mode.WEIGHTED;
+            scenario = Scenario.load(java.nio.file.Paths.get(cmd.getOptionValue("scenario")), mode);
+        }
+        String curlCommand = scenario == null ? readCurlCommandFromFile() : null;
         int users = Integer.parseInt(cmd.getOptionValue("u"));
         int threads = Integer.parseInt(cmd.getOptionValue("t"));
         int duration = Integer.parseInt(cmd.getOptionValue("d"));
         int delay = cmd.hasOption("r") ? Integer.parseInt(cmd.getOptionValue("r")) : 0;
         
-        return new TestConfiguration(curlCommand, users, threads, duration, delay);
+        TestConfiguration config = new TestConfiguration(curlCommand, users, threads, duration, delay);
+        config.setScenario(scenario);
+        config.setFeeders(feeders);
+        config.setSessions(sessions);
+        if (cmd.hasOption("think-time")) {
+            if (cmd.hasOption("r")) {
+                throw new IllegalArgumentException("--think-time and --delay cannot be combined");
+            }
+            config.setThinkTime(ThinkTime.parse(cmd.getOptionValue("think-time")));
+        }
+        if (cmd.hasOption("profile") && cmd.hasOption("rate-stages")) {
+            throw new IllegalArgumentException("--profile and --rate-stages cannot be combined");
+        }
+        if (cmd.hasOption("rate") || cmd.hasOption("rate-stages")) {
+            double startRate = cmd.hasOption("rate") ? Double.parseDouble(cmd.getOptionValue("rate")) : 0.0;
+            if (startRate < 0) {
+                throw new IllegalArgumentException("Rate must be non-negative");
+            }
+            if (cmd.hasOption("profile")) {
+                // Profile levels are request rates, starting from --rate
+                LoadProfile profile = LoadProfile.parse(cmd.getOptionValue("profile"), startRate);
+                config.setLoadProfile(profile);
+                config.setRateSchedule(profile.toRateSchedule());
+            } else {
+                config.setRateSchedule(RateSchedule.parse(startRate, cmd.getOptionValue("rate-stages")));
+            }
+        } else if (cmd.hasOption("profile")) {
+            config.setLoadProfile(LoadProfile.parse(cmd.getOptionValue("profile"), 0));
+        }
+        if (cmd.hasOption("warmup")) {
+            String warmup = cmd.getOptionValue("warmup").trim().toLowerCase();
+            if (warmup.endsWith("req")) {
+                config.setWarmupRequests(Long.parseLong(warmup.substring(0, warmup.length() - 3).trim()));
+            } else {
+                config.setWarmupSeconds((int) RateSchedule.parseDurationSeconds(warmup));
+            }
+        }
+        config.setShowWarmup(cmd.hasOption("show-warmup"));
+        if (cmd.hasOption("engine")) {
+            config.setEngine(parseEngine(cmd.getOptionValue("engine")));
+        }
+        config.setHttp2(cmd.hasOption("http2"));
+        if (cmd.hasOption("result-log")) {
+            config.setResultLogPath(java.nio.file.Paths.get(cmd.getOptionValue("result-log")));
+        }
+        if (cmd.hasOption("precision")) {
+            config.setHistogramDigits(Integer.parseInt(cmd.getOptionValue("precision")));
+        }
+        if (cmd.hasOption("id-prefix")) {
+            config.setIdPrefix(cmd.getOptionValue("id-prefix"));
+        }
+        if (cmd.hasOption("body-pool")) {
+            int size = Integer.parseInt(cmd.getOptionValue("body-pool"));
+            if (size < 0) {
+                throw new IllegalArgumentException("--body-pool must not be negative");
+            }
+            config.setBodyPoolSize(size);
+        }
+        if (cmd.hasOption("report-interval")) {
+            config.setReportIntervalSeconds(Integer.parseInt(cmd.getOptionValue("report-interval")));
+        }
+        if (cmd.hasOption("report-format")) {
+            config.setReportFormat(parseReportFormat(cmd.getOptionValue("report-format")));
+        }
+        
+        ConnectionSettings connections = config.getConnectionSettings();
+        if (cmd.hasOption("max-connections")) {
+            connections.setMaxConnections(Integer.parseInt(cmd.getOptionValue("max-connections")));
+        }
+        if (cmd.hasOption("max-connections-per-route")) {
+            connections.setMaxConnectionsPerRoute(Integer.parseInt(cmd.getOptionValue("max-connections-per-route")));
+        }
+        if (cmd.hasOption("connect-timeout")) {
+            connections.setConnectTimeoutMs(Integer.parseInt(cmd.getOptionValue("connect-timeout")));
+        }
+        if (cmd.hasOption("pool-timeout")) {
+            connections.setPoolTimeoutMs(Integer.parseInt(cmd.getOptionValue("pool-timeout")));
+        }
+        if (cmd.hasOption("response-timeout")) {
+            connections.setResponseTimeoutMs(Integer.parseInt(cmd.getOptionValue("response-timeout")));
+        }
+        if (cmd.hasOption("idle-evict")) {
+            connections.setIdleEvictionSeconds(Integer.parseInt(cmd.getOptionValue("idle-evict")));
+        }
+        if (cmd.hasOption("connection-ttl")) {
+            connections.setConnectionTtlSeconds(Integer.parseInt(cmd.getOptionValue("connection-ttl")));
+        }
+        connections.setKeepAlive(!cmd.hasOption("no-keep-alive"));
+        
+        if (cmd.hasOption("response-body")) {
+            config.setBodyMode(parseBodyMode(cmd.getOptionValue("response-body")));
+        }
+        ResponseValidator validator = config.getResponseValidator();
+        if (cmd.hasOption("expect-status")) {
+            validator.setAcceptedStatuses(cmd.getOptionValue("expect-status"));
+        }
+        if (cmd.hasOption("expect-contains")) {
+            validator.setContains(cmd.getOptionValue("expect-contains"));
+        }
+        if (cmd.hasOption("expect-regex")) {
+            validator.setRegex(cmd.getOptionValue("expect-regex"));
+        }
+        if (cmd.hasOption("expect-json")) {
+            validator.setJsonPath(cmd.getOptionValue("expect-json"));
+        }
+        if (cmd.hasOption("expect-prefix-bytes")) {
+            validator.setPrefixBytes(Integer.parseInt(cmd.getOptionValue("expect-prefix-bytes")));
+        }
+        
+        return config;
+    }
+    
+    /**
+     * Handles the {@code analyze} subcommand: regenerates reports from a result log.
+     */
+    private static void analyze(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder()
+                .longOpt("slice")
+                .hasArg()
+                .desc("Also print a report line for every slice of this many seconds")
+                .build());
+        options.addOption(Option.builder()
+                .longOpt("precision")
+                .hasArg()
+                .desc("Significant digits kept by the latency histogram, 1-5 (default: 3)")
+                .build());
+        addExportOptions(options);
+        options.addOption(Option.builder("h")
+                .longOpt("help")
+                .desc("Show help")
+                .build());
+        
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            parseComparison(cmd);
+            if (cmd.hasOption("h") || cmd.getArgList().size() != 1) {
+                new HelpFormatter().printHelp("java -jar metrics-light.jar analyze <result-log>",
+                        "Regenerate the load test report from a file written with --result-log\n\n", options, "");
+                return;
+            }
+            
+            java.nio.file.Path file = java.nio.file.Paths.get(cmd.getArgList().get(0));
+            int precision = cmd.hasOption("precision") ? Integer.parseInt(cmd.getOptionValue("precision"))
+                    : LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS;
+            ResultLogAnalyzer analyzer = new ResultLogAnalyzer(file, precision);
+            
+            MetricsReport report = analyzer.generateReport();
+            ReportPrinter.print(report, System.out);
+            if (cmd.hasOption("slice")) {
+                int sliceSeconds = Integer.parseInt(cmd.getOptionValue("slice"));
+                if (sliceSeconds <= 0) {
+                    throw new IllegalArgumentException("Slice length must be positive");
+                }
+                System.out.println();
+                analyzer.printSlices(sliceSeconds, System.out);
+            }
+            if (!exportReport(cmd, report)) {
+                System.exit(REGRESSION_EXIT_CODE);
+            }
+        } catch (ParseException e) {
+            System.err.println("Error parsing command line arguments: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Configuration error: " + e.getMessage());
+            System.exit(1);
+        } catch (java.io.IOException e) {
+            System.err.println("Error reading result log: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static TestConfiguration.Engine parseEngine(String value) {
+        try {
+            return TestConfiguration.Engine.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown engine '" + value + "', expected classic, async or virtual");
+        }
+    }
+    
+    /**
+     * Handles the {@code agent} subcommand: serves distributed tests for a coordinator.
+     */
+    private static void agent(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder()
+                .longOpt("port")
+                .hasArg()
+                .desc("TCP port to listen on for the coordinator (default: " + AgentProtocol.DEFAULT_PORT + ")")
+                .build());
+        options.addOption(Option.builder()
+                .longOpt("bind")
+                .hasArg()
+                .desc("Address to listen on, e.g. 0.0.0.0 for every interface (default: loopback only)")
+                .build());
+        options.addOption(Option.builder()
+                .longOpt("token")
+                .hasArg()
+                .desc("Shared token coordinators must present (default: $" + AgentProtocol.TOKEN_ENV + ")")
+                .build());
+        options.addOption(Option.builder()
+                .longOpt("allow-local-files")
+                .desc("Accept tests using feeder files or {file:path} placeholders, read from this host")
+                .build());
+        options.addOption(Option.builder("h")
+                .longOpt("help")
+                .desc("Show help")
+                .build());
+        
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            if (cmd.hasOption("h")) {
+                new HelpFormatter().printHelp("java -jar metrics-light.jar agent",
+                        "Run load on behalf of a coordinator started with --agents\n\n", options, "");
+                return;
+            }
+            int port = cmd.hasOption("port") ? Integer.parseInt(cmd.getOptionValue("port")) : AgentProtocol.DEFAULT_PORT;
+            LoadAgent agent = new LoadAgent(port, agentToken(cmd.getOptionValue("token")));
+            if (cmd.hasOption("bind")) {
+                try {
+                    agent.setBindAddress(java.net.InetAddress.getByName(cmd.getOptionValue("bind")));
+                } catch (java.net.UnknownHostException e) {
+                    throw new IllegalArgumentException("Unknown bind address '" + cmd.getOptionValue("bind") + "'");
+                }
+            }
+            agent.setAllowLocalFiles(cmd.hasOption("allow-local-files"));
+            agent.run();
+        } catch (ParseException e) {
+            System.err.println("Error parsing command line arguments: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Configuration error: " + e.getMessage());
+            System.exit(1);
+        } catch (java.io.IOException e) {
+            System.err.println("Agent error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Returns the shared agent token from the command line or, failing that, the environment,
+     * which keeps it out of the process list.
+     */
+    private static String agentToken(String option) {
+        String token = option != null ? option : System.getenv(AgentProtocol.TOKEN_ENV);
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Distributed mode needs a shared agent token: set " + AgentProtocol.TOKEN_ENV
+                    + " or pass --token to the agents and --agent-token to the coordinator");
+        }
+        if (token.getBytes(java.nio.charset.StandardCharsets.UTF_8).length > AgentProtocol.MAX_TOKEN_BYTES) {
+            throw new IllegalArgumentException("Agent token must be at most " + AgentProtocol.MAX_TOKEN_BYTES + " bytes");
+        }
+        return token;
+    }
+    
+    private static Scenario.Mode parseScenarioMode(String value) {
+        try {
+            return Scenario.Mode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown scenario mode '" + value + "', expected weighted or journey");
+        }
+    }
+    
+    private static TestConfiguration.BodyMode parseBodyMode(String value) {
+        try {
+            return TestConfiguration.BodyMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown response body mode '" + value + "', expected discard or ignore");
+        }
+    }
+    
+    private static InterimReporter.Format parseReportFormat(String value) {
+        try {
+            return InterimReporter.Format.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown report format '" + value + "', expected text or json");
+        }
     }
     
     private static String readCurlCommandFromFile() throws Exception {
@@ -138,9 +833,60 @@ public class LoadTestApp {
         if (config.getDelayMs() < 0) {
             throw new IllegalArgumentException("Delay must be non-negative");
         }
+        if (config.getHistogramDigits() < 1 || config.getHistogramDigits() > 5) {
+            throw new IllegalArgumentException("Histogram precision must be between 1 and 5 significant digits");
+        }
+        if (config.getWarmupSeconds() < 0 || config.getWarmupRequests() < 0) {
+            throw new IllegalArgumentException("Warm-up must be non-negative");
+        }
+        if (config.getReportIntervalSeconds() <= 0) {
+            throw new IllegalArgumentException("Report interval must be positive");
+        }
+        if (config.getLoadProfile() != null && !config.isOpenModel()
+                && config.getLoadProfile().getPeakLevel() > config.getUsers()) {
+            throw new IllegalArgumentException("Load profile peaks at " + Math.round(config.getLoadProfile().getPeakLevel())
+                    + " users, more than the " + config.getUsers() + " users given with -u");
+        }
+        if (config.isOpenModel() && config.getScenario() != null
+                && config.getScenario().getMode() == Scenario.Mode.JOURNEY) {
+            throw new IllegalArgumentException("Journey scenarios require the closed model; use weighted mode with --rate");
+        }
+        if (config.isOpenModel() && config.getSessions() != null) {
+            throw new IllegalArgumentException("Sessions, --extract and --login require the closed model, whose users persist");
+        }
+        if (config.getSessions() != null && config.getSessions().readsBody()
+                && config.getBodyMode() == TestConfiguration.BodyMode.IGNORE) {
+            throw new IllegalArgumentException("Extracting from response bodies requires --response-body discard");
+        }
+        if (config.isHttp2() && config.getEngine() != TestConfiguration.Engine.ASYNC) {
+            throw new IllegalArgumentException("HTTP/2 requires the async engine (--engine async)");
+        }
+        if (config.getEngine() == TestConfiguration.Engine.VIRTUAL && !VirtualThreads.isSupported()) {
+            throw new IllegalArgumentException("The virtual engine requires Java 21 or newer");
+        }
         if (config.getThreads() > config.getUsers()) {
             throw new IllegalArgumentException("Number of threads cannot exceed number of users");
         }
+        
+        ConnectionSettings connections = config.getConnectionSettings();
+        if (connections.getMaxConnections() < 0 || connections.getMaxConnectionsPerRoute() < 0) {
+            throw new IllegalArgumentException("Connection pool sizes must be positive");
+        }
+        if (connections.getConnectTimeoutMs() <= 0 || connections.getPoolTimeoutMs() <= 0
+                || connections.getResponseTimeoutMs() <= 0) {
+            throw new IllegalArgumentException("Timeouts must be positive");
+        }
+        if (connections.getIdleEvictionSeconds() < 0 || connections.getConnectionTtlSeconds() < 0) {
+            throw new IllegalArgumentException("Idle eviction and connection TTL must be non-negative");
+        }
+        if (config.getResponseValidator().inspectsBody()) {
+            if (config.getBodyMode() == TestConfiguration.BodyMode.IGNORE) {
+                throw new IllegalArgumentException("Body checks require --response-body discard");
+            }
+            if (config.getResponseValidator().getPrefixBytes() <= 0) {
+                throw new IllegalArgumentException("Body check prefix must be positive");
+            }
+        }
     }
     
     private static void printUsage(Options options) {
@@ -150,6 +896,13 @@ public class LoadTestApp {
                 "The curl command should be placed in a file named 'curl.txt' in the current directory.\n\n", 
                 options, 
                 "\nExample: java -jar metrics-light.jar -u 100 -t 10 -d 60 -r 100\n" +
+                "Open model: java -jar metrics-light.jar -u 200 -t 10 -d 60 --rate 500\n" +
+                "Ramp to find the knee: java -jar metrics-light.jar -u 200 -t 200 -d 300 --profile ramp:60s:50,step:4x60s:+50\n" +
+                "Weighted request mix: java -jar metrics-light.jar -u 50 -t 10 -d 60 --scenario scenario.jsonl\n" +
+                "Distributed: java -jar metrics-light.jar agent --port 7070 --bind 0.0.0.0 --token <secret> (on each node), then\n" +
+                "             java -jar metrics-light.jar -u 400 -t 40 -d 60 --agents node1:7070,node2:7070 --agent-token <secret>\n" +
+                "Connection-level profile: java -jar metrics-light.jar -u 100 -t 100 -d 60 --no-keep-alive\n" +
+                "Analyze a result log: java -jar metrics-light.jar analyze results.bin --slice 10\n" +
                 "Make sure curl.txt contains your curl command, e.g.:\n" +
                 "curl -X POST http://localhost:8080/api/test -H 'Content-Type: application/json' -d '{\"key\":\"value\"}'");
     }
@@ -1,55 +1,297 @@
 package com.metrics.light;
 
+import org.apache.hc.core5.concurrent.FutureCallback;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Executes the load test by managing multiple threads and collecting metrics.
  */
 public class LoadTestExecutor {
+    static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Worker id recorded for open-model requests, which are not owned by a simulated user
+    private static final int SCHEDULED_WORKER_ID = -1;
+    private static final long PROFILE_UPDATE_MILLIS = 100;
+    private static final long IDLE_USER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
     private final TestConfiguration config;
     private final MetricsCollector metricsCollector;
     private final HttpRequestSender httpSender;
+    private final AsyncHttpRequestSender asyncSender;
     private final AtomicBoolean shouldStop;
-    private final AtomicLong requestCounter;
-    private final RequestDetails requestDetails;
+    private final Scenario scenario;
+    private final ThinkTime thinkTime;
+    private final SessionSettings sessions;
+    // Users send this before their first request; recorded as the endpoint after the scenario's
+    private final RequestTemplate login;
+    private final int loginStep;
+    // Scenario request names followed by the login, indexed by step
+    private final List<String> endpoints;
     private final AtomicBoolean firstExceptionShown;
+    private final AtomicBoolean firstAssertionShown;
+    private final MetricsCollector warmupCollector;
+    // Collector requests are recorded into: the warm-up collector until the warm-up ends
+    private volatile MetricsCollector recording;
+    private final AtomicLong warmupRemaining;
+    private volatile ResultLogWriter resultLog;
+    private volatile long runStartNanos;
+    private long measuredStartMillis;
+    private ScheduledExecutorService terminator;
+    private InterimReporter interimReporter;
+    private final GeneratorMonitor monitor = new GeneratorMonitor();
+    private Runnable interimTask;
+    private long actualDurationMs;
+    private MetricsReport report;
+    // Users numbered at or above this are idle; only lowered by a load profile
+    private volatile int activeUsers;
     
     public LoadTestExecutor(TestConfiguration config) {
         this.config = config;
-        this.metricsCollector = new MetricsCollector();
-        this.httpSender = new HttpRequestSender();
+        this.metricsCollector = new MetricsCollector(config.getHistogramDigits(), config.getDurationSeconds());
         this.shouldStop = new AtomicBoolean(false);
-        this.requestCounter = new AtomicLong(0);
+        this.thinkTime = config.getThinkTime();
         this.firstExceptionShown = new AtomicBoolean(false);
+        this.firstAssertionShown = new AtomicBoolean(false);
+        
+        // Parse and compile every request once at startup; {uuid} and other tokens are filled per request
+        IdGenerator.setPrefix(config.getIdPrefix());
+        this.scenario = config.getScenario() != null ? config.getScenario() : Scenario.single(config.getCurlCommand());
+        this.sessions = config.getSessions();
+        this.login = sessions != null && sessions.getLoginCurlCommand() != null
+                ? RequestTemplate.compile(sessions.getLoginCurlCommand()) : null;
+        this.loginStep = scenario.size();
+        this.endpoints = new ArrayList<>(scenario.getNames());
+        if (login != null) {
+            endpoints.add("login");
+        }
+        metricsCollector.setEndpoints(endpoints);
+        if (config.getWarmupSeconds() > 0 || config.getWarmupRequests() > 0) {
+            this.warmupCollector = new MetricsCollector(config.getHistogramDigits(),
+                    Math.max(config.getWarmupSeconds(), config.getDurationSeconds()));
+            warmupCollector.setEndpoints(endpoints);
+            this.recording = warmupCollector;
+        } else {
+            this.warmupCollector = null;
+        }
+        this.warmupRemaining = new AtomicLong(config.getWarmupRequests());
+        if (config.getLoadProfile() != null) {
+            metricsCollector.setStages(config.getLoadProfile().getStages(config.getDurationSeconds()));
+        }
+        this.activeUsers = config.getUsers();
         
-        // Parse curl command once at startup (without UUID replacement for display)
-        this.requestDetails = CurlCommandParser.parse(config.getCurlCommand());
+        if (config.getEngine() == TestConfiguration.Engine.ASYNC) {
+            this.httpSender = null;
+            this.asyncSender = new AsyncHttpRequestSender(config.getConnectionSettings(), config.getUsers(), config.isHttp2(), scenario.isSecure());
+        } else if (config.getEngine() == TestConfiguration.Engine.VIRTUAL) {
+            // Every user can hold a connection, and thread count only sizes the carrier pool
+            VirtualThreads.setCarrierParallelism(config.getThreads());
+            this.httpSender = new HttpRequestSender(config.getConnectionSettings(), config.getUsers());
+            this.asyncSender = null;
+        } else {
+            this.httpSender = new HttpRequestSender(config.getConnectionSettings(), config.getUsers());
+            this.asyncSender = null;
+        }
+        if (httpSender != null) {
+            httpSender.setResponseHandling(config.getBodyMode(), config.getResponseValidator());
+            httpSender.setSessions(sessions);
+        } else {
+            asyncSender.setResponseHandling(config.getBodyMode(), config.getResponseValidator());
+            asyncSender.setSessions(sessions);
+        }
         
-        System.out.println("Parsed request details:");
-        System.out.println("  URL: " + requestDetails.getUrl());
-        System.out.println("  Method: " + requestDetails.getMethod());
-        System.out.println("  Headers: " + requestDetails.getHeaders().size() + " header(s)");
-        System.out.println("  Has Body: " + (requestDetails.getBody() != null));
-        System.out.println();
+        for (Scenario.Step step : scenario.getSteps()) {
+            RequestDetails requestDetails = step.getTemplate().getDetails();
+            System.out.println(scenario.size() > 1
+                    ? "Parsed request details (" + step.getName() + ", weight " + step.getWeight() + "):"
+                    : "Parsed request details:");
+            System.out.println("  URL: " + requestDetails.getUrl());
+            System.out.println("  Method: " + requestDetails.getMethod());
+            System.out.println("  Headers: " + requestDetails.getHeaders().size() + " header(s)");
+            System.out.println("  Has Body: " + (requestDetails.getBody() != null));
+            if (config.getBodyPoolSize() > 0) {
+                long poolBytes = step.getTemplate().prerenderBodies(config.getBodyPoolSize());
+                if (poolBytes >= 0) {
+                    System.out.printf("  Body Pool: %d payloads, %.1f KB%n", config.getBodyPoolSize(), poolBytes / 1024.0);
+                }
+            }
+            System.out.println();
+        }
+        if (login != null) {
+            System.out.println("Parsed login request:");
+            System.out.println("  URL: " + login.getDetails().getUrl());
+            System.out.println("  Method: " + login.getDetails().getMethod());
+            System.out.println();
+        }
     }
     
-    public void execute() throws InterruptedException {
-        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads());
+    public void execute() throws InterruptedException, IOException {
+        interimReporter = new InterimReporter(metricsCollector, config.getReportFormat(), System.out);
+        Runnable interim = interimTask != null ? interimTask : interimReporter;
+        // Either one reads intervals of the measured run only, never of the warm-up
+        metricsCollector.enableIntervalRecording();
+        terminator = Executors.newSingleThreadScheduledExecutor();
+        
+        long warmupStartNanos = System.nanoTime();
+        if (warmupCollector != null) {
+            warmupCollector.start(warmupStartNanos);
+            if (config.getWarmupRequests() > 0) {
+                System.out.println("Warming up for " + config.getWarmupRequests() + " requests...");
+            } else {
+                System.out.println("Warming up for " + config.getWarmupSeconds() + " seconds...");
+                terminator.schedule(this::startMeasurement, config.getWarmupSeconds(), TimeUnit.SECONDS);
+            }
+        } else {
+            startMeasurement();
+        }
         
-        // Start metrics reporting thread
+        // Start live metrics reporting; each line covers only the last interval
         ScheduledExecutorService metricsReporter = Executors.newSingleThreadScheduledExecutor();
-        metricsReporter.scheduleAtFixedRate(this::reportInterimMetrics, 5, 5, TimeUnit.SECONDS);
+        int interval = config.getReportIntervalSeconds();
+        metricsReporter.scheduleAtFixedRate(() -> {
+            if (!shouldStop.get() && recording == metricsCollector) {
+                interim.run();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        
+        if (config.isOpenModel()) {
+            runOpenModel();
+        } else if (asyncSender != null) {
+            runClosedModelAsync();
+        } else if (config.getEngine() == TestConfiguration.Engine.VIRTUAL) {
+            runClosedModelVirtual();
+        } else {
+            runClosedModel();
+        }
+        
+        metricsReporter.shutdown();
+        terminator.shutdown();
+        if (resultLog != null) {
+            resultLog.close();
+        }
+        
+        long endTime = System.currentTimeMillis();
+        long actualDuration = endTime - measuredStartMillis;
+        actualDurationMs = actualDuration;
+        
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("LOAD TEST COMPLETED");
+        System.out.println("=".repeat(80));
+        
+        report = metricsCollector.generateReport(actualDuration);
+        if (monitor.stop()) {
+            report.setGeneratorHealth(monitor.getHealth());
+        }
+        ReportPrinter.print(report, System.out);
         
-        // Schedule test termination
-        ScheduledExecutorService terminator = Executors.newSingleThreadScheduledExecutor();
-        terminator.schedule(() -> {
-            shouldStop.set(true);
-            System.out.println("\nTest duration reached. Stopping...");
-        }, config.getDurationSeconds(), TimeUnit.SECONDS);
+        if (warmupCollector != null) {
+            long warmupMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(runStartNanos - warmupStartNanos));
+            MetricsReport warmup = warmupCollector.generateReport(warmupMs);
+            System.out.println();
+            System.out.printf("Warm-up excluded from the results above: %d requests over %.1f s%n",
+                    warmup.getTotalRequests(), warmupMs / 1000.0);
+            if (config.isShowWarmup()) {
+                System.out.println("\n" + "-".repeat(80));
+                System.out.println("WARM-UP");
+                System.out.println("-".repeat(80));
+                ReportPrinter.print(warmup, System.out);
+            }
+        }
         
-        long startTime = System.currentTimeMillis();
+        if (httpSender != null) {
+            httpSender.close();
+        } else {
+            asyncSender.close();
+        }
+    }
+    
+    /**
+     * Ends the warm-up, if any, and starts the measured run: from here on requests are
+     * recorded into the reported collector and the test duration counts down.
+     */
+    private void startMeasurement() {
+        synchronized (this) {
+            if (recording == metricsCollector) {
+                return;
+            }
+            if (warmupCollector != null) {
+                System.out.println("Warm-up complete. Measuring...");
+            }
+            
+            terminator.schedule(() -> {
+                if (shouldStop.compareAndSet(false, true)) {
+                    System.out.println("\nTest duration reached. Stopping...");
+                }
+            }, config.getDurationSeconds(), TimeUnit.SECONDS);
+            
+            measuredStartMillis = System.currentTimeMillis();
+            runStartNanos = System.nanoTime();
+            metricsCollector.start(runStartNanos);
+            monitor.start();
+            interimReporter.start(runStartNanos);
+            
+            if (config.getResultLogPath() != null) {
+                try {
+                    resultLog = new ResultLogWriter(config.getResultLogPath(), measuredStartMillis, endpoints);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            // In the closed model a load profile gates how many users are active at any time
+            LoadProfile profile = config.getLoadProfile();
+            if (profile != null && !config.isOpenModel()) {
+                activeUsers = activeUsersAt(profile, 0);
+                terminator.scheduleAtFixedRate(() -> activeUsers = activeUsersAt(profile, System.nanoTime() - runStartNanos),
+                        PROFILE_UPDATE_MILLIS, PROFILE_UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            
+            recording = metricsCollector;
+        }
+    }
+    
+    private int activeUsersAt(LoadProfile profile, long elapsedNanos) {
+        return (int) Math.min(config.getUsers(), Math.round(profile.levelAt(elapsedNanos)));
+    }
+    
+    /**
+     * Replaces the live interim report with another periodic task, such as an agent shipping
+     * interval snapshots to its coordinator. Must be called before {@link #execute()}.
+     */
+    void setInterimTask(Runnable interimTask) {
+        this.interimTask = interimTask;
+    }
+    
+    public MetricsCollector getMetricsCollector() {
+        return metricsCollector;
+    }
+    
+    /**
+     * Wall-clock duration of the last {@link #execute()} run in milliseconds.
+     */
+    public long getActualDurationMs() {
+        return actualDurationMs;
+    }
+    
+    /**
+     * Report of the measured part of the last {@link #execute()} run.
+     */
+    public MetricsReport getReport() {
+        return report;
+    }
+    
+    /**
+     * Closed model: each worker thread loops over its share of users, sending a request and
+     * waiting for the response before the next one.
+     */
+    private void runClosedModel() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads());
         
         // Submit worker tasks
         int usersPerThread = config.getUsers() / config.getThreads();
@@ -57,141 +299,466 @@ public class LoadTestExecutor {
         
         for (int i = 0; i < config.getThreads(); i++) {
             int threadUsers = usersPerThread + (i < remainingUsers ? 1 : 0);
-            executor.submit(new LoadTestWorker(threadUsers));
+            executor.submit(new LoadTestWorker(i, threadUsers, i, config.getThreads()));
+        }
+        
+        awaitTermination(executor);
+    }
+    
+    /**
+     * Closed model on the virtual engine: every simulated user runs the blocking request loop
+     * on its own virtual thread, so the number of users is the number of concurrent sessions.
+     */
+    private void runClosedModelVirtual() throws InterruptedException {
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        
+        for (int i = 0; i < config.getUsers(); i++) {
+            executor.submit(new LoadTestWorker(i, 1, i, 1));
+        }
+        
+        awaitTermination(executor);
+    }
+    
+    /**
+     * Closed model on the async engine: every user is a chain of completion callbacks that
+     * sends its next request as soon as the previous response has been recorded, so users
+     * map to in-flight requests rather than to threads.
+     */
+    private void runClosedModelAsync() throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(config.getUsers());
+        ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor();
+        
+        for (int i = 0; i < config.getUsers(); i++) {
+            new AsyncUser(i, finished, pacer).sendNext();
+        }
+        
+        finished.await();
+        pacer.shutdown();
+    }
+    
+    /**
+     * Open model: requests are issued on the configured arrival schedule regardless of how
+     * quickly responses come back. Up to {@code users} requests may be in flight; with the
+     * classic engine arrivals beyond that wait in a bounded backlog and are dropped once the
+     * backlog is full, with the async and virtual engines they are dropped straight away.
+     * Latency is measured from each request's intended send time, so stalls on the server
+     * show up in the percentiles instead of silently lowering the send rate.
+     */
+    private void runOpenModel() throws InterruptedException {
+        int maxInFlight = config.getUsers();
+        ThreadPoolExecutor senders = null;
+        ExecutorService virtualSenders = null;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        if (config.getEngine() == TestConfiguration.Engine.VIRTUAL) {
+            virtualSenders = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        } else if (asyncSender == null) {
+            senders = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(maxInFlight));
+            senders.prestartAllCoreThreads();
+        }
+        
+        RateSchedule schedule = config.getRateSchedule();
+        long limitNanos = TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        long scheduleStart = System.nanoTime();
+        long offset = 0;
+        
+        // The warm-up runs at the schedule's peak rate; the schedule itself starts with the measurement
+        boolean warmingUp = recording != metricsCollector;
+        RateSchedule warmupSchedule = new RateSchedule(schedule.getPeakRate(), Collections.emptyList());
+        
+        while (!shouldStop.get()) {
+            if (warmingUp && recording == metricsCollector) {
+                warmingUp = false;
+                scheduleStart = runStartNanos;
+                offset = 0;
+            }
+            offset = warmingUp ? warmupSchedule.nextArrival(offset, Long.MAX_VALUE)
+                    : schedule.nextArrival(offset, limitNanos);
+            if (offset < 0) {
+                break;
+            }
+            long intendedStart = scheduleStart + offset;
+            int step = scenario.select(0);
+            
+            if (!Pacer.awaitDeadline(intendedStart, shouldStop, true)) {
+                break;
+            }
+            
+            if (senders != null) {
+                try {
+                    senders.execute(() -> sendScheduledRequest(step, intendedStart));
+                } catch (RejectedExecutionException e) {
+                    recordDropped(step, intendedStart);
+                }
+            } else if (!inFlight.tryAcquire()) {
+                recordDropped(step, intendedStart);
+            } else if (virtualSenders != null) {
+                virtualSenders.execute(() -> {
+                    try {
+                        sendScheduledRequest(step, intendedStart);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } else {
+                sendScheduledRequestAsync(step, intendedStart, inFlight);
+            }
         }
         
-        // Wait for termination
+        if (senders != null) {
+            awaitTermination(senders);
+        } else if (virtualSenders != null) {
+            awaitTermination(virtualSenders);
+        } else {
+            // Wait for outstanding async requests to complete
+            inFlight.acquire(maxInFlight);
+        }
+    }
+    
+    private void sendScheduledRequest(int step, long intendedStartNanos) {
+        if (shouldStop.get()) {
+            return;
+        }
+        if (System.nanoTime() - intendedStartNanos > LATE_THRESHOLD_NANOS) {
+            recording.recordLateRequest();
+        }
+        sendAndRecord(SCHEDULED_WORKER_ID, step, intendedStartNanos);
+    }
+    
+    private void sendScheduledRequestAsync(int step, long intendedStartNanos, Semaphore inFlight) {
+        long startTime = System.nanoTime();
+        if (startTime - intendedStartNanos > LATE_THRESHOLD_NANOS) {
+            recording.recordLateRequest();
+        }
+        
+        FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                recordResponse(SCHEDULED_WORKER_ID, step, intendedStartNanos, startTime, System.nanoTime(), response, null);
+                inFlight.release();
+            }
+            
+            @Override
+            public void failed(Exception e) {
+                recordResponse(SCHEDULED_WORKER_ID, step, intendedStartNanos, startTime, System.nanoTime(), null, e);
+                inFlight.release();
+                showFirstException(e);
+            }
+            
+            @Override
+            public void cancelled() {
+                inFlight.release();
+            }
+        };
+        
+        try {
+            asyncSender.sendRequest(scenario.getStep(step).getTemplate(), callback);
+        } catch (Feeder.ExhaustedException e) {
+            stopOnExhaustedFeeder(e);
+            inFlight.release();
+        } catch (Exception e) {
+            callback.failed(e);
+        }
+    }
+    
+    private void awaitTermination(ExecutorService executor) throws InterruptedException {
         executor.shutdown();
         while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
             // Continue waiting
         }
+    }
+    
+    /**
+     * Sends one request from the compiled template and records its outcome.
+     * 
+     * @param intendedStartNanos when the request was meant to be sent; in the open model this
+     *        may be earlier than the actual send time and latency is measured from it
+     */
+    private void sendAndRecord(int workerId, int step, long intendedStartNanos) {
+        sendAndRecord(workerId, step, intendedStartNanos, null);
+    }
+    
+    /**
+     * @param session the sending user's session, or null if users keep no state
+     */
+    private void sendAndRecord(int workerId, int step, long intendedStartNanos, UserSession session) {
+        long startTime = System.nanoTime();
         
-        metricsReporter.shutdown();
-        terminator.shutdown();
-        
-        long endTime = System.currentTimeMillis();
-        long actualDuration = endTime - startTime;
-        
-        System.out.println("\n" + "=".repeat(80));
-        System.out.println("LOAD TEST COMPLETED");
-        System.out.println("=".repeat(80));
+        try {
+            // Render a fresh request with new correlation IDs from the compiled template
+            HttpResponse response = httpSender.sendRequest(templateFor(step), session);
+            long endTime = System.nanoTime();
+            
+            recordResponse(workerId, step, intendedStartNanos, startTime, endTime, response, null);
+            
+        } catch (Feeder.ExhaustedException e) {
+            stopOnExhaustedFeeder(e);
+        } catch (Exception e) {
+            long endTime = System.nanoTime();
+            
+            recordResponse(workerId, step, intendedStartNanos, startTime, endTime, null, e);
+            showFirstException(e);
+        }
+    }
+    
+    private RequestTemplate templateFor(int step) {
+        return step == loginStep ? login : scenario.getStep(step).getTemplate();
+    }
+    
+    /**
+     * Returns whether the user has to send the login request next, and if so counts it as sent.
+     */
+    private boolean loginDue(UserSession session) {
+        if (login == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (!session.isLoginDue(now, sessions.getRefreshNanos())) {
+            return false;
+        }
+        session.loginSent(now);
+        return true;
+    }
+    
+    /**
+     * Counts a scheduled request that found no free sender, logging it when past the warm-up.
+     */
+    private void recordDropped(int step, long intendedStartNanos) {
+        MetricsCollector collector = recording;
+        collector.recordDroppedRequest();
+        if (collector == metricsCollector && resultLog != null) {
+            resultLog.writeDropped(intendedStartNanos - runStartNanos, step);
+        }
+    }
+    
+    /**
+     * Records a finished request; exactly one of {@code response} and {@code error} is set.
+     */
+    private void recordResponse(int workerId, int step, long intendedStartNanos, long startNanos, long endNanos,
+                                HttpResponse response, Throwable error) {
+        boolean success = response != null && response.isSuccess();
+        MetricsCollector collector = recording;
+        collector.recordResponse(step, endNanos - intendedStartNanos, success);
+        if (config.isOpenModel()) {
+            collector.recordUncorrectedResponse(endNanos - startNanos);
+        }
+        if (response != null) {
+            collector.recordStatus(response.getStatusCode());
+        } else {
+            collector.recordException(error);
+        }
+        if (response != null && response.getPhaseNanos() != null) {
+            collector.recordPhases(response.getPhaseNanos());
+        }
+        if (response != null && response.getBytesReceived() >= 0) {
+            collector.recordBytesReceived(response.getBytesReceived());
+        }
+        if (response != null && response.getAssertionFailure() != null) {
+            collector.recordAssertionFailure();
+            if (firstAssertionShown.compareAndSet(false, true)) {
+                System.err.println("\n=== FIRST ASSERTION FAILURE (subsequent failures will be suppressed) ===");
+                System.err.println("Status " + response.getStatusCode() + ": " + response.getAssertionFailure());
+                System.err.println("=== END ASSERTION FAILURE ===\n");
+            }
+        }
         
-        MetricsReport report = metricsCollector.generateReport(actualDuration);
-        printFinalReport(report);
+        if (collector != metricsCollector) {
+            if (config.getWarmupRequests() > 0 && warmupRemaining.decrementAndGet() == 0) {
+                startMeasurement();
+            }
+            return; // Warm-up requests are not written to the result log
+        }
         
-        httpSender.close();
+        if (resultLog != null) {
+            int statusCode = response != null ? response.getStatusCode() : 0;
+            ErrorClass errorClass = error != null ? ErrorClass.forException(error)
+                    : response.getAssertionFailure() != null ? ErrorClass.ASSERTION
+                    : success ? ErrorClass.NONE : ErrorClass.HTTP_STATUS;
+            long bytesReceived = response != null ? response.getBytesReceived() : -1;
+            resultLog.write(intendedStartNanos - runStartNanos, endNanos - intendedStartNanos,
+                    config.isOpenModel() ? startNanos - intendedStartNanos : 0, bytesReceived,
+                    statusCode, workerId, step, errorClass, config.isOpenModel());
+        }
+    }
+    
+    /**
+     * Ends the test early once a feeder that hands out each row only once has run dry.
+     */
+    private void stopOnExhaustedFeeder(Feeder.ExhaustedException e) {
+        if (shouldStop.compareAndSet(false, true)) {
+            System.out.println("\n" + e.getMessage() + ". Stopping...");
+        }
     }
     
-    private void reportInterimMetrics() {
-        if (!shouldStop.get()) {
-            long currentRequests = requestCounter.get();
-            System.out.printf("Requests sent: %d%n", currentRequests);
+    private void showFirstException(Exception e) {
+        // Show the first exception for debugging purposes
+        if (firstExceptionShown.compareAndSet(false, true)) {
+            System.err.println("\n=== FIRST REQUEST EXCEPTION (subsequent errors will be suppressed) ===");
+            System.err.println("Exception Type: " + e.getClass().getSimpleName());
+            System.err.println("Exception Message: " + e.getMessage());
+            if (e.getCause() != null) {
+                System.err.println("Caused by: " + e.getCause().getClass().getSimpleName() + ": " + e.getCause().getMessage());
+            }
+            
+            // Provide specific guidance for SSL certificate issues
+            if (e.getMessage() != null && (e.getMessage().contains("PKIX path") || e.getMessage().contains("certificate") || 
+                e.getMessage().contains("SSL") || e.getMessage().contains("TLS"))) {
+                System.err.println("\n*** SSL CERTIFICATE ISSUE DETECTED ***");
+                System.err.println("To bypass SSL certificate validation (similar to curl -k), restart with:");
+                System.err.println("java -Dcom.sun.net.ssl.checkRevocation=false \\");
+                System.err.println("     -Dtrust_all_cert=true \\");
+                System.err.println("     -Djdk.tls.disabledAlgorithms=\"\" \\");
+                System.err.println("     -jar target/metrics-light-1.0.0.jar [your parameters]");
+                System.err.println();
+            }
+            
+            System.err.println("This typically indicates issues with:");
+            System.err.println("  - SSL certificate validation (see above for bypass)");
+            System.err.println("  - Invalid URL in curl.txt");
+            System.err.println("  - Network connectivity problems");
+            System.err.println("  - Invalid curl command syntax");
+            System.err.println("  - Server not responding");
+            System.err.println("===================================================================\n");
         }
     }
     
-    private void printFinalReport(MetricsReport report) {
-        System.out.printf("Total Requests: %d%n", report.getTotalRequests());
-        System.out.printf("Successful Requests: %d%n", report.getSuccessfulRequests());
-        System.out.printf("Failed Requests: %d%n", report.getFailedRequests());
-        System.out.printf("Success Rate: %.2f%%%n", report.getSuccessRate());
-        System.out.println();
+    /**
+     * A simulated user on the async engine, driven entirely by completion callbacks.
+     */
+    private class AsyncUser implements FutureCallback<HttpResponse> {
+        private final int id;
+        private final CountDownLatch finished;
+        private final ScheduledExecutorService pacer;
+        private final UserSession session;
+        private long startTime;
+        private long iteration;
+        private int step;
+        
+        AsyncUser(int id, CountDownLatch finished, ScheduledExecutorService pacer) {
+            this.id = id;
+            this.finished = finished;
+            this.pacer = pacer;
+            this.session = sessions != null ? new UserSession() : null;
+        }
+        
+        void sendNext() {
+            if (shouldStop.get()) {
+                finished.countDown();
+                return;
+            }
+            if (id >= activeUsers) {
+                try {
+                    pacer.schedule(this::sendNext, IDLE_USER_PARK_NANOS, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    finished.countDown();
+                }
+                return;
+            }
+            step = session != null && loginDue(session) ? loginStep : scenario.select(iteration++);
+            startTime = System.nanoTime();
+            try {
+                asyncSender.sendRequest(templateFor(step), session, this);
+            } catch (Feeder.ExhaustedException e) {
+                stopOnExhaustedFeeder(e);
+                finished.countDown();
+            } catch (Exception e) {
+                failed(e);
+            }
+        }
+        
+        @Override
+        public void completed(HttpResponse response) {
+            recordResponse(id, step, startTime, startTime, System.nanoTime(), response, null);
+            scheduleNext(false);
+        }
         
-        System.out.printf("Average TPS: %.2f%n", report.getAverageTps());
-        System.out.printf("Maximum TPS: %.2f%n", report.getMaxTps());
-        System.out.println();
+        @Override
+        public void failed(Exception e) {
+            recordResponse(id, step, startTime, startTime, System.nanoTime(), null, e);
+            showFirstException(e);
+            scheduleNext(true);
+        }
         
-        System.out.printf("Response Time P75: %.2f ms%n", report.getP75());
-        System.out.printf("Response Time P90: %.2f ms%n", report.getP90());
-        System.out.printf("Response Time P99: %.2f ms%n", report.getP99());
-        System.out.printf("Response Time P99.9: %.2f ms%n", report.getP99_9());
-        System.out.printf("Response Time P99.99: %.2f ms%n", report.getP99_99());
-        System.out.println();
+        @Override
+        public void cancelled() {
+            finished.countDown();
+        }
         
-        System.out.printf("Min Response Time: %.2f ms%n", report.getMinResponseTime());
-        System.out.printf("Max Response Time: %.2f ms%n", report.getMaxResponseTime());
-        System.out.printf("Average Response Time: %.2f ms%n", report.getAverageResponseTime());
+        private void scheduleNext(boolean afterFailure) {
+            try {
+                if (!thinkTime.isNone()) {
+                    pacer.schedule(this::sendNext, thinkTime.nextNanos(), TimeUnit.NANOSECONDS);
+                } else if (afterFailure) {
+                    // Hand off so that synchronous failures cannot recurse through sendNext
+                    pacer.execute(this::sendNext);
+                } else {
+                    sendNext();
+                }
+            } catch (RejectedExecutionException e) {
+                finished.countDown();
+            }
+        }
     }
     
     private class LoadTestWorker implements Runnable {
+        private final int id;
         private final int users;
+        private final int firstUser;
+        private final int userStride;
         
-        public LoadTestWorker(int users) {
+        /**
+         * @param firstUser run-wide number of this worker's first user; its other users are
+         *                  numbered {@code userStride} apart, so users activated by a load
+         *                  profile are spread over all workers
+         */
+        public LoadTestWorker(int id, int users, int firstUser, int userStride) {
+            this.id = id;
             this.users = users;
+            this.firstUser = firstUser;
+            this.userStride = userStride;
         }
         
         @Override
         public void run() {
+            // Each user of this thread walks the scenario independently and is due again
+            // once its think time after the previous response has passed
+            long[] iterations = new long[users];
+            long[] nextSend = new long[users];
+            // Sessions are created as users first become active
+            UserSession[] userSessions = sessions != null ? new UserSession[users] : null;
+            boolean spin = config.getEngine() != TestConfiguration.Engine.VIRTUAL;
             while (!shouldStop.get()) {
+                if (firstUser >= activeUsers) {
+                    // No user of this worker is active under the load profile yet
+                    LockSupport.parkNanos(IDLE_USER_PARK_NANOS);
+                    continue;
+                }
+                long earliest = Long.MAX_VALUE;
+                boolean sent = false;
                 for (int i = 0; i < users && !shouldStop.get(); i++) {
-                    long startTime = System.nanoTime();
-                    
-                    try {
-                        // Generate fresh request with UUID replacement for each request
-                        RequestDetails freshRequest = CurlCommandParser.parseWithUuidReplacement(config.getCurlCommand());
-                        HttpResponse response = httpSender.sendRequest(freshRequest);
-                        long endTime = System.nanoTime();
-                        double responseTime = (endTime - startTime) / 1_000_000.0; // Convert to milliseconds
-                        
-                        metricsCollector.recordResponse(responseTime, response.isSuccess());
-                        requestCounter.incrementAndGet();
-                        
-                    } catch (Exception e) {
-                        long endTime = System.nanoTime();
-                        double responseTime = (endTime - startTime) / 1_000_000.0;
-                        
-                        metricsCollector.recordResponse(responseTime, false);
-                        requestCounter.incrementAndGet();
-                        
-                        // Show the first exception for debugging purposes
-                        if (firstExceptionShown.compareAndSet(false, true)) {
-                            System.err.println("\n=== FIRST REQUEST EXCEPTION (subsequent errors will be suppressed) ===");
-                            System.err.println("Exception Type: " + e.getClass().getSimpleName());
-                            System.err.println("Exception Message: " + e.getMessage());
-                            if (e.getCause() != null) {
-                                System.err.println("Caused by: " + e.getCause().getClass().getSimpleName() + ": " + e.getCause().getMessage());
-                            }
-                            
-                            // Provide specific guidance for SSL certificate issues
-                            if (e.getMessage().contains("PKIX path") || e.getMessage().contains("certificate") || 
-                                e.getMessage().contains("SSL") || e.getMessage().contains("TLS")) {
-                                System.err.println("\n*** SSL CERTIFICATE ISSUE DETECTED ***");
-                                System.err.println("To bypass SSL certificate validation (similar to curl -k), restart with:");
-                                System.err.println("java -Dcom.sun.net.ssl.checkRevocation=false \\");
-                                System.err.println("     -Dtrust_all_cert=true \\");
-                                System.err.println("     -Djdk.tls.disabledAlgorithms=\"\" \\");
-                                System.err.println("     -jar target/metrics-light-1.0.0.jar [your parameters]");
-                                System.err.println();
-                            }
-                            
-                            System.err.println("This typically indicates issues with:");
-                            System.err.println("  - SSL certificate validation (see above for bypass)");
-                            System.err.println("  - Invalid URL in curl.txt");
-                            System.err.println("  - Network connectivity problems");
-                            System.err.println("  - Invalid curl command syntax");
-                            System.err.println("  - Server not responding");
-                            System.err.println("===================================================================\n");
-                        }
+                    if (firstUser + i * userStride >= activeUsers) {
+                        break;
                     }
-                    
-                    // Apply configured delay between requests
-                    if (config.getDelayMs() > 0) {
-                        try {
-                            Thread.sleep(config.getDelayMs());
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
+                    if (!thinkTime.isNone() && nextSend[i] - System.nanoTime() > 0) {
+                        earliest = Math.min(earliest, nextSend[i]);
+                        continue;
+                    }
+                    UserSession session = null;
+                    if (userSessions != null) {
+                        session = userSessions[i] != null ? userSessions[i] : (userSessions[i] = new UserSession());
+                    }
+                    int step = session != null && loginDue(session) ? loginStep : scenario.select(iterations[i]++);
+                    sendAndRecord(id, step, System.nanoTime(), session);
+                    sent = true;
+                    if (!thinkTime.isNone()) {
+                        nextSend[i] = System.nanoTime() + thinkTime.nextNanos();
+                        earliest = Math.min(earliest, nextSend[i]);
                     }
                 }
                 
-                // Small delay to prevent overwhelming the system if no delay configured
-                if (config.getDelayMs() == 0) {
-                    try {
-                        Thread.sleep(1);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+                // Every user is thinking: wait for the first one to become due
+                if (!sent && earliest != Long.MAX_VALUE) {
+                    Pacer.awaitDeadline(Math.min(earliest, System.nanoTime() + IDLE_USER_PARK_NANOS), shouldStop, spin);
                 }
             }
         }
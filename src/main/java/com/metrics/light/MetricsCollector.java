@@ -1,113 +1,587 @@
 package com.metrics.light;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.*;
 
 /**
  * Collects and calculates performance metrics for the load test.
+ * 
+ * Response times are recorded into a set of striped latency histograms, one picked per
+ * recording thread, so memory stays constant regardless of run length and threads rarely
+ * touch the same counters. The stripes are merged when the report is generated. Successful
+ * and failed requests go to separate stripes, so fast failures can be reported apart from
+ * the successful response times at no extra recording cost.
  */
 public class MetricsCollector {
-    private final ConcurrentLinkedQueue<Double> responseTimes;
-    private final AtomicLong totalRequests;
-    private final AtomicLong successfulRequests;
-    private final AtomicLong failedRequests;
-    private final AtomicReference<Double> minResponseTime;
-    private final AtomicReference<Double> maxResponseTime;
-    private final Map<Long, AtomicLong> requestsPerSecond;
+    private static final int MAX_STATUS_CODE = 599;
+    private static final int MAX_ERROR_TYPES = 64;
+    
+    private final LatencyHistogram[] recorders;
+    private final LatencyHistogram[] failureRecorders;
+    private final LatencyHistogram[] uncorrectedRecorders;
+    private final int recorderMask;
+    private final LongAdder totalRequests;
+    private final LongAdder successfulRequests;
+    private final LongAdder failedRequests;
+    private final ThroughputTimeline timeline;
+    private final IntervalRecorder intervalRecorder;
+    private final LongAdder lateRequests;
+    private final LongAdder droppedRequests;
+    private final LatencyHistogram[][] phaseRecorders;
+    private final LongAdder timedRequests;
+    private final LongAdder bytesReceived;
+    private final LongAdder assertionFailures;
+    private final LongAdder[] statusCounts;
+    private final ConcurrentMap<String, ErrorCount> errorCounts;
+    private volatile long startNanos = System.nanoTime();
+    private volatile boolean openModel;
+    private boolean recordIntervals;
+    private EndpointRecorder[] endpoints = new EndpointRecorder[0];
+    private List<LoadProfile.Stage> stages = Collections.emptyList();
     
     public MetricsCollector() {
-        this.responseTimes = new ConcurrentLinkedQueue<>();
-        this.totalRequests = new AtomicLong(0);
-        this.successfulRequests = new AtomicLong(0);
-        this.failedRequests = new AtomicLong(0);
-        this.minResponseTime = new AtomicReference<>(Double.MAX_VALUE);
-        this.maxResponseTime = new AtomicReference<>(0.0);
-        this.requestsPerSecond = new ConcurrentHashMap<>();
+        this(LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS, 0);
+    }
+    
+    /**
+     * @param significantDigits precision of the response time histograms
+     * @param durationSeconds expected test duration, used to size the per-second timeline
+     */
+    public MetricsCollector(int significantDigits, int durationSeconds) {
+        this.recorders = newStripes(significantDigits);
+        this.failureRecorders = newStripes(significantDigits);
+        this.uncorrectedRecorders = newStripes(significantDigits);
+        this.recorderMask = recorders.length - 1;
+        this.totalRequests = new LongAdder();
+        this.successfulRequests = new LongAdder();
+        this.failedRequests = new LongAdder();
+        this.timeline = new ThroughputTimeline(durationSeconds);
+        this.intervalRecorder = new IntervalRecorder(ThroughputTimeline.INTERVAL_SIGNIFICANT_DIGITS);
+        this.lateRequests = new LongAdder();
+        this.droppedRequests = new LongAdder();
+        this.phaseRecorders = new LatencyHistogram[RequestPhase.values().length][];
+        for (int i = 0; i < phaseRecorders.length; i++) {
+            phaseRecorders[i] = newStripes(ThroughputTimeline.INTERVAL_SIGNIFICANT_DIGITS);
+        }
+        this.timedRequests = new LongAdder();
+        this.bytesReceived = new LongAdder();
+        this.assertionFailures = new LongAdder();
+        this.statusCounts = new LongAdder[MAX_STATUS_CODE + 1];
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+        this.errorCounts = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Returns one histogram per stripe.
+     */
+    static LatencyHistogram[] newStripes(int significantDigits) {
+        int stripes = stripeCount();
+        LatencyHistogram[] histograms = new LatencyHistogram[stripes];
+        for (int i = 0; i < stripes; i++) {
+            histograms[i] = new LatencyHistogram(significantDigits);
+        }
+        return histograms;
+    }
+    
+    /**
+     * Returns the number of stripes, enough that concurrent recording threads rarely share
+     * one; a power of two so {@link #stripeForCurrentThread(int)} can mask.
+     */
+    static int stripeCount() {
+        return Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+    }
+    
+    /**
+     * Records a completed request.
+     * 
+     * @param responseTimeNanos elapsed time of the request in nanoseconds
+     * @param success whether the request was considered successful
+     */
+    public void recordResponse(long responseTimeNanos, boolean success) {
+        recordResponseAt(System.nanoTime(), responseTimeNanos, success);
+    }
+    
+    /**
+     * Records a completed request of a multi-request scenario, both in the combined totals and
+     * in the statistics of its endpoint.
+     * 
+     * @param endpoint index of the request in the names passed to {@link #setEndpoints(List)}
+     */
+    public void recordResponse(int endpoint, long responseTimeNanos, boolean success) {
+        recordResponseAt(endpoint, System.nanoTime(), responseTimeNanos, success);
     }
     
-    public void recordResponse(double responseTime, boolean success) {
-        responseTimes.offer(responseTime);
-        totalRequests.incrementAndGet();
+    /**
+     * Records a completed request of a multi-request scenario at the given instant, as
+     * {@link #recordResponseAt(long, long, boolean)} does for the combined totals.
+     */
+    public void recordResponseAt(int endpoint, long completedAtNanos, long responseTimeNanos, boolean success) {
+        recordResponseAt(completedAtNanos, responseTimeNanos, success);
+        if (endpoint < endpoints.length) {
+            endpoints[endpoint].record(responseTimeNanos, success);
+        }
+    }
+    
+    /**
+     * Enables per-endpoint statistics for a scenario with more than one request. Must be
+     * called before recording starts.
+     */
+    public void setEndpoints(List<String> names) {
+        if (names.size() < 2) {
+            return;
+        }
+        EndpointRecorder[] recorders = new EndpointRecorder[names.size()];
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new EndpointRecorder(names.get(i), this.recorders[0].getSignificantDigits());
+        }
+        this.endpoints = recorders;
+    }
+    
+    /**
+     * Starts recording every response for {@link #getIntervalSnapshot()} as well, for live
+     * interim reporting. Without a reader of the intervals this is skipped, as it costs two
+     * atomic increments per response. Must be called before recording starts.
+     */
+    public void enableIntervalRecording() {
+        recordIntervals = true;
+    }
+    
+    /**
+     * Enables a per-stage breakdown of the report for a run driven by a load profile.
+     */
+    public void setStages(List<LoadProfile.Stage> stages) {
+        this.stages = stages;
+    }
+    
+    /**
+     * Records a request that completed at the given {@link System#nanoTime()} instant, or at
+     * an offset from the start passed to {@link #start(long)} when replaying a result log.
+     */
+    public void recordResponseAt(long completedAtNanos, long responseTimeNanos, boolean success) {
+        int stripe = stripeForCurrentThread();
+        totalRequests.increment();
         
         if (success) {
-            successfulRequests.incrementAndGet();
+            recorders[stripe].recordValue(responseTimeNanos);
+            successfulRequests.increment();
         } else {
-            failedRequests.incrementAndGet();
+            failureRecorders[stripe].recordValue(responseTimeNanos);
+            failedRequests.increment();
         }
         
-        // Update min/max response times
-        minResponseTime.updateAndGet(current -> Math.min(current, responseTime));
-        maxResponseTime.updateAndGet(current -> Math.max(current, responseTime));
+        timeline.record(completedAtNanos, responseTimeNanos, success);
+        if (recordIntervals) {
+            intervalRecorder.record(responseTimeNanos, success);
+        }
+    }
+    
+    /**
+     * Marks the start of the measured run for the per-second timeline.
+     */
+    public void start(long startNanos) {
+        this.startNanos = startNanos;
+        timeline.start(startNanos);
+    }
+    
+    /**
+     * Counts the status code of a received response. Codes outside 100-599 are counted as 0.
+     */
+    public void recordStatus(int statusCode) {
+        statusCounts[statusCode >= 100 && statusCode <= MAX_STATUS_CODE ? statusCode : 0].increment();
+    }
+    
+    /**
+     * Counts a request that failed with an exception, by exception class.
+     */
+    public void recordException(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof java.util.concurrent.ExecutionException
+                || cause instanceof java.util.concurrent.CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        recordError(cause.getClass().getSimpleName() + " (" + ErrorClass.forException(cause) + ")", cause.getMessage());
+    }
+    
+    /**
+     * Counts a failure of the given type, remembering when it was first seen and its first
+     * message. The number of distinct types is capped so an error with a varying type
+     * cannot grow the map without bound.
+     */
+    public void recordError(String type, String message) {
+        ErrorCount count = errorCounts.get(type);
+        if (count == null) {
+            String key = errorCounts.size() < MAX_ERROR_TYPES ? type : "Other";
+            count = errorCounts.computeIfAbsent(key,
+                    k -> new ErrorCount((System.nanoTime() - startNanos) / 1_000_000L, message));
+        }
+        count.count.increment();
+    }
+    
+    /**
+     * Records the service time of a request sent on an arrival schedule, measured from the
+     * moment it was actually sent rather than from its intended send time.
+     */
+    public void recordUncorrectedResponse(long responseTimeNanos) {
+        openModel = true;
+        uncorrectedRecorders[stripeForCurrentThread()].recordValue(responseTimeNanos);
+    }
+    
+    /**
+     * Counts a scheduled request that was sent noticeably after its intended send time.
+     */
+    public void recordLateRequest() {
+        lateRequests.increment();
+    }
+    
+    /**
+     * Counts a scheduled request that was never sent because no sender was available.
+     */
+    public void recordDroppedRequest() {
+        openModel = true;
+        droppedRequests.increment();
+    }
+    
+    /**
+     * Records the connection phases of a completed request.
+     * 
+     * @param phaseNanos duration per {@link RequestPhase} ordinal, -1 for phases that did not happen
+     */
+    public void recordPhases(long[] phaseNanos) {
+        int stripe = stripeForCurrentThread();
+        for (int i = 0; i < phaseRecorders.length; i++) {
+            if (phaseNanos[i] >= 0) {
+                phaseRecorders[i][stripe].recordValue(phaseNanos[i]);
+            }
+        }
+        timedRequests.increment();
+    }
+    
+    /**
+     * Adds the body size of a completed request to the download throughput.
+     */
+    public void recordBytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+    
+    /**
+     * Counts a request whose status was accepted but whose body failed a check.
+     */
+    public void recordAssertionFailure() {
+        assertionFailures.increment();
+    }
+    
+    /**
+     * Returns the requests recorded since the previous call, for live interim reporting.
+     * The snapshot stays valid until the next call.
+     */
+    public IntervalRecorder.Snapshot getIntervalSnapshot() {
+        return intervalRecorder.getIntervalSnapshot();
+    }
+    
+    /**
+     * Adds an interval recorded by a remote agent to the live interim metrics.
+     */
+    public void mergeInterval(LatencyHistogram histogram, long errors) {
+        intervalRecorder.add(histogram, errors);
+    }
+    
+    /**
+     * Writes everything collected so far (merged histograms, counters, the per-second
+     * timeline and per-endpoint statistics) for merging with {@link #mergeSnapshot}.
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        merge(recorders).encode(out);
+        merge(failureRecorders).encode(out);
+        out.writeLong(totalRequests.sum());
+        out.writeLong(successfulRequests.sum());
+        out.writeLong(failedRequests.sum());
+        
+        out.writeBoolean(openModel);
+        merge(uncorrectedRecorders).encode(out);
+        out.writeLong(lateRequests.sum());
+        out.writeLong(droppedRequests.sum());
+        
+        timeline.writeTo(out);
         
-        // Track requests per second
-        long currentSecond = System.currentTimeMillis() / 1000;
-        requestsPerSecond.computeIfAbsent(currentSecond, k -> new AtomicLong(0)).incrementAndGet();
+        out.writeInt(endpoints.length);
+        for (EndpointRecorder endpoint : endpoints) {
+            out.writeUTF(endpoint.name);
+            out.writeLong(endpoint.requests.sum());
+            out.writeLong(endpoint.failures.sum());
+            endpoint.histogram.encode(out);
+        }
+        
+        out.writeLong(bytesReceived.sum());
+        out.writeLong(assertionFailures.sum());
+        out.writeLong(timedRequests.sum());
+        for (LatencyHistogram[] phase : phaseRecorders) {
+            merge(phase).encode(out);
+        }
+        
+        for (int code = 0; code < statusCounts.length; code++) {
+            long count = statusCounts[code].sum();
+            if (count > 0) {
+                out.writeShort(code);
+                out.writeLong(count);
+            }
+        }
+        out.writeShort(-1);
+        out.writeInt(errorCounts.size());
+        for (Map.Entry<String, ErrorCount> entry : errorCounts.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().count.sum());
+            out.writeLong(entry.getValue().firstSeenMs);
+            out.writeBoolean(entry.getValue().firstMessage != null);
+            if (entry.getValue().firstMessage != null) {
+                out.writeUTF(entry.getValue().firstMessage);
+            }
+        }
     }
     
-    public MetricsReport generateReport(long actualDurationMs) {
-        List<Double> sortedTimes = new ArrayList<>(responseTimes);
-        Collections.sort(sortedTimes);
+    /**
+     * Adds a snapshot written by {@link #writeSnapshot}, typically by a remote agent, into
+     * this collector. Not thread-safe against concurrent merges. Histograms merge exactly, so
+     * percentiles of the combined report are computed over all agents' samples rather than
+     * averaged.
+     */
+    public void mergeSnapshot(DataInput in) throws IOException {
+        recorders[0].add(LatencyHistogram.decode(in));
+        failureRecorders[0].add(LatencyHistogram.decode(in));
+        totalRequests.add(in.readLong());
+        successfulRequests.add(in.readLong());
+        failedRequests.add(in.readLong());
+        
+        if (in.readBoolean()) {
+            openModel = true;
+        }
+        uncorrectedRecorders[0].add(LatencyHistogram.decode(in));
+        lateRequests.add(in.readLong());
+        droppedRequests.add(in.readLong());
         
-        double averageResponseTime = sortedTimes.stream()
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.0);
+        timeline.mergeFrom(in);
         
-        double p75 = calculatePercentile(sortedTimes, 75.0);
-        double p90 = calculatePercentile(sortedTimes, 90.0);
-        double p99 = calculatePercentile(sortedTimes, 99.0);
-        double p99_9 = calculatePercentile(sortedTimes, 99.9);
-        double p99_99 = calculatePercentile(sortedTimes, 99.99);
+        int endpointCount = AgentProtocol.readCount(in, "endpoint");
+        List<String> names = new ArrayList<>(endpointCount);
+        List<LatencyHistogram> histograms = new ArrayList<>(endpointCount);
+        long[] requests = new long[endpointCount];
+        long[] failures = new long[endpointCount];
+        for (int i = 0; i < endpointCount; i++) {
+            names.add(in.readUTF());
+            requests[i] = in.readLong();
+            failures[i] = in.readLong();
+            histograms.add(LatencyHistogram.decode(in));
+        }
+        if (endpoints.length == 0) {
+            setEndpoints(names);
+        }
+        for (int i = 0; i < Math.min(endpointCount, endpoints.length); i++) {
+            endpoints[i].histogram.add(histograms.get(i));
+            endpoints[i].requests.add(requests[i]);
+            endpoints[i].failures.add(failures[i]);
+        }
+        
+        bytesReceived.add(in.readLong());
+        assertionFailures.add(in.readLong());
+        timedRequests.add(in.readLong());
+        for (LatencyHistogram[] phase : phaseRecorders) {
+            phase[0].add(LatencyHistogram.decode(in));
+        }
+        
+        for (int code = in.readShort(); code >= 0; code = in.readShort()) {
+            statusCounts[code >= 100 && code <= MAX_STATUS_CODE ? code : 0].add(in.readLong());
+        }
+        int errorTypes = AgentProtocol.readCount(in, "error type");
+        for (int i = 0; i < errorTypes; i++) {
+            String type = in.readUTF();
+            long count = in.readLong();
+            long firstSeenMs = in.readLong();
+            String message = in.readBoolean() ? in.readUTF() : null;
+            ErrorCount merged = errorCounts.computeIfAbsent(type, k -> new ErrorCount(firstSeenMs, message));
+            merged.count.add(count);
+            merged.firstSeenMs = Math.min(merged.firstSeenMs, firstSeenMs);
+        }
+    }
+    
+    private int stripeForCurrentThread() {
+        return stripeForCurrentThread(recorderMask);
+    }
+    
+    static int stripeForCurrentThread(int mask) {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & mask;
+    }
+    
+    private static LatencyHistogram merge(LatencyHistogram[] stripes) {
+        LatencyHistogram merged = stripes[0].newEmptyCopy();
+        for (LatencyHistogram stripe : stripes) {
+            merged.add(stripe);
+        }
+        return merged;
+    }
+    
+    /**
+     * Merges the per-thread recorders of successful and failed requests into a single histogram.
+     */
+    public LatencyHistogram getResponseTimeHistogram() {
+        LatencyHistogram merged = merge(recorders);
+        for (LatencyHistogram stripe : failureRecorders) {
+            merged.add(stripe);
+        }
+        return merged;
+    }
+    
+    public MetricsReport generateReport(long actualDurationMs) {
+        LatencyHistogram histogram = getResponseTimeHistogram();
+        long total = totalRequests.sum();
+        long successful = successfulRequests.sum();
         
         double actualDurationSeconds = actualDurationMs / 1000.0;
-        double averageTps = totalRequests.get() / actualDurationSeconds;
+        double averageTps = total / actualDurationSeconds;
         
-        double maxTps = requestsPerSecond.values().stream()
-                .mapToLong(AtomicLong::get)
-                .max()
-                .orElse(0L);
+        List<ThroughputTimeline.Interval> intervals = timeline.getIntervals();
+        long maxTps = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (ThroughputTimeline.Interval interval : intervals) {
+            maxTps = Math.max(maxTps, interval.getRequests());
+            sum += interval.getRequests();
+            sumOfSquares += (double) interval.getRequests() * interval.getRequests();
+        }
+        double meanTps = intervals.isEmpty() ? 0.0 : sum / intervals.size();
+        double tpsStdDev = intervals.isEmpty() ? 0.0
+                : Math.sqrt(Math.max(0.0, sumOfSquares / intervals.size() - meanTps * meanTps));
         
-        double successRate = totalRequests.get() > 0 ? 
-                (successfulRequests.get() * 100.0) / totalRequests.get() : 0.0;
+        double successRate = total > 0 ? 
+                (successful * 100.0) / total : 0.0;
         
-        return new MetricsReport(
-                totalRequests.get(),
-                successfulRequests.get(),
-                failedRequests.get(),
+        LatencySummary responseTimes = LatencySummary.from(histogram);
+        MetricsReport report = new MetricsReport(
+                total,
+                successful,
+                failedRequests.sum(),
                 successRate,
                 averageTps,
                 maxTps,
-                p75, p90, p99, p99_9, p99_99,
-                minResponseTime.get(),
-                maxResponseTime.get(),
-                averageResponseTime
+                responseTimes.getP75(),
+                responseTimes.getP90(),
+                responseTimes.getP99(),
+                responseTimes.getP99_9(),
+                responseTimes.getP99_99(),
+                responseTimes.getMin(),
+                responseTimes.getMax(),
+                responseTimes.getMean()
         );
-    }
-    
-    private double calculatePercentile(List<Double> sortedValues, double percentile) {
-        if (sortedValues.isEmpty()) {
-            return 0.0;
+        report.setResponseTimes(responseTimes);
+        report.setResponseTimeHistogram(histogram);
+        
+        if (failedRequests.sum() > 0) {
+            LatencyHistogram successes = merge(recorders);
+            LatencyHistogram failures = merge(failureRecorders);
+            report.setOutcomeResponseTimes(successes.getTotalCount() > 0 ? LatencySummary.from(successes) : null,
+                    failures.getTotalCount() > 0 ? LatencySummary.from(failures) : null);
+        }
+        Map<Integer, Long> statuses = new TreeMap<>();
+        for (int code = 0; code < statusCounts.length; code++) {
+            long count = statusCounts[code].sum();
+            if (count > 0) {
+                statuses.put(code, count);
+            }
         }
+        List<MetricsReport.ErrorType> errorTypes = new ArrayList<>();
+        for (Map.Entry<String, ErrorCount> entry : errorCounts.entrySet()) {
+            ErrorCount count = entry.getValue();
+            errorTypes.add(new MetricsReport.ErrorType(entry.getKey(), count.count.sum(), count.firstSeenMs, count.firstMessage));
+        }
+        errorTypes.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        report.setErrorBreakdown(statuses, errorTypes);
+        long bytes = bytesReceived.sum();
+        report.setTransferStats(bytes, bytes / 1048576.0 / actualDurationSeconds, assertionFailures.sum());
+        report.setTimeline(intervals, tpsStdDev);
         
-        if (sortedValues.size() == 1) {
-            return sortedValues.get(0);
+        if (openModel) {
+            report.setOpenModelStats(LatencySummary.from(merge(uncorrectedRecorders)),
+                    lateRequests.sum(), droppedRequests.sum());
         }
         
-        double index = (percentile / 100.0) * (sortedValues.size() - 1);
-        int lowerIndex = (int) Math.floor(index);
-        int upperIndex = (int) Math.ceil(index);
+        if (endpoints.length > 0) {
+            List<MetricsReport.Endpoint> endpointResults = new ArrayList<>(endpoints.length);
+            for (EndpointRecorder endpoint : endpoints) {
+                endpointResults.add(new MetricsReport.Endpoint(endpoint.name, endpoint.requests.sum(),
+                        endpoint.failures.sum(), LatencySummary.from(endpoint.histogram)));
+            }
+            report.setEndpoints(endpointResults);
+        }
         
-        if (lowerIndex == upperIndex) {
-            return sortedValues.get(lowerIndex);
+        if (!stages.isEmpty()) {
+            List<MetricsReport.StageResult> stageResults = new ArrayList<>(stages.size());
+            for (int i = 0; i < stages.size(); i++) {
+                LoadProfile.Stage stage = stages.get(i);
+                long end = stage.getStartSecond() + stage.getDurationSeconds();
+                // Requests completing while the last stage shuts down still belong to it
+                ThroughputTimeline.Interval totals = timeline.aggregate(stage.getStartSecond(),
+                        i == stages.size() - 1 ? end + 1 : end);
+                stageResults.add(new MetricsReport.StageResult(stage.getName(), stage.getStartSecond(),
+                        stage.getDurationSeconds(), totals != null ? totals.getRequests() : 0,
+                        totals != null ? totals.getErrors() : 0, totals != null ? totals.getResponseTimes() : null));
+            }
+            report.setStages(stageResults);
         }
         
-        double lowerValue = sortedValues.get(lowerIndex);
-        double upperValue = sortedValues.get(upperIndex);
-        double weight = index - lowerIndex;
+        long timed = timedRequests.sum();
+        if (timed > 0) {
+            Map<RequestPhase, LatencySummary> phases = new EnumMap<>(RequestPhase.class);
+            for (RequestPhase phase : RequestPhase.values()) {
+                LatencyHistogram phaseHistogram = merge(phaseRecorders[phase.ordinal()]);
+                if (phaseHistogram.getTotalCount() > 0) {
+                    phases.put(phase, LatencySummary.from(phaseHistogram));
+                }
+            }
+            report.setConnectionPhases(phases, timed);
+        }
         
-        return lowerValue + weight * (upperValue - lowerValue);
+        return report;
+    }
+    
+    /**
+     * Statistics for one request of a scenario. A single shared histogram per endpoint keeps
+     * memory proportional to the number of endpoints rather than endpoints times stripes.
+     */
+    private static class EndpointRecorder {
+        private final String name;
+        private final LatencyHistogram histogram;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        
+        EndpointRecorder(String name, int significantDigits) {
+            this.name = name;
+            this.histogram = new LatencyHistogram(significantDigits);
+        }
+        
+        void record(long responseTimeNanos, boolean success) {
+            histogram.recordValue(responseTimeNanos);
+            requests.increment();
+            if (!success) {
+                failures.increment();
+            }
+        }
+    }
+    
+    private static class ErrorCount {
+        private final LongAdder count = new LongAdder();
+        private final String firstMessage;
+        private volatile long firstSeenMs;
+        
+        ErrorCount(long firstSeenMs, String firstMessage) {
+            this.firstSeenMs = firstSeenMs;
+            this.firstMessage = firstMessage != null && firstMessage.length() > 200
+                    ? firstMessage.substring(0, 200) : firstMessage;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,9 @@
 package com.metrics.light;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Contains the results of a load test metrics analysis.
  */
@@ -18,6 +22,25 @@ public class MetricsReport {
     private final double minResponseTime;
     private final double maxResponseTime;
     private final double averageResponseTime;
+    private LatencySummary responseTimes;
+    private LatencyHistogram responseTimeHistogram;
+    private List<ThroughputTimeline.Interval> timeline = Collections.emptyList();
+    private double tpsStandardDeviation;
+    private LatencySummary uncorrectedResponseTimes;
+    private long lateRequests;
+    private long droppedRequests;
+    private List<Endpoint> endpoints = Collections.emptyList();
+    private Map<RequestPhase, LatencySummary> connectionPhases = Collections.emptyMap();
+    private long timedRequests;
+    private long bytesReceived;
+    private double throughputMbPerSecond;
+    private long assertionFailures;
+    private LatencySummary successResponseTimes;
+    private LatencySummary failureResponseTimes;
+    private Map<Integer, Long> statusCounts = Collections.emptyMap();
+    private List<ErrorType> errorTypes = Collections.emptyList();
+    private List<StageResult> stages = Collections.emptyList();
+    private GeneratorHealth generatorHealth;
     
     public MetricsReport(long totalRequests, long successfulRequests, long failedRequests,
                         double successRate, double averageTps, double maxTps,
@@ -54,4 +77,235 @@ public class MetricsReport {
     public double getMinResponseTime() { return minResponseTime; }
     public double getMaxResponseTime() { return maxResponseTime; }
     public double getAverageResponseTime() { return averageResponseTime; }
-}
\ No newline at end of file
+    
+    public LatencySummary getResponseTimes() { return responseTimes; }
+    /** Full response time histogram the percentiles were computed from, in nanoseconds. */
+    public LatencyHistogram getResponseTimeHistogram() { return responseTimeHistogram; }
+    public double getTpsStandardDeviation() { return tpsStandardDeviation; }
+    public List<ThroughputTimeline.Interval> getTimeline() { return timeline; }
+    
+    /**
+     * Whether requests were sent on an arrival schedule; the main percentiles are then
+     * measured from each request's intended send time (corrected for coordinated omission).
+     */
+    public boolean isOpenModel() { return uncorrectedResponseTimes != null; }
+    public LatencySummary getUncorrectedResponseTimes() { return uncorrectedResponseTimes; }
+    public long getLateRequests() { return lateRequests; }
+    public long getDroppedRequests() { return droppedRequests; }
+    /** Per-endpoint results of a multi-request scenario; empty for a single request. */
+    public List<Endpoint> getEndpoints() { return endpoints; }
+    /** Total size of the response bodies read. */
+    public long getBytesReceived() { return bytesReceived; }
+    /** Download throughput over the whole run in MB (2^20 bytes) per second. */
+    public double getThroughputMbPerSecond() { return throughputMbPerSecond; }
+    /** Failed requests whose status was accepted but whose body failed a check. */
+    public long getAssertionFailures() { return assertionFailures; }
+    /** Per-stage results of a run driven by a load profile; empty otherwise. */
+    public List<StageResult> getStages() { return stages; }
+    /** Response times of successful requests only; null unless some requests failed. */
+    public LatencySummary getSuccessResponseTimes() { return successResponseTimes; }
+    /** Response times of failed requests only; null if none failed. */
+    public LatencySummary getFailureResponseTimes() { return failureResponseTimes; }
+    /** Responses received per status code, in code order; code 0 counts invalid codes. */
+    public Map<Integer, Long> getStatusCounts() { return statusCounts; }
+    /** Requests that failed with an exception, by exception type, most frequent first. */
+    public List<ErrorType> getErrorTypes() { return errorTypes; }
+    /** Time spent in each connection phase; empty if the engine does not time phases. */
+    public Map<RequestPhase, LatencySummary> getConnectionPhases() { return connectionPhases; }
+    /** Number of requests whose phases were timed. */
+    public long getTimedRequests() { return timedRequests; }
+    /** Health of the load generator during the run; null if it was not monitored. */
+    public GeneratorHealth getGeneratorHealth() { return generatorHealth; }
+    /** Number of timed requests that had to open a new connection. */
+    public long getNewConnections() {
+        LatencySummary connect = connectionPhases.get(RequestPhase.CONNECT);
+        return connect != null ? connect.getCount() : 0;
+    }
+    
+    void setResponseTimes(LatencySummary responseTimes) {
+        this.responseTimes = responseTimes;
+    }
+    
+    void setResponseTimeHistogram(LatencyHistogram responseTimeHistogram) {
+        this.responseTimeHistogram = responseTimeHistogram;
+    }
+    
+    void setTimeline(List<ThroughputTimeline.Interval> timeline, double tpsStandardDeviation) {
+        this.timeline = timeline;
+        this.tpsStandardDeviation = tpsStandardDeviation;
+    }
+    
+    void setOpenModelStats(LatencySummary uncorrectedResponseTimes, long lateRequests, long droppedRequests) {
+        this.uncorrectedResponseTimes = uncorrectedResponseTimes;
+        this.lateRequests = lateRequests;
+        this.droppedRequests = droppedRequests;
+    }
+    
+    void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+    
+    void setTransferStats(long bytesReceived, double throughputMbPerSecond, long assertionFailures) {
+        this.bytesReceived = bytesReceived;
+        this.throughputMbPerSecond = throughputMbPerSecond;
+        this.assertionFailures = assertionFailures;
+    }
+    
+    void setStages(List<StageResult> stages) {
+        this.stages = stages;
+    }
+    
+    void setOutcomeResponseTimes(LatencySummary successResponseTimes, LatencySummary failureResponseTimes) {
+        this.successResponseTimes = successResponseTimes;
+        this.failureResponseTimes = failureResponseTimes;
+    }
+    
+    void setErrorBreakdown(Map<Integer, Long> statusCounts, List<ErrorType> errorTypes) {
+        this.statusCounts = statusCounts;
+        this.errorTypes = errorTypes;
+    }
+    
+    void setConnectionPhases(Map<RequestPhase, LatencySummary> connectionPhases, long timedRequests) {
+        this.connectionPhases = connectionPhases;
+        this.timedRequests = timedRequests;
+    }
+    
+    void setGeneratorHealth(GeneratorHealth generatorHealth) {
+        this.generatorHealth = generatorHealth;
+    }
+    
+    /**
+     * Results for one request of a scenario.
+     */
+    public static class Endpoint {
+        private final String name;
+        private final long requests;
+        private final long failedRequests;
+        private final LatencySummary responseTimes;
+        
+        public Endpoint(String name, long requests, long failedRequests, LatencySummary responseTimes) {
+            this.name = name;
+            this.requests = requests;
+            this.failedRequests = failedRequests;
+            this.responseTimes = responseTimes;
+        }
+        
+        public String getName() { return name; }
+        public long getRequests() { return requests; }
+        public long getFailedRequests() { return failedRequests; }
+        public LatencySummary getResponseTimes() { return responseTimes; }
+    }
+    
+    /**
+     * Count of one type of request exception.
+     */
+    public static class ErrorType {
+        private final String type;
+        private final long count;
+        private final long firstSeenMs;
+        private final String firstMessage;
+        
+        public ErrorType(String type, long count, long firstSeenMs, String firstMessage) {
+            this.type = type;
+            this.count = count;
+            this.firstSeenMs = firstSeenMs;
+            this.firstMessage = firstMessage;
+        }
+        
+        /** Exception class and its {@link ErrorClass}, e.g. {@code SocketTimeoutException (TIMEOUT)}. */
+        public String getType() { return type; }
+        public long getCount() { return count; }
+        /** Milliseconds from the start of the test until the first occurrence. */
+        public long getFirstSeenMs() { return firstSeenMs; }
+        /** Message of the first occurrence, or null. */
+        public String getFirstMessage() { return firstMessage; }
+    }
+    
+    /**
+     * Results for one stage of a load profile, from the requests completed during it.
+     */
+    public static class StageResult {
+        private final String name;
+        private final long startSecond;
+        private final long durationSeconds;
+        private final long requests;
+        private final long errors;
+        private final LatencySummary responseTimes;
+        
+        public StageResult(String name, long startSecond, long durationSeconds, long requests, long errors,
+                           LatencySummary responseTimes) {
+            this.name = name;
+            this.startSecond = startSecond;
+            this.durationSeconds = durationSeconds;
+            this.requests = requests;
+            this.errors = errors;
+            this.responseTimes = responseTimes;
+        }
+        
+        public String getName() { return name; }
+        public long getStartSecond() { return startSecond; }
+        public long getDurationSeconds() { return durationSeconds; }
+        public long getRequests() { return requests; }
+        public long getErrors() { return errors; }
+        public double getTps() { return durationSeconds > 0 ? (double) requests / durationSeconds : 0.0; }
+        /** Response times at per-second histogram precision, or null if the stage saw no requests. */
+        public LatencySummary getResponseTimes() { return responseTimes; }
+    }
+    
+    /**
+     * Resource usage and scheduling stalls of the load generator process during the run.
+     */
+    public static class GeneratorHealth {
+        private final int cores;
+        private final double meanCpuPercent;
+        private final double peakCpuPercent;
+        private final long gcPauses;
+        private final long gcPauseMillis;
+        private final long maxGcPauseMillis;
+        private final double gcPausePercent;
+        private final long peakHeapBytes;
+        private final long peakHeapAfterGcBytes;
+        private final long maxHeapBytes;
+        private final LatencySummary hiccups;
+        private final List<String> saturationReasons;
+        
+        public GeneratorHealth(int cores, double meanCpuPercent, double peakCpuPercent, long gcPauses, long gcPauseMillis,
+                               long maxGcPauseMillis, double gcPausePercent, long peakHeapBytes, long peakHeapAfterGcBytes,
+                               long maxHeapBytes,
+                               LatencySummary hiccups, List<String> saturationReasons) {
+            this.cores = cores;
+            this.meanCpuPercent = meanCpuPercent;
+            this.peakCpuPercent = peakCpuPercent;
+            this.gcPauses = gcPauses;
+            this.gcPauseMillis = gcPauseMillis;
+            this.maxGcPauseMillis = maxGcPauseMillis;
+            this.gcPausePercent = gcPausePercent;
+            this.peakHeapBytes = peakHeapBytes;
+            this.peakHeapAfterGcBytes = peakHeapAfterGcBytes;
+            this.maxHeapBytes = maxHeapBytes;
+            this.hiccups = hiccups;
+            this.saturationReasons = saturationReasons;
+        }
+        
+        public int getCores() { return cores; }
+        /** Process CPU over the run as a share of all cores, or -1 if the JVM does not report it. */
+        public double getMeanCpuPercent() { return meanCpuPercent; }
+        /** Busiest one-second sample of process CPU, or -1 if none was taken. */
+        public double getPeakCpuPercent() { return peakCpuPercent; }
+        public long getGcPauses() { return gcPauses; }
+        public long getGcPauseMillis() { return gcPauseMillis; }
+        public long getMaxGcPauseMillis() { return maxGcPauseMillis; }
+        /** Share of the run's wall time spent in GC pauses. */
+        public double getGcPausePercent() { return gcPausePercent; }
+        public long getPeakHeapBytes() { return peakHeapBytes; }
+        /** Most heap still in use after a collection, roughly the live set; 0 if none ran. */
+        public long getPeakHeapAfterGcBytes() { return peakHeapAfterGcBytes; }
+        /** Maximum heap size, or -1 if undefined. */
+        public long getMaxHeapBytes() { return maxHeapBytes; }
+        /** How much later than scheduled a thread sleeping in a loop woke up. */
+        public LatencySummary getHiccups() { return hiccups; }
+        /** Thresholds the run exceeded; empty unless the generator was saturated. */
+        public List<String> getSaturationReasons() { return saturationReasons; }
+        public boolean isSaturated() { return !saturationReasons.isEmpty(); }
+    }
+}
@@ -0,0 +1,43 @@
+package com.metrics.light;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for absolute {@link System#nanoTime()} deadlines.
+ *
+ * Waiting for a deadline rather than sleeping for a duration keeps a late wake-up from
+ * pushing every later send back, and parking leaves the last stretch to a spin so that
+ * sends land within microseconds of their deadline instead of the timer slack of a park.
+ */
+final class Pacer {
+    // Parks usually overshoot by tens of microseconds; the remainder below this is spun
+    static final long SPIN_THRESHOLD_NANOS = 100_000;
+    // Longest single park, so a stop request is noticed promptly during long pauses
+    private static final long MAX_PARK_NANOS = 10_000_000;
+
+    private Pacer() {
+    }
+
+    /**
+     * Waits until the deadline or until {@code stop} is set.
+     *
+     * @param spin whether to spin for the final stretch; virtual threads should not, as a
+     *             spin holds their carrier thread
+     * @return false if stopped before the deadline
+     */
+    static boolean awaitDeadline(long deadlineNanos, AtomicBoolean stop, boolean spin) {
+        long spinFrom = spin ? SPIN_THRESHOLD_NANOS : 0;
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > spinFrom) {
+            if (stop.get()) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(remaining - spinFrom, MAX_PARK_NANOS));
+        }
+        while (deadlineNanos - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+        return !stop.get();
+    }
+}
@@ -0,0 +1,158 @@
+package com.metrics.light;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Target arrival rate over time for the open-model (constant arrival rate) load mode.
+ *
+ * The schedule starts at a base rate and then moves through ramp stages, each changing
+ * the rate linearly to its target over its duration. After the last stage the final
+ * target rate is held until the test ends.
+ */
+public class RateSchedule {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long IDLE_STEP_NANOS = 1_000_000L;
+
+    private final double startRate;
+    private final List<Stage> stages;
+
+    public RateSchedule(double startRate, List<Stage> stages) {
+        this.startRate = startRate;
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+
+    /**
+     * Parses a stage list such as {@code "30s:100,2m:500,30s:0"}: each entry ramps to the
+     * given requests per second over the given duration (plain numbers are seconds).
+     */
+    public static RateSchedule parse(double startRate, String spec) {
+        List<Stage> stages = new ArrayList<>();
+        if (spec != null && !spec.trim().isEmpty()) {
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid rate stage '" + entry.trim() + "', expected <duration>:<rps>");
+                }
+                long durationSeconds = parseDurationSeconds(parts[0].trim());
+                double target = Double.parseDouble(parts[1].trim());
+                if (durationSeconds <= 0 || target < 0) {
+                    throw new IllegalArgumentException("Invalid rate stage '" + entry.trim() + "'");
+                }
+                stages.add(new Stage(durationSeconds, target));
+            }
+        }
+        return new RateSchedule(startRate, stages);
+    }
+
+    static long parseDurationSeconds(String value) {
+        String lower = value.toLowerCase();
+        if (lower.endsWith("h")) {
+            return Long.parseLong(lower.substring(0, lower.length() - 1)) * 3600;
+        }
+        if (lower.endsWith("m")) {
+            return Long.parseLong(lower.substring(0, lower.length() - 1)) * 60;
+        }
+        if (lower.endsWith("s")) {
+            return Long.parseLong(lower.substring(0, lower.length() - 1));
+        }
+        return Long.parseLong(lower);
+    }
+
+    /**
+     * Returns the target rate in requests per second at the given offset from the test start.
+     */
+    public double rateAt(long elapsedNanos) {
+        double rate = startRate;
+        long stageStart = 0;
+        for (Stage stage : stages) {
+            long stageLength = stage.getDurationSeconds() * NANOS_PER_SECOND;
+            if (elapsedNanos < stageStart + stageLength) {
+                double progress = (double) (elapsedNanos - stageStart) / stageLength;
+                return rate + (stage.getTargetRate() - rate) * progress;
+            }
+            rate = stage.getTargetRate();
+            stageStart += stageLength;
+        }
+        return rate;
+    }
+
+    /**
+     * Returns the offset of the arrival following the one at {@code previousNanos}, skipping
+     * over periods where the target rate is zero, or -1 if no further arrivals are due before
+     * {@code limitNanos}.
+     */
+    public long nextArrival(long previousNanos, long limitNanos) {
+        long time = previousNanos;
+        while (time < limitNanos) {
+            double rate = rateAt(time);
+            if (rate > 0) {
+                return time + Math.max(1, (long) (NANOS_PER_SECOND / rate));
+            }
+            time += IDLE_STEP_NANOS;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns this schedule with every rate multiplied by the given factor, for splitting
+     * a target rate across several load generators.
+     */
+    public RateSchedule scaled(double factor) {
+        List<Stage> scaledStages = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            scaledStages.add(new Stage(stage.getDurationSeconds(), stage.getTargetRate() * factor));
+        }
+        return new RateSchedule(startRate * factor, scaledStages);
+    }
+
+    /**
+     * Returns the highest rate the schedule reaches.
+     */
+    public double getPeakRate() {
+        double peak = startRate;
+        for (Stage stage : stages) {
+            peak = Math.max(peak, stage.getTargetRate());
+        }
+        return peak;
+    }
+
+    public double getStartRate() {
+        return startRate;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder(String.format("%.1f req/s", startRate));
+        for (Stage stage : stages) {
+            description.append(String.format(" -> %.1f req/s over %ds", stage.getTargetRate(), stage.getDurationSeconds()));
+        }
+        return description.toString();
+    }
+
+    /**
+     * A linear ramp to a target rate over a fixed duration.
+     */
+    public static class Stage {
+        private final long durationSeconds;
+        private final double targetRate;
+
+        public Stage(long durationSeconds, double targetRate) {
+            this.durationSeconds = durationSeconds;
+            this.targetRate = targetRate;
+        }
+
+        public long getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public double getTargetRate() {
+            return targetRate;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.metrics.light;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes a metrics report in machine-readable formats for pipelines.
+ *
+ * The JSON export carries every section of the report plus the full response time
+ * histogram, encoded with {@link LatencyHistogram#encode}, so a later run can be compared
+ * against it distribution to distribution rather than from rounded summary numbers. The
+ * CSV export has one row per scope (the whole run, each endpoint, each stage), and the
+ * histogram export is a percentile distribution in the HdrHistogram {@code .hgrm} text
+ * layout, readable by the usual plotting tools.
+ */
+public class ReportExporter {
+    static final String HISTOGRAM_FIELD = "responseTimeHistogram";
+    private static final int TICKS_PER_HALF_DISTANCE = 5;
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public static void writeJson(MetricsReport report, Path path) throws IOException {
+        JSON.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), toJson(report));
+    }
+
+    static ObjectNode toJson(MetricsReport report) throws IOException {
+        ObjectNode root = JSON.createObjectNode();
+        root.put("totalRequests", report.getTotalRequests());
+        root.put("successfulRequests", report.getSuccessfulRequests());
+        root.put("failedRequests", report.getFailedRequests());
+        root.put("successRatePercent", report.getSuccessRate());
+        root.put("assertionFailures", report.getAssertionFailures());
+        root.put("averageTps", report.getAverageTps());
+        root.put("maxTps", report.getMaxTps());
+        root.put("tpsStandardDeviation", report.getTpsStandardDeviation());
+        root.put("bytesReceived", report.getBytesReceived());
+        root.put("throughputMbPerSecond", report.getThroughputMbPerSecond());
+        root.set("responseTimes", summary(report.getResponseTimes()));
+        if (report.getSuccessResponseTimes() != null) {
+            root.set("successResponseTimes", summary(report.getSuccessResponseTimes()));
+        }
+        if (report.getFailureResponseTimes() != null) {
+            root.set("failureResponseTimes", summary(report.getFailureResponseTimes()));
+        }
+        if (report.isOpenModel()) {
+            root.set("uncorrectedResponseTimes", summary(report.getUncorrectedResponseTimes()));
+            root.put("lateRequests", report.getLateRequests());
+            root.put("droppedRequests", report.getDroppedRequests());
+        }
+
+        ObjectNode statuses = root.putObject("statusCodes");
+        for (Map.Entry<Integer, Long> status : report.getStatusCounts().entrySet()) {
+            statuses.put(String.valueOf(status.getKey()), status.getValue());
+        }
+        ArrayNode errors = root.putArray("errors");
+        for (MetricsReport.ErrorType error : report.getErrorTypes()) {
+            ObjectNode node = errors.addObject();
+            node.put("type", error.getType());
+            node.put("count", error.getCount());
+            node.put("firstSeenMs", error.getFirstSeenMs());
+            node.put("firstMessage", error.getFirstMessage());
+        }
+
+        if (!report.getConnectionPhases().isEmpty()) {
+            ObjectNode phases = root.putObject("connectionPhases");
+            for (Map.Entry<RequestPhase, LatencySummary> phase : report.getConnectionPhases().entrySet()) {
+                phases.set(phase.getKey().name(), summary(phase.getValue()));
+            }
+            root.put("timedRequests", report.getTimedRequests());
+            root.put("newConnections", report.getNewConnections());
+        }
+        MetricsReport.GeneratorHealth health = report.getGeneratorHealth();
+        if (health != null) {
+            ObjectNode node = root.putObject("generatorHealth");
+            node.put("saturated", health.isSaturated());
+            ArrayNode reasons = node.putArray("saturationReasons");
+            for (String reason : health.getSaturationReasons()) {
+                reasons.add(reason);
+            }
+            node.put("cores", health.getCores());
+            node.put("meanCpuPercent", health.getMeanCpuPercent());
+            node.put("peakCpuPercent", health.getPeakCpuPercent());
+            node.put("gcPauses", health.getGcPauses());
+            node.put("gcPauseMs", health.getGcPauseMillis());
+            node.put("maxGcPauseMs", health.getMaxGcPauseMillis());
+            node.put("gcPausePercent", health.getGcPausePercent());
+            node.put("peakHeapBytes", health.getPeakHeapBytes());
+            node.put("peakHeapAfterGcBytes", health.getPeakHeapAfterGcBytes());
+            node.put("maxHeapBytes", health.getMaxHeapBytes());
+            node.set("hiccups", summary(health.getHiccups()));
+        }
+        ArrayNode endpoints = root.putArray("endpoints");
+        for (MetricsReport.Endpoint endpoint : report.getEndpoints()) {
+            ObjectNode node = endpoints.addObject();
+            node.put("name", endpoint.getName());
+            node.put("requests", endpoint.getRequests());
+            node.put("failedRequests", endpoint.getFailedRequests());
+            node.set("responseTimes", summary(endpoint.getResponseTimes()));
+        }
+        ArrayNode stages = root.putArray("stages");
+        for (MetricsReport.StageResult stage : report.getStages()) {
+            ObjectNode node = stages.addObject();
+            node.put("name", stage.getName());
+            node.put("startSecond", stage.getStartSecond());
+            node.put("durationSeconds", stage.getDurationSeconds());
+            node.put("requests", stage.getRequests());
+            node.put("errors", stage.getErrors());
+            node.put("tps", stage.getTps());
+            if (stage.getResponseTimes() != null) {
+                node.set("responseTimes", summary(stage.getResponseTimes()));
+            }
+        }
+        ArrayNode timeline = root.putArray("timeline");
+        for (ThroughputTimeline.Interval interval : report.getTimeline()) {
+            ObjectNode node = timeline.addObject();
+            node.put("second", interval.getSecond());
+            node.put("requests", interval.getRequests());
+            node.put("errors", interval.getErrors());
+            if (interval.getResponseTimes() != null) {
+                node.put("p99Ms", interval.getResponseTimes().getP99());
+            }
+        }
+
+        if (report.getResponseTimeHistogram() != null) {
+            root.put(HISTOGRAM_FIELD, encode(report.getResponseTimeHistogram()));
+        }
+        return root;
+    }
+
+    private static ObjectNode summary(LatencySummary summary) {
+        ObjectNode node = JSON.createObjectNode();
+        node.put("count", summary.getCount());
+        node.put("p50Ms", summary.getP50());
+        node.put("p75Ms", summary.getP75());
+        node.put("p90Ms", summary.getP90());
+        node.put("p99Ms", summary.getP99());
+        node.put("p99_9Ms", summary.getP99_9());
+        node.put("p99_99Ms", summary.getP99_99());
+        node.put("minMs", summary.getMin());
+        node.put("maxMs", summary.getMax());
+        node.put("meanMs", summary.getMean());
+        return node;
+    }
+
+    /**
+     * Reads the response time histogram back from a file written by {@link #writeJson}.
+     */
+    public static LatencyHistogram readHistogram(Path path) throws IOException {
+        JsonNode root = JSON.readTree(path.toFile());
+        JsonNode encoded = root != null ? root.get(HISTOGRAM_FIELD) : null;
+        if (encoded == null || !encoded.isTextual()) {
+            throw new IllegalArgumentException(path + " has no " + HISTOGRAM_FIELD
+                    + "; baselines must be JSON reports written with --export-json");
+        }
+        byte[] bytes = Base64.getDecoder().decode(encoded.asText());
+        return LatencyHistogram.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static String encode(LatencyHistogram histogram) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.encode(new DataOutputStream(bytes));
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Writes one row for the whole run, then one per endpoint and per load profile stage.
+     */
+    public static void writeCsv(MetricsReport report, Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+             PrintWriter out = new PrintWriter(writer)) {
+            out.println("scope,name,requests,failed,tps,p50_ms,p75_ms,p90_ms,p99_ms,p99_9_ms,p99_99_ms,min_ms,max_ms,mean_ms");
+            csvRow(out, "total", "", report.getTotalRequests(), report.getFailedRequests(),
+                    report.getAverageTps(), report.getResponseTimes());
+            for (MetricsReport.Endpoint endpoint : report.getEndpoints()) {
+                csvRow(out, "endpoint", endpoint.getName(), endpoint.getRequests(), endpoint.getFailedRequests(),
+                        Double.NaN, endpoint.getResponseTimes());
+            }
+            for (MetricsReport.StageResult stage : report.getStages()) {
+                csvRow(out, "stage", stage.getName(), stage.getRequests(), stage.getErrors(),
+                        stage.getTps(), stage.getResponseTimes());
+            }
+        }
+    }
+
+    private static void csvRow(PrintWriter out, String scope, String name, long requests, long failed,
+                               double tps, LatencySummary times) {
+        StringBuilder row = new StringBuilder();
+        row.append(scope).append(',').append(csvField(name)).append(',').append(requests).append(',').append(failed)
+                .append(',').append(Double.isNaN(tps) ? "" : format(tps));
+        if (times != null) {
+            for (double value : new double[] {times.getP50(), times.getP75(), times.getP90(), times.getP99(),
+                    times.getP99_9(), times.getP99_99(), times.getMin(), times.getMax(), times.getMean()}) {
+                row.append(',').append(format(value));
+            }
+        } else {
+            row.append(",,,,,,,,,");
+        }
+        out.println(row);
+    }
+
+    private static String csvField(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Writes the percentile distribution of a histogram in milliseconds, with reporting ticks
+     * that get denser towards the tail as HdrHistogram's {@code outputPercentileDistribution}
+     * does.
+     */
+    public static void writeHistogram(LatencyHistogram histogram, Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+             PrintWriter out = new PrintWriter(writer)) {
+            out.println("       Value     Percentile TotalCount 1/(1-Percentile)");
+            out.println();
+            long total = histogram.getTotalCount();
+            if (total > 0) {
+                double percentile = 0.0;
+                while (true) {
+                    long value = histogram.getValueAtPercentile(percentile);
+                    long countAtValue = histogram.getCountAtOrBelow(value);
+                    if (countAtValue >= total) {
+                        break;
+                    }
+                    out.printf(Locale.ROOT, "%12.3f %1.12f %10d %14.2f%n", LatencySummary.toMillis(value),
+                            percentile / 100.0, countAtValue, 1.0 / (1.0 - percentile / 100.0));
+                    long halvings = (long) (Math.log(100.0 / (100.0 - percentile)) / Math.log(2)) + 1;
+                    percentile += 100.0 / (TICKS_PER_HALF_DISTANCE * Math.pow(2, halvings));
+                }
+                out.printf(Locale.ROOT, "%12.3f %1.12f %10d%n", LatencySummary.toMillis(histogram.getMaxValue()), 1.0, total);
+            }
+            out.printf(Locale.ROOT, "#[Mean    = %12.3f, Total count    = %12d]%n",
+                    histogram.getMean() / 1_000_000.0, total);
+            out.printf(Locale.ROOT, "#[Max     = %12.3f, Significant digits = %d]%n",
+                    LatencySummary.toMillis(histogram.getMaxValue()), histogram.getSignificantDigits());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.metrics.light;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a metrics report as human-readable text.
+ */
+public class ReportPrinter {
+    public static void print(MetricsReport report, PrintStream out) {
+        out.printf("Total Requests: %d%n", report.getTotalRequests());
+        out.printf("Successful Requests: %d%n", report.getSuccessfulRequests());
+        out.printf("Failed Requests: %d%n", report.getFailedRequests());
+        out.printf("Success Rate: %.2f%%%n", report.getSuccessRate());
+        if (report.getAssertionFailures() > 0) {
+            out.printf("Assertion Failures: %d%n", report.getAssertionFailures());
+        }
+        if (!report.getStatusCounts().isEmpty()) {
+            StringBuilder statuses = new StringBuilder();
+            for (Map.Entry<Integer, Long> entry : report.getStatusCounts().entrySet()) {
+                if (statuses.length() > 0) {
+                    statuses.append(", ");
+                }
+                statuses.append(entry.getKey() == 0 ? "invalid" : entry.getKey()).append(": ").append(entry.getValue());
+            }
+            out.println("Status Codes: " + statuses);
+        }
+        out.println();
+        
+        out.printf("Average TPS: %.2f%n", report.getAverageTps());
+        out.printf("Maximum TPS: %.2f%n", report.getMaxTps());
+        out.printf("TPS Standard Deviation: %.2f%n", report.getTpsStandardDeviation());
+        if (report.getBytesReceived() > 0) {
+            out.printf("Bytes Received: %d (%.2f MB/s)%n", report.getBytesReceived(), report.getThroughputMbPerSecond());
+        }
+        out.println();
+        
+        out.printf("Response Time P75: %.2f ms%n", report.getP75());
+        out.printf("Response Time P90: %.2f ms%n", report.getP90());
+        out.printf("Response Time P99: %.2f ms%n", report.getP99());
+        out.printf("Response Time P99.9: %.2f ms%n", report.getP99_9());
+        out.printf("Response Time P99.99: %.2f ms%n", report.getP99_99());
+        out.println();
+        
+        out.printf("Min Response Time: %.2f ms%n", report.getMinResponseTime());
+        out.printf("Max Response Time: %.2f ms%n", report.getMaxResponseTime());
+        out.printf("Average Response Time: %.2f ms%n", report.getAverageResponseTime());
+        printGeneratorHealth(report, out);
+        printPerSecondPercentiles(report, out);
+        printEndpoints(report, out);
+        printStages(report, out);
+        printErrorBreakdown(report, out);
+        printConnectionPhases(report, out);
+        
+        if (report.isOpenModel()) {
+            LatencySummary uncorrected = report.getUncorrectedResponseTimes();
+            out.println();
+            out.println("Response times above are measured from each request's intended send time.");
+            out.println("Uncorrected (measured from actual send time):");
+            out.printf("  P75: %.2f ms, P90: %.2f ms, P99: %.2f ms, P99.9: %.2f ms, P99.99: %.2f ms%n",
+                    uncorrected.getP75(), uncorrected.getP90(), uncorrected.getP99(),
+                    uncorrected.getP99_9(), uncorrected.getP99_99());
+            out.printf("  Min: %.2f ms, Max: %.2f ms, Average: %.2f ms%n",
+                    uncorrected.getMin(), uncorrected.getMax(), uncorrected.getMean());
+            out.printf("Late Sends (> %d ms behind schedule): %d%n",
+                    TimeUnit.NANOSECONDS.toMillis(LoadTestExecutor.LATE_THRESHOLD_NANOS), report.getLateRequests());
+            out.printf("Dropped Sends (concurrency exhausted): %d%n", report.getDroppedRequests());
+        }
+    }
+    
+    private static void printEndpoints(MetricsReport report, PrintStream out) {
+        if (report.getEndpoints().isEmpty()) {
+            return;
+        }
+        
+        out.println();
+        out.println("Per-Endpoint Results:");
+        out.printf("  %-24s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Endpoint", "Requests", "Errors", "P50 ms", "P90 ms", "P99 ms", "P99.9 ms", "Max ms");
+        for (MetricsReport.Endpoint endpoint : report.getEndpoints()) {
+            LatencySummary times = endpoint.getResponseTimes();
+            out.printf("  %-24s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    endpoint.getName(), endpoint.getRequests(), endpoint.getFailedRequests(),
+                    times.getP50(), times.getP90(), times.getP99(), times.getP99_9(), times.getMax());
+        }
+    }
+    
+    private static void printStages(MetricsReport report, PrintStream out) {
+        if (report.getStages().isEmpty()) {
+            return;
+        }
+        
+        out.println();
+        out.println("Per-Stage Results:");
+        out.printf("  %-20s %-13s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Stage", "Time", "Requests", "Errors", "TPS", "P50 ms", "P90 ms", "P99 ms", "Max ms");
+        for (MetricsReport.StageResult stage : report.getStages()) {
+            String range = String.format("%ds-%ds", stage.getStartSecond(), stage.getStartSecond() + stage.getDurationSeconds());
+            LatencySummary times = stage.getResponseTimes();
+            if (times == null) {
+                out.printf("  %-20s %-13s %10d %8d %10.2f%n", stage.getName(), range, 0, 0, 0.0);
+                continue;
+            }
+            out.printf("  %-20s %-13s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    stage.getName(), range, stage.getRequests(), stage.getErrors(), stage.getTps(),
+                    times.getP50(), times.getP90(), times.getP99(), times.getMax());
+        }
+    }
+    
+    private static void printErrorBreakdown(MetricsReport report, PrintStream out) {
+        LatencySummary successes = report.getSuccessResponseTimes();
+        LatencySummary failures = report.getFailureResponseTimes();
+        if (failures != null) {
+            out.println();
+            out.println("Response Times by Outcome:");
+            out.printf("  %-12s %10s %10s %10s %10s %10s %10s%n",
+                    "Outcome", "Requests", "P50 ms", "P90 ms", "P99 ms", "P99.9 ms", "Max ms");
+            if (successes != null) {
+                out.printf("  %-12s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", "Successful", successes.getCount(),
+                        successes.getP50(), successes.getP90(), successes.getP99(), successes.getP99_9(), successes.getMax());
+            }
+            out.printf("  %-12s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", "Failed", failures.getCount(),
+                    failures.getP50(), failures.getP90(), failures.getP99(), failures.getP99_9(), failures.getMax());
+        }
+        
+        if (!report.getErrorTypes().isEmpty()) {
+            out.println();
+            out.println("Errors by Exception:");
+            for (MetricsReport.ErrorType error : report.getErrorTypes()) {
+                out.printf("  %-40s %10d  first at %.1fs%s%n", error.getType(), error.getCount(),
+                        error.getFirstSeenMs() / 1000.0,
+                        error.getFirstMessage() != null ? ": " + error.getFirstMessage() : "");
+            }
+        }
+    }
+    
+    private static void printGeneratorHealth(MetricsReport report, PrintStream out) {
+        MetricsReport.GeneratorHealth health = report.getGeneratorHealth();
+        if (health == null) {
+            return;
+        }
+        
+        LatencySummary hiccups = health.getHiccups();
+        out.println();
+        out.println("Load Generator Health:");
+        out.printf("  Hiccups P50: %.2f ms, P90: %.2f ms, P99: %.2f ms, P99.9: %.2f ms, Max: %.2f ms%n",
+                hiccups.getP50(), hiccups.getP90(), hiccups.getP99(), hiccups.getP99_9(), hiccups.getMax());
+        if (health.getMeanCpuPercent() >= 0) {
+            out.printf("  Process CPU: %.1f%% average, %.1f%% peak of %d cores%n",
+                    health.getMeanCpuPercent(), Math.max(0, health.getPeakCpuPercent()), health.getCores());
+        }
+        out.printf("  GC Pauses: %d, %d ms total (%.2f%% of the run), %d ms max%n", health.getGcPauses(),
+                health.getGcPauseMillis(), health.getGcPausePercent(), health.getMaxGcPauseMillis());
+        out.printf("  Heap: %.1f MB peak, %.1f MB peak after GC%s%n", health.getPeakHeapBytes() / 1048576.0,
+                health.getPeakHeapAfterGcBytes() / 1048576.0,
+                health.getMaxHeapBytes() > 0 ? String.format(" of %.1f MB", health.getMaxHeapBytes() / 1048576.0) : "");
+        if (health.isSaturated()) {
+            out.println("WARNING: generator saturated, response times may include load generator delays:");
+            for (String reason : health.getSaturationReasons()) {
+                out.println("  - " + reason);
+            }
+        }
+    }
+    
+    private static void printConnectionPhases(MetricsReport report, PrintStream out) {
+        if (report.getConnectionPhases().isEmpty()) {
+            return;
+        }
+        
+        out.println();
+        out.println("Request Phases:");
+        out.printf("  %-20s %10s %10s %10s %10s %10s %10s%n",
+                "Phase", "Count", "Mean ms", "P50 ms", "P90 ms", "P99 ms", "Max ms");
+        for (Map.Entry<RequestPhase, LatencySummary> entry : report.getConnectionPhases().entrySet()) {
+            LatencySummary times = entry.getValue();
+            out.printf("  %-20s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey().getDisplayName(), times.getCount(), times.getMean(),
+                    times.getP50(), times.getP90(), times.getP99(), times.getMax());
+        }
+        long newConnections = report.getNewConnections();
+        out.printf("New Connections: %d (%.2f%% of requests reused a pooled connection)%n", newConnections,
+                100.0 * (report.getTimedRequests() - newConnections) / report.getTimedRequests());
+    }
+    
+    private static void printPerSecondPercentiles(MetricsReport report, PrintStream out) {
+        List<Double> p99s = new ArrayList<>();
+        int worstSecond = -1;
+        double worstP99 = -1;
+        for (ThroughputTimeline.Interval interval : report.getTimeline()) {
+            if (interval.getResponseTimes() != null) {
+                double p99 = interval.getResponseTimes().getP99();
+                p99s.add(p99);
+                if (p99 > worstP99) {
+                    worstP99 = p99;
+                    worstSecond = (int) interval.getSecond();
+                }
+            }
+        }
+        if (p99s.isEmpty()) {
+            return;
+        }
+        Collections.sort(p99s);
+        
+        out.println();
+        out.printf("Per-Second P99: min %.2f ms, median %.2f ms, max %.2f ms (worst at second %d)%n",
+                p99s.get(0), p99s.get(p99s.size() / 2), p99s.get(p99s.size() - 1), worstSecond);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.metrics.light;
+
+/**
+ * Parts of a request's response time that are timed separately.
+ */
+public enum RequestPhase {
+    /** Rendering the request from its template, on the load generator. */
+    BUILD("Request Build"),
+    /** Waiting for a connection from the pool. */
+    POOL_WAIT("Pool Wait"),
+    /** Resolving the host name for a new connection. */
+    DNS("DNS Lookup"),
+    /** Opening a new TCP connection (excluding the DNS lookup and TLS handshake). */
+    CONNECT("Connect"),
+    /** TLS handshake on a new connection. */
+    TLS("TLS Handshake"),
+    /** Writing the request head and body to the connection, until the last flush. */
+    WRITE("Request Write"),
+    /** From starting to send the request until the response head has been received. */
+    TTFB("Time to First Byte"),
+    /** Reading the response body, from the response head to its last byte. */
+    BODY("Body Read"),
+    /** From starting to send the request until the whole body has been read. */
+    TTLB("Time to Last Byte");
+    
+    private final String displayName;
+    
+    RequestPhase(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
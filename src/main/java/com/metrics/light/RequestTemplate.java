@@ -0,0 +1,339 @@
+package com.metrics.light;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.message.BasicHeader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request compiled once from a curl command and rendered for every request sent.
+ *
+ * The curl command is parsed a single time; the URL, header values and body are split into
+ * static segments and placeholder slots (such as {uuid}), and everything that does not
+ * contain a placeholder is prebuilt: the method, the URI and the static headers.
+ */
+public class RequestTemplate {
+    static final ContentType BODY_CONTENT_TYPE = ContentType.create("text/plain", StandardCharsets.UTF_8);
+
+    private final RequestDetails details;
+    private final Method method;
+    private final TemplateString url;
+    private final URI staticUri;
+    private final Header[] staticHeaders;
+    private final String[] dynamicHeaderNames;
+    private final TemplateString[] dynamicHeaderValues;
+    private final TemplateString body;
+    // Pre-encoded payloads handed out in turn instead of rendering; never modified once built
+    private volatile byte[][] bodyPool;
+
+    private RequestTemplate(RequestDetails details) {
+        this.details = details;
+        this.method = resolveMethod(details.getMethod());
+        this.url = TemplateString.compile(details.getUrl());
+        this.staticUri = url.isStatic() ? URI.create(url.render(null)) : null;
+
+        List<Header> fixed = new ArrayList<>();
+        List<String> dynamicNames = new ArrayList<>();
+        List<TemplateString> dynamicValues = new ArrayList<>();
+        for (Map.Entry<String, String> entry : details.getHeaders().entrySet()) {
+            TemplateString value = TemplateString.compile(entry.getValue());
+            if (value.isStatic()) {
+                fixed.add(new BasicHeader(entry.getKey(), value.render(null)));
+            } else {
+                dynamicNames.add(entry.getKey());
+                dynamicValues.add(value);
+            }
+        }
+        this.staticHeaders = fixed.toArray(new Header[0]);
+        this.dynamicHeaderNames = dynamicNames.toArray(new String[0]);
+        this.dynamicHeaderValues = dynamicValues.toArray(new TemplateString[0]);
+
+        // Only methods that carry a payload get a body, as with the original request builder
+        boolean bodyAllowed = method == Method.POST || method == Method.PUT || method == Method.PATCH;
+        this.body = details.getBody() != null && bodyAllowed ? TemplateString.compile(details.getBody()) : null;
+        if (body != null && body.isStatic()) {
+            this.bodyPool = new byte[][] {body.staticBytes()};
+        }
+    }
+
+    public static RequestTemplate compile(String curlCommand) {
+        return new RequestTemplate(CurlCommandParser.parse(curlCommand));
+    }
+
+    public static RequestTemplate compile(RequestDetails details) {
+        return new RequestTemplate(details);
+    }
+
+    private static Method resolveMethod(String name) {
+        String normalized = name.toUpperCase();
+        switch (normalized) {
+            case "GET":
+            case "POST":
+            case "PUT":
+            case "DELETE":
+            case "PATCH":
+            case "HEAD":
+            case "OPTIONS":
+                return Method.valueOf(normalized);
+            default:
+                throw new IllegalArgumentException("Unsupported HTTP method: " + name);
+        }
+    }
+
+    public RequestDetails getDetails() {
+        return details;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public URI renderUri(RenderBuffer buffer) {
+        return staticUri != null ? staticUri : URI.create(url.render(buffer));
+    }
+
+    public boolean isSecure() {
+        return url.getRaw().regionMatches(true, 0, "https://", 0, 8);
+    }
+
+    /**
+     * Sets the prebuilt static headers and the rendered dynamic headers on a request.
+     */
+    public void applyHeaders(HttpRequest request, RenderBuffer buffer) {
+        request.setHeaders(staticHeaders);
+        for (int i = 0; i < dynamicHeaderNames.length; i++) {
+            request.setHeader(dynamicHeaderNames[i], dynamicHeaderValues[i].render(buffer));
+        }
+    }
+
+    /**
+     * Adds the user's cookies to the request, after any cookies of the curl command.
+     */
+    void applyCookies(HttpRequest request, UserSession session) {
+        String cookies = session.cookies();
+        if (cookies == null) {
+            return;
+        }
+        Header existing = request.getFirstHeader(HttpHeaders.COOKIE);
+        request.setHeader(HttpHeaders.COOKIE, existing != null ? existing.getValue() + "; " + cookies : cookies);
+    }
+
+    public boolean hasBody() {
+        return body != null;
+    }
+
+    /**
+     * Renders the body and returns its length in bytes; {@link RenderBuffer#body()} then holds
+     * the encoded body. With a payload pool this only moves to the buffer's next payload.
+     */
+    public int renderBody(RenderBuffer buffer) {
+        byte[][] pool = bodyPool;
+        if (pool != null) {
+            byte[] payload = pool[buffer.nextPooled(pool.length)];
+            buffer.body = payload;
+            return payload.length;
+        }
+        int length = body.renderBytes(buffer);
+        buffer.body = buffer.bytes;
+        return length;
+    }
+
+    /**
+     * Returns whether rendered bodies are shared, immutable payloads rather than the render
+     * buffer's scratch bytes, so they can be handed to a request without copying.
+     */
+    public boolean isBodyPooled() {
+        return bodyPool != null;
+    }
+
+    /**
+     * Renders {@code size} bodies up front, each with fresh placeholder values, and cycles
+     * through them for every later request.
+     *
+     * Placeholders in the body then repeat every {@code size} requests, so values that must
+     * be unique per request, such as {uuid}, belong in the URL or headers instead.
+     *
+     * @return the total size of the pooled payloads in bytes, or -1 if the body has no
+     *         placeholders and is always sent as encoded at compile time
+     */
+    public long prerenderBodies(int size) {
+        if (body == null || body.isStatic()) {
+            return -1;
+        }
+        byte[][] pool = new byte[size][];
+        RenderBuffer buffer = new RenderBuffer();
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            buffer.begin();
+            try {
+                pool[i] = Arrays.copyOf(buffer.bytes, body.renderBytes(buffer));
+            } catch (Feeder.ExhaustedException e) {
+                throw new IllegalArgumentException(e.getMessage() + " while pre-rendering " + size + " bodies");
+            }
+            total += pool[i].length;
+        }
+        bodyPool = pool;
+        return total;
+    }
+
+    /**
+     * Per-thread scratch space reused across rendered requests.
+     *
+     * Call {@link #begin()} before rendering the parts of a new request so that every
+     * placeholder in that request sees the same generated values.
+     */
+    public static final class RenderBuffer {
+        private final StringBuilder chars = new StringBuilder(256);
+        private byte[] bytes = new byte[1024];
+        private final int worker = IdGenerator.nextWorkerNumber();
+        private long nextSequence;
+        private long sequenceLimit;
+        private long sequence = -1;
+        private long timestamp = -1;
+        private Feeder.Cursor[] cursors = new Feeder.Cursor[0];
+        private byte[] body;
+        private int nextPooled = worker;
+        private UserSession session;
+
+        public void begin() {
+            begin(null);
+        }
+
+        /**
+         * Starts a new request on behalf of a user, whose session fills {var:name} placeholders.
+         */
+        void begin(UserSession session) {
+            this.session = session;
+            sequence = -1;
+            timestamp = -1;
+            for (Feeder.Cursor cursor : cursors) {
+                if (cursor != null) {
+                    cursor.row = -1;
+                }
+            }
+        }
+
+        /**
+         * Returns this thread's row cursor for a feeder, so every placeholder of a request
+         * reads the same row.
+         */
+        Feeder.Cursor cursor(int feeder, int columns) {
+            if (feeder >= cursors.length) {
+                cursors = Arrays.copyOf(cursors, feeder + 1);
+            }
+            Feeder.Cursor cursor = cursors[feeder];
+            if (cursor == null) {
+                cursor = new Feeder.Cursor(columns);
+                cursors[feeder] = cursor;
+            }
+            return cursor;
+        }
+
+        /**
+         * Returns the run-unique number of the request being rendered.
+         */
+        long sequence() {
+            if (sequence < 0) {
+                if (nextSequence == sequenceLimit) {
+                    nextSequence = IdGenerator.reserveBlock();
+                    sequenceLimit = nextSequence + IdGenerator.BLOCK_SIZE;
+                }
+                sequence = nextSequence++;
+            }
+            return sequence;
+        }
+
+        /**
+         * Returns the index of the next payload of a pool; threads start at different
+         * offsets so that they do not send the same sequence of payloads in lockstep.
+         */
+        int nextPooled(int size) {
+            if (nextPooled >= size) {
+                nextPooled %= size;
+            }
+            return nextPooled++;
+        }
+
+        /**
+         * Returns the session of the user the request is rendered for, or null.
+         */
+        UserSession session() {
+            return session;
+        }
+
+        /**
+         * Returns the number of the thread rendering with this buffer.
+         */
+        int worker() {
+            return worker;
+        }
+
+        long timestamp() {
+            if (timestamp < 0) {
+                timestamp = System.currentTimeMillis();
+            }
+            return timestamp;
+        }
+
+        StringBuilder chars() {
+            return chars;
+        }
+
+        public byte[] bytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the array holding the body last rendered with this buffer, from offset 0.
+         * It is either these scratch bytes or a pooled payload that must not be modified.
+         */
+        public byte[] body() {
+            return body;
+        }
+
+        int writeBytes(int position, byte[] source) {
+            ensureCapacity(position + source.length);
+            System.arraycopy(source, 0, bytes, position, source.length);
+            return position + source.length;
+        }
+
+        int writeUtf8(int position, CharSequence source) {
+            ensureCapacity(position + source.length() * 3);
+            for (int i = 0; i < source.length(); i++) {
+                char c = source.charAt(i);
+                if (c < 0x80) {
+                    bytes[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[position++] = (byte) (0xC0 | (c >> 6));
+                    bytes[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < source.length()
+                        && Character.isLowSurrogate(source.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, source.charAt(++i));
+                    bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    bytes[position++] = (byte) (0xE0 | (c >> 12));
+                    bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return position;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+            }
+        }
+    }
+}
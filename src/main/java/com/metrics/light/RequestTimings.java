@@ -0,0 +1,45 @@
+package com.metrics.light;
+
+import java.util.Arrays;
+
+/**
+ * Phase durations of the request currently being sent by a thread.
+ *
+ * The blocking client runs every step of a request (pool lease, connect, TLS handshake,
+ * exchange) on the calling thread, so the hooks that time those steps record into the
+ * calling thread's instance. Phases that did not happen, such as connecting on a reused
+ * connection, stay at -1.
+ */
+final class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = ThreadLocal.withInitial(RequestTimings::new);
+    
+    private final long[] nanos = new long[RequestPhase.values().length];
+    
+    private RequestTimings() {
+        reset();
+    }
+    
+    static RequestTimings current() {
+        return CURRENT.get();
+    }
+    
+    void reset() {
+        Arrays.fill(nanos, -1);
+    }
+    
+    void set(RequestPhase phase, long durationNanos) {
+        nanos[phase.ordinal()] = durationNanos;
+    }
+    
+    long get(RequestPhase phase) {
+        return nanos[phase.ordinal()];
+    }
+    
+    /**
+     * Returns the durations indexed by {@link RequestPhase#ordinal()}. The array is live and
+     * is overwritten by the thread's next request.
+     */
+    long[] nanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,113 @@
+package com.metrics.light;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a response body without keeping it: bytes are counted and dropped, except for a
+ * bounded prefix kept for the body checks of a {@link ResponseValidator}.
+ *
+ * The blocking engine reuses one sink per thread; the async engine needs one per request,
+ * since the chunks of many responses interleave on each reactor thread.
+ */
+final class ResponseBodySink {
+    private static final int CHUNK_SIZE = 16 * 1024;
+    
+    private byte[] chunk;
+    private byte[] prefix = new byte[0];
+    private int prefixLimit;
+    private int prefixLength;
+    private long bytes;
+    
+    /**
+     * Prepares the sink for a new body.
+     *
+     * @param prefixLimit number of leading bytes to keep, 0 to keep none
+     */
+    void begin(int prefixLimit) {
+        if (prefix.length < prefixLimit) {
+            prefix = new byte[prefixLimit];
+        }
+        this.prefixLimit = prefixLimit;
+        this.prefixLength = 0;
+        this.bytes = 0;
+    }
+    
+    /**
+     * Reads the stream to its end through a reused chunk buffer.
+     */
+    void consume(InputStream in) throws IOException {
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        }
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            bytes += read;
+            int keep = Math.min(read, prefixLimit - prefixLength);
+            if (keep > 0) {
+                System.arraycopy(chunk, 0, prefix, prefixLength, keep);
+                prefixLength += keep;
+            }
+        }
+    }
+    
+    void consume(ByteBuffer src) {
+        int length = src.remaining();
+        bytes += length;
+        int keep = Math.min(length, prefixLimit - prefixLength);
+        if (keep > 0) {
+            src.get(prefix, prefixLength, keep);
+            prefixLength += keep;
+        }
+        src.position(src.limit());
+    }
+    
+    long bytes() {
+        return bytes;
+    }
+    
+    byte[] prefix() {
+        return prefix;
+    }
+    
+    int prefixLength() {
+        return prefixLength;
+    }
+    
+    /**
+     * Async entity consumer feeding a fresh sink.
+     */
+    static final class AsyncConsumer extends AbstractBinAsyncEntityConsumer<ResponseBodySink> {
+        private final ResponseBodySink sink = new ResponseBodySink();
+        
+        AsyncConsumer(int prefixLimit) {
+            sink.begin(prefixLimit);
+        }
+        
+        @Override
+        protected void streamStart(ContentType contentType) {
+        }
+        
+        @Override
+        protected ResponseBodySink generateContent() {
+            return sink;
+        }
+        
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+        
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) {
+            sink.consume(src);
+        }
+        
+        @Override
+        public void releaseResources() {
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.metrics.light;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Assertions a response must pass to count as successful: an accepted set of status codes
+ * and optional checks on the body.
+ *
+ * Body checks only see a bounded prefix of the body, kept in a reused byte buffer, so a
+ * large response is never materialized. The substring and regular expression are matched
+ * against the raw bytes read as ISO-8859-1, which is exact for ASCII patterns on UTF-8
+ * bodies; the JSON path is evaluated with a streaming parser.
+ */
+public class ResponseValidator {
+    public static final int DEFAULT_PREFIX_BYTES = 64 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String statusSpec;
+    private boolean[] acceptedStatuses;
+    private String contains;
+    private byte[] containsBytes;
+    private String regex;
+    private Pattern pattern;
+    private String jsonPath;
+    private JsonPathCheck jsonPathCheck;
+    private int prefixBytes = DEFAULT_PREFIX_BYTES;
+
+    /**
+     * Sets the accepted status codes as a comma-separated list of codes, ranges and classes,
+     * e.g. {@code 200,201,300-304,4xx}. Without it, any 2xx status is accepted.
+     */
+    public void setAcceptedStatuses(String spec) {
+        boolean[] accepted = new boolean[1000];
+        for (String part : spec.split(",")) {
+            String item = part.trim().toLowerCase();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int from;
+            int to;
+            try {
+                if (item.length() == 3 && item.endsWith("xx")) {
+                    from = Integer.parseInt(item.substring(0, 1)) * 100;
+                    to = from + 99;
+                } else if (item.contains("-")) {
+                    from = Integer.parseInt(item.substring(0, item.indexOf('-')).trim());
+                    to = Integer.parseInt(item.substring(item.indexOf('-') + 1).trim());
+                } else {
+                    from = Integer.parseInt(item);
+                    to = from;
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid status code in '" + spec + "': " + part.trim());
+            }
+            if (from < 100 || to > 999 || from > to) {
+                throw new IllegalArgumentException("Invalid status code range in '" + spec + "': " + part.trim());
+            }
+            for (int status = from; status <= to; status++) {
+                accepted[status] = true;
+            }
+        }
+        this.statusSpec = spec;
+        this.acceptedStatuses = accepted;
+    }
+
+    /**
+     * Requires the body prefix to contain this text.
+     */
+    public void setContains(String contains) {
+        this.contains = contains;
+        this.containsBytes = contains.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Requires a match of this regular expression somewhere in the body prefix.
+     */
+    public void setRegex(String regex) {
+        this.pattern = Pattern.compile(regex);
+        this.regex = regex;
+    }
+
+    /**
+     * Requires a JSON path such as {@code $.items[0].id} to exist in the body, or with
+     * {@code =value} appended, to hold that scalar value.
+     */
+    public void setJsonPath(String jsonPath) {
+        this.jsonPathCheck = JsonPathCheck.parse(jsonPath);
+        this.jsonPath = jsonPath;
+    }
+
+    /**
+     * Sets how many leading bytes of the body are kept for the body checks.
+     */
+    public void setPrefixBytes(int prefixBytes) {
+        this.prefixBytes = prefixBytes;
+    }
+
+    public String getStatusSpec() { return statusSpec; }
+    public String getContains() { return contains; }
+    public String getRegex() { return regex; }
+    public String getJsonPath() { return jsonPath; }
+    public int getPrefixBytes() { return prefixBytes; }
+
+    public boolean isStatusAccepted(int statusCode) {
+        if (acceptedStatuses == null) {
+            return statusCode >= 200 && statusCode < 300;
+        }
+        return statusCode >= 0 && statusCode < acceptedStatuses.length && acceptedStatuses[statusCode];
+    }
+
+    /**
+     * Whether any check needs the body, so senders know whether to keep a prefix.
+     */
+    public boolean inspectsBody() {
+        return containsBytes != null || pattern != null || jsonPathCheck != null;
+    }
+
+    /**
+     * Runs the body checks over the first {@code length} bytes of the body.
+     *
+     * @return a description of the first failed check, or null if all passed
+     */
+    public String check(byte[] prefix, int length) {
+        if (containsBytes != null && indexOf(prefix, length, containsBytes) < 0) {
+            return "body does not contain '" + contains + "'";
+        }
+        if (pattern != null && !pattern.matcher(new ByteCharSequence(prefix, 0, length)).find()) {
+            return "body does not match /" + regex + "/";
+        }
+        if (jsonPathCheck != null) {
+            return jsonPathCheck.check(prefix, length);
+        }
+        return null;
+    }
+
+    private static int indexOf(byte[] data, int length, byte[] target) {
+        outer:
+        for (int i = 0; i <= length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (data[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Read-only character view of a byte range, one char per byte.
+     */
+    private static final class ByteCharSequence implements CharSequence {
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+
+        ByteCharSequence(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (data[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteCharSequence(data, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * A dotted JSON path with optional array indexes, evaluated by walking a streaming parser
+     * and skipping every subtree that is not on the path.
+     */
+    static final class JsonPathCheck {
+        private final String path;
+        private final List<Object> segments;
+        private final String expected;
+
+        private JsonPathCheck(String path, List<Object> segments, String expected) {
+            this.path = path;
+            this.segments = segments;
+            this.expected = expected;
+        }
+
+        static JsonPathCheck parse(String spec) {
+            int equals = spec.indexOf('=');
+            String path = (equals >= 0 ? spec.substring(0, equals) : spec).trim();
+            String expected = equals >= 0 ? spec.substring(equals + 1).trim() : null;
+
+            String rest = path.startsWith("$") ? path.substring(1) : "." + path;
+            List<Object> segments = new ArrayList<>();
+            int i = 0;
+            while (i < rest.length()) {
+                char c = rest.charAt(i);
+                if (c == '.') {
+                    int end = i + 1;
+                    while (end < rest.length() && rest.charAt(end) != '.' && rest.charAt(end) != '[') {
+                        end++;
+                    }
+                    if (end == i + 1) {
+                        throw new IllegalArgumentException("Invalid JSON path: " + path);
+                    }
+                    segments.add(rest.substring(i + 1, end));
+                    i = end;
+                } else if (c == '[') {
+                    int end = rest.indexOf(']', i);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Invalid JSON path: " + path);
+                    }
+                    try {
+                        segments.add(Integer.parseInt(rest.substring(i + 1, end).trim()));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid array index in JSON path: " + path);
+                    }
+                    i = end + 1;
+                } else {
+                    throw new IllegalArgumentException("Invalid JSON path: " + path);
+                }
+            }
+            return new JsonPathCheck(path, segments, expected);
+        }
+
+        String check(byte[] prefix, int length) {
+            try (JsonParser parser = JSON_FACTORY.createParser(prefix, 0, length)) {
+                JsonToken token = navigate(parser);
+                if (token == null) {
+                    return "JSON path " + path + " not found";
+                }
+                if (expected == null) {
+                    return null;
+                }
+                String actual = token.isScalarValue() ? parser.getText() : null;
+                return expected.equals(actual) ? null
+                        : "JSON path " + path + " is " + (actual != null ? "'" + actual + "'" : token) + ", expected '" + expected + "'";
+            } catch (IOException e) {
+                return "JSON path " + path + " not found (body prefix is not valid JSON)";
+            }
+        }
+
+        /**
+         * Returns the scalar value at the path as text, or null if the path is missing, holds
+         * an object or array, or the body prefix is not valid JSON.
+         */
+        String extract(byte[] prefix, int length) {
+            try (JsonParser parser = JSON_FACTORY.createParser(prefix, 0, length)) {
+                JsonToken token = navigate(parser);
+                return token != null && token.isScalarValue() && token != JsonToken.VALUE_NULL ? parser.getText() : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /** Walks to the value at the path and returns its token, or null if it is missing. */
+        private JsonToken navigate(JsonParser parser) throws IOException {
+            JsonToken token = parser.nextToken();
+            for (Object segment : segments) {
+                if (!(segment instanceof String ? enterField(parser, token, (String) segment)
+                        : enterIndex(parser, token, (Integer) segment))) {
+                    return null;
+                }
+                token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+            }
+            return token;
+        }
+
+        /** Advances to the field's name; the value is the next token. */
+        private static boolean enterField(JsonParser parser, JsonToken token, String name) throws IOException {
+            if (token != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (name.equals(parser.getCurrentName())) {
+                    return true;
+                }
+                parser.nextToken();
+                parser.skipChildren();
+            }
+            return false;
+        }
+
+        /** Advances to the token before the element, so the element is the next token. */
+        private static boolean enterIndex(JsonParser parser, JsonToken token, int index) throws IOException {
+            if (token != JsonToken.START_ARRAY) {
+                return false;
+            }
+            for (int i = 0; i < index; i++) {
+                JsonToken element = parser.nextToken();
+                if (element == null || element == JsonToken.END_ARRAY) {
+                    return false;
+                }
+                parser.skipChildren();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.metrics.light;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary per-request result log format.
+ *
+ * The file starts with a 16-byte header (magic, version, record size, run start time in
+ * epoch milliseconds), then the endpoint names of the scenario (an int count, then each
+ * name as a short length and UTF-8 bytes), followed by fixed-width 48-byte big-endian
+ * records:
+ * <pre>
+ *  0  long   intended send time, nanoseconds since the start of the run
+ *  8  long   latency in nanoseconds, measured from the intended send time
+ * 16  long   send delay in nanoseconds (actual minus intended send time)
+ * 24  long   response bytes received, -1 if not measured
+ * 32  int    HTTP status code, 0 if no response was received
+ * 36  int    worker id (user or worker thread index, -1 for open-model arrivals)
+ * 40  short  error class code (see {@link ErrorClass})
+ * 42  short  flags (bit 0: success, bit 1: sent on an arrival schedule, bit 2: dropped)
+ * 44  int    endpoint index into the names of the header
+ * </pre>
+ * A dropped record stands for an open-model send that found no free sender; it holds only
+ * the intended send time and endpoint.
+ */
+public final class ResultLog {
+    public static final int MAGIC = 0x4D4C524C; // "MLRL"
+    public static final short VERSION = 2;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 48;
+
+    static final int FLAG_SUCCESS = 1;
+    static final int FLAG_SCHEDULED = 2;
+    static final int FLAG_DROPPED = 4;
+    static final int MAX_ENDPOINTS = 65535;
+
+    private ResultLog() {
+    }
+
+    /**
+     * Returns the size of the header holding the given endpoint names.
+     */
+    static int headerSize(List<String> endpoints) {
+        int size = HEADER_SIZE + 4;
+        for (String name : endpoints) {
+            size += 2 + encodeName(name).length;
+        }
+        return size;
+    }
+
+    static void writeHeader(ByteBuffer buffer, long startEpochMillis, List<String> endpoints) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) RECORD_SIZE);
+        buffer.putLong(startEpochMillis);
+        buffer.putInt(endpoints.size());
+        for (String name : endpoints) {
+            byte[] bytes = encodeName(name);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Endpoint name too long for the result log: " + name.substring(0, 64) + "...");
+        }
+        return bytes;
+    }
+
+    static void writeRecord(ByteBuffer buffer, long sendOffsetNanos, long latencyNanos, long sendDelayNanos,
+                            long bytesReceived, int statusCode, int workerId, int endpoint,
+                            ErrorClass errorClass, int flags) {
+        buffer.putLong(sendOffsetNanos);
+        buffer.putLong(latencyNanos);
+        buffer.putLong(sendDelayNanos);
+        buffer.putLong(bytesReceived);
+        buffer.putInt(statusCode);
+        buffer.putInt(workerId);
+        buffer.putShort((short) errorClass.getCode());
+        buffer.putShort((short) flags);
+        buffer.putInt(endpoint);
+    }
+
+    /**
+     * Sequential reader over a result log, memory-mapping the file in large windows.
+     * The reader itself is the current record; call {@link #next()} to advance.
+     */
+    public static class Reader implements AutoCloseable {
+        private static final long WINDOW_RECORDS = 1L << 20;
+
+        private final FileChannel channel;
+        private final long startEpochMillis;
+        private final List<String> endpoints;
+        private final long dataStart;
+        private final long recordCount;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long index = -1;
+
+        private long sendOffsetNanos;
+        private long latencyNanos;
+        private long sendDelayNanos;
+        private long bytesReceived;
+        private int statusCode;
+        private int workerId;
+        private int endpoint;
+        private ErrorClass errorClass;
+        private int flags;
+
+        public Reader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            ByteBuffer header = read(HEADER_SIZE + 4);
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                channel.close();
+                throw new IOException("Not a result log: " + file);
+            }
+            short version = header.getShort();
+            short recordSize = header.getShort();
+            if (version != VERSION || recordSize != RECORD_SIZE) {
+                channel.close();
+                throw new IOException("Unsupported result log version " + version + " in " + file);
+            }
+            this.startEpochMillis = header.getLong();
+            int count = header.remaining() == 4 ? header.getInt() : -1;
+            if (count < 0 || count > MAX_ENDPOINTS) {
+                channel.close();
+                throw new IOException("Corrupt endpoint table in result log " + file);
+            }
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ByteBuffer length = read(2);
+                ByteBuffer name = length.remaining() == 2 ? read(length.getShort() & 0xFFFF) : null;
+                if (name == null || name.limit() != name.capacity()) {
+                    channel.close();
+                    throw new IOException("Truncated endpoint table in result log " + file);
+                }
+                names.add(StandardCharsets.UTF_8.decode(name).toString());
+            }
+            this.endpoints = Collections.unmodifiableList(names);
+            this.dataStart = channel.position();
+            this.recordCount = (channel.size() - dataStart) / RECORD_SIZE;
+        }
+
+        private ByteBuffer read(int bytes) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(bytes);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        public long getStartEpochMillis() {
+            return startEpochMillis;
+        }
+
+        /**
+         * Returns the endpoint names that record endpoint indexes refer to.
+         */
+        public List<String> getEndpoints() {
+            return endpoints;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Moves back to before the first record so the file can be read again.
+         */
+        public void rewind() {
+            index = -1;
+        }
+
+        public boolean next() throws IOException {
+            if (index + 1 >= recordCount) {
+                return false;
+            }
+            index++;
+            if (window == null || index < windowStart || index >= windowStart + WINDOW_RECORDS) {
+                windowStart = index;
+                long records = Math.min(WINDOW_RECORDS, recordCount - index);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + index * RECORD_SIZE,
+                        records * RECORD_SIZE);
+            }
+            int offset = (int) ((index - windowStart) * RECORD_SIZE);
+            sendOffsetNanos = window.getLong(offset);
+            latencyNanos = window.getLong(offset + 8);
+            sendDelayNanos = window.getLong(offset + 16);
+            bytesReceived = window.getLong(offset + 24);
+            statusCode = window.getInt(offset + 32);
+            workerId = window.getInt(offset + 36);
+            errorClass = ErrorClass.fromCode(window.getShort(offset + 40));
+            flags = window.getShort(offset + 42);
+            endpoint = window.getInt(offset + 44);
+            if (endpoint < 0 || endpoint >= Math.max(1, endpoints.size())) {
+                throw new IOException("Corrupt result log: record " + index + " has endpoint index " + endpoint);
+            }
+            return true;
+        }
+
+        public long getSendOffsetNanos() { return sendOffsetNanos; }
+        public long getLatencyNanos() { return latencyNanos; }
+        public long getSendDelayNanos() { return sendDelayNanos; }
+        public long getBytesReceived() { return bytesReceived; }
+        public int getStatusCode() { return statusCode; }
+        public int getWorkerId() { return workerId; }
+        public int getEndpoint() { return endpoint; }
+        public ErrorClass getErrorClass() { return errorClass; }
+        public boolean isSuccess() { return (flags & FLAG_SUCCESS) != 0; }
+        public boolean isScheduled() { return (flags & FLAG_SCHEDULED) != 0; }
+        public boolean isDropped() { return (flags & FLAG_DROPPED) != 0; }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
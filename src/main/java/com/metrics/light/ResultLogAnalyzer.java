@@ -0,0 +1,108 @@
+package com.metrics.light;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds metrics reports from a binary result log without re-running the test.
+ */
+public class ResultLogAnalyzer {
+    private final Path file;
+    private final int histogramDigits;
+
+    public ResultLogAnalyzer(Path file, int histogramDigits) {
+        this.file = file;
+        this.histogramDigits = histogramDigits;
+    }
+
+    /**
+     * Replays every record of the log into a fresh collector and returns the full report.
+     */
+    public MetricsReport generateReport() throws IOException {
+        try (ResultLog.Reader reader = new ResultLog.Reader(file)) {
+            long lastCompletion = 0;
+            while (reader.next()) {
+                lastCompletion = Math.max(lastCompletion, reader.getSendOffsetNanos() + reader.getLatencyNanos());
+            }
+
+            int durationSeconds = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toSeconds(lastCompletion) + 1);
+            MetricsCollector collector = new MetricsCollector(histogramDigits, durationSeconds);
+            collector.setEndpoints(reader.getEndpoints());
+            collector.start(0);
+
+            reader.rewind();
+            while (reader.next()) {
+                if (reader.isDropped()) {
+                    collector.recordDroppedRequest();
+                    continue;
+                }
+                long latency = reader.getLatencyNanos();
+                collector.recordResponseAt(reader.getEndpoint(), reader.getSendOffsetNanos() + latency, latency, reader.isSuccess());
+                if (reader.getStatusCode() > 0) {
+                    collector.recordStatus(reader.getStatusCode());
+                } else if (reader.getErrorClass() != ErrorClass.NONE) {
+                    collector.recordError(reader.getErrorClass().name(), null);
+                }
+                if (reader.getBytesReceived() >= 0) {
+                    collector.recordBytesReceived(reader.getBytesReceived());
+                }
+                if (reader.isScheduled()) {
+                    collector.recordUncorrectedResponse(latency - reader.getSendDelayNanos());
+                    if (reader.getSendDelayNanos() > LoadTestExecutor.LATE_THRESHOLD_NANOS) {
+                        collector.recordLateRequest();
+                    }
+                }
+            }
+
+            return collector.generateReport(Math.max(1, TimeUnit.NANOSECONDS.toMillis(lastCompletion)));
+        }
+    }
+
+    /**
+     * Prints one line per time slice of the run, bucketing requests by intended send time.
+     */
+    public void printSlices(int sliceSeconds, PrintStream out) throws IOException {
+        long sliceNanos = TimeUnit.SECONDS.toNanos(sliceSeconds);
+        try (ResultLog.Reader reader = new ResultLog.Reader(file)) {
+            long lastSend = 0;
+            while (reader.next()) {
+                lastSend = Math.max(lastSend, reader.getSendOffsetNanos());
+            }
+
+            int sliceCount = (int) (lastSend / sliceNanos) + 1;
+            LatencyHistogram[] histograms = new LatencyHistogram[sliceCount];
+            long[] errors = new long[sliceCount];
+
+            reader.rewind();
+            while (reader.next()) {
+                if (reader.isDropped()) {
+                    continue;
+                }
+                int slice = (int) (Math.max(0, reader.getSendOffsetNanos()) / sliceNanos);
+                if (histograms[slice] == null) {
+                    histograms[slice] = new LatencyHistogram(histogramDigits);
+                }
+                histograms[slice].recordValue(reader.getLatencyNanos());
+                if (!reader.isSuccess()) {
+                    errors[slice]++;
+                }
+            }
+
+            out.printf("%-13s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                    "Slice", "Requests", "Errors", "TPS", "P50 ms", "P90 ms", "P99 ms", "P99.9 ms", "Max ms");
+            for (int i = 0; i < sliceCount; i++) {
+                String range = String.format("%ds-%ds", (long) i * sliceSeconds, (long) (i + 1) * sliceSeconds);
+                if (histograms[i] == null) {
+                    out.printf("%-13s %10d %8d %10.2f%n", range, 0, 0, 0.0);
+                    continue;
+                }
+                LatencySummary summary = LatencySummary.from(histograms[i]);
+                out.printf("%-13s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                        range, summary.getCount(), errors[i], (double) summary.getCount() / sliceSeconds,
+                        summary.getP50(), summary.getP90(), summary.getP99(), summary.getP99_9(), summary.getMax());
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.metrics.light;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams one fixed-width binary record per request to a file (see {@link ResultLog}).
+ *
+ * Requests append to one of a few striped in-memory batches; full batches are handed to a
+ * background thread that writes them through a {@link FileChannel}, so disk I/O never runs
+ * on a sending thread. Batches are recycled once written.
+ */
+public class ResultLogWriter implements AutoCloseable {
+    private static final int BATCH_RECORDS = 2048;
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final BlockingQueue<ByteBuffer> fullBatches;
+    private final BlockingQueue<ByteBuffer> freeBatches;
+    private final Thread writerThread;
+    private volatile IOException writeFailure;
+    private volatile boolean closed;
+
+    /**
+     * @param endpoints names of the scenario's requests, which records refer to by index
+     */
+    public ResultLogWriter(Path file, long startEpochMillis, List<String> endpoints) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(ResultLog.headerSize(endpoints));
+        ResultLog.writeHeader(header, startEpochMillis, endpoints);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(newBatch());
+        }
+        this.stripeMask = stripeCount - 1;
+        this.fullBatches = new ArrayBlockingQueue<>(stripeCount * 4);
+        this.freeBatches = new ArrayBlockingQueue<>(stripeCount * 4);
+
+        this.writerThread = new Thread(this::writeLoop, "result-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    private static ByteBuffer newBatch() {
+        return ByteBuffer.allocateDirect(BATCH_RECORDS * ResultLog.RECORD_SIZE);
+    }
+
+    /**
+     * Appends a record for one request.
+     *
+     * @param sendOffsetNanos intended send time, relative to the start of the run
+     * @param latencyNanos response time measured from the intended send time
+     * @param sendDelayNanos how far the actual send lagged the intended send time
+     * @param bytesReceived response bytes received, or -1 if not measured
+     * @param endpoint index of the request in the endpoint names passed to the constructor
+     * @param scheduled whether the request was sent on an arrival schedule (open model)
+     */
+    public void write(long sendOffsetNanos, long latencyNanos, long sendDelayNanos, long bytesReceived,
+                      int statusCode, int workerId, int endpoint, ErrorClass errorClass, boolean scheduled) {
+        int flags = (errorClass == ErrorClass.NONE ? ResultLog.FLAG_SUCCESS : 0) | (scheduled ? ResultLog.FLAG_SCHEDULED : 0);
+        append(sendOffsetNanos, latencyNanos, sendDelayNanos, bytesReceived, statusCode, workerId, endpoint, errorClass, flags);
+    }
+
+    /**
+     * Appends a record for a scheduled request that was dropped because no sender was free.
+     */
+    public void writeDropped(long sendOffsetNanos, int endpoint) {
+        append(sendOffsetNanos, 0, 0, -1, 0, -1, endpoint, ErrorClass.NONE, ResultLog.FLAG_SCHEDULED | ResultLog.FLAG_DROPPED);
+    }
+
+    private void append(long sendOffsetNanos, long latencyNanos, long sendDelayNanos, long bytesReceived,
+                        int statusCode, int workerId, int endpoint, ErrorClass errorClass, int flags) {
+        long id = Thread.currentThread().getId();
+        Stripe stripe = stripes[(int) (id ^ (id >>> 16)) & stripeMask];
+        synchronized (stripe) {
+            if (closed) {
+                return; // Straggler completing after the run has been shut down
+            }
+            ByteBuffer batch = stripe.batch;
+            ResultLog.writeRecord(batch, sendOffsetNanos, latencyNanos, sendDelayNanos, bytesReceived,
+                    statusCode, workerId, endpoint, errorClass, flags);
+            if (!batch.hasRemaining()) {
+                stripe.batch = handOff(batch);
+            }
+        }
+    }
+
+    private ByteBuffer handOff(ByteBuffer batch) {
+        batch.flip();
+        try {
+            fullBatches.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ByteBuffer next = freeBatches.poll();
+        return next != null ? next : newBatch();
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch = fullBatches.take();
+                if (batch == END_OF_STREAM) {
+                    return;
+                }
+                if (writeFailure == null) {
+                    try {
+                        while (batch.hasRemaining()) {
+                            channel.write(batch);
+                        }
+                    } catch (IOException e) {
+                        writeFailure = e;
+                    }
+                }
+                batch.clear();
+                freeBatches.offer(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flushes all partially filled batches and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    if (stripe.batch.position() > 0) {
+                        stripe.batch = handOff(stripe.batch);
+                    }
+                }
+            }
+            fullBatches.put(END_OF_STREAM);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+
+    private static class Stripe {
+        private ByteBuffer batch;
+
+        Stripe(ByteBuffer batch) {
+            this.batch = batch;
+        }
+    }
+}
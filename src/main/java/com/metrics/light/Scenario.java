@@ -0,0 +1,216 @@
+package com.metrics.light;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A set of request templates that a test cycles through, each compiled once at load time.
+ *
+ * In {@link Mode#WEIGHTED} mode every iteration picks a step at random in proportion to its
+ * weight, to reproduce a traffic mix. In {@link Mode#JOURNEY} mode every user runs the steps
+ * in file order and starts over after the last one.
+ */
+public class Scenario {
+    /**
+     * How the next step is chosen.
+     */
+    public enum Mode {
+        WEIGHTED,
+        JOURNEY
+    }
+    
+    private static final String CURL_FILE_SUFFIX = ".curl.txt";
+    
+    private final List<Step> steps;
+    private final Mode mode;
+    private final long[] cumulativeWeights;
+    private final long totalWeight;
+    
+    public Scenario(List<Step> steps, Mode mode) {
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Scenario has no requests");
+        }
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.mode = mode;
+        this.cumulativeWeights = new long[steps.size()];
+        long sum = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            sum += steps.get(i).getWeight();
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+    
+    /**
+     * A scenario of a single request, as read from curl.txt.
+     */
+    public static Scenario single(String curlCommand) {
+        return new Scenario(Collections.singletonList(new Step("default", RequestTemplate.compile(curlCommand), 1)),
+                Mode.WEIGHTED);
+    }
+    
+    /**
+     * Loads a scenario from a JSON-lines file or from a directory of {@code *.curl.txt} files.
+     *
+     * Each JSON line describes one request with an optional {@code name} and {@code weight}
+     * (default 1) and one of: {@code curl} (a curl command), {@code curlFile} (a path relative
+     * to the scenario file) or {@code url} with optional {@code method}, {@code headers} and
+     * {@code body}. Blank lines and lines starting with {@code #} are skipped. Every file of a
+     * directory becomes a step of weight 1, in file name order.
+     */
+    public static Scenario load(Path path, Mode mode) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + CURL_FILE_SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            Collections.sort(files);
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                name = name.substring(0, name.length() - CURL_FILE_SUFFIX.length());
+                steps.add(new Step(name, RequestTemplate.compile(Files.readString(file).trim()), 1));
+            }
+            return new Scenario(steps, mode);
+        }
+        
+        ObjectMapper mapper = new ObjectMapper();
+        Path baseDir = path.toAbsolutePath().getParent();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                steps.add(parseStep(mapper.readTree(line), baseDir, steps.size()));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid scenario entry at " + path + ":" + lineNumber
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        return new Scenario(steps, mode);
+    }
+    
+    private static Step parseStep(JsonNode entry, Path baseDir, int index) throws IOException {
+        RequestTemplate template;
+        if (entry.hasNonNull("curl")) {
+            template = RequestTemplate.compile(entry.get("curl").asText());
+        } else if (entry.hasNonNull("curlFile")) {
+            template = RequestTemplate.compile(Files.readString(baseDir.resolve(entry.get("curlFile").asText())).trim());
+        } else if (entry.hasNonNull("url")) {
+            Map<String, String> headers = new HashMap<>();
+            JsonNode headerNode = entry.path("headers");
+            for (Iterator<Map.Entry<String, JsonNode>> it = headerNode.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> header = it.next();
+                headers.put(header.getKey(), header.getValue().asText());
+            }
+            JsonNode body = entry.get("body");
+            template = RequestTemplate.compile(new RequestDetails(entry.get("url").asText(),
+                    entry.path("method").asText("GET").toUpperCase(), headers,
+                    body == null || body.isNull() ? null : body.isTextual() ? body.asText() : body.toString()));
+        } else {
+            throw new IllegalArgumentException("expected one of \"curl\", \"curlFile\" or \"url\"");
+        }
+        
+        int weight = entry.path("weight").asInt(1);
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        String name = entry.hasNonNull("name") ? entry.get("name").asText() : "request-" + (index + 1);
+        return new Step(name, template, weight);
+    }
+    
+    /**
+     * Returns the step for a user's given iteration: the next step of the journey, or a
+     * weighted random pick.
+     */
+    public int select(long iteration) {
+        if (steps.size() == 1) {
+            return 0;
+        }
+        if (mode == Mode.JOURNEY) {
+            return (int) (iteration % steps.size());
+        }
+        long ticket = ThreadLocalRandom.current().nextLong(totalWeight);
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] > ticket) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+    
+    public Step getStep(int index) {
+        return steps.get(index);
+    }
+    
+    public List<Step> getSteps() {
+        return steps;
+    }
+    
+    public int size() {
+        return steps.size();
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            names.add(step.getName());
+        }
+        return names;
+    }
+    
+    /**
+     * Whether any step is sent over https.
+     */
+    public boolean isSecure() {
+        for (Step step : steps) {
+            if (step.getTemplate().isSecure()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * One request of a scenario.
+     */
+    public static class Step {
+        private final String name;
+        private final RequestTemplate template;
+        private final int weight;
+        
+        public Step(String name, RequestTemplate template, int weight) {
+            this.name = name;
+            this.template = template;
+            this.weight = weight;
+        }
+        
+        public String getName() { return name; }
+        public RequestTemplate getTemplate() { return template; }
+        public int getWeight() { return weight; }
+    }
+}
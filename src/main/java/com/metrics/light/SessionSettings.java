@@ -0,0 +1,155 @@
+package com.metrics.light;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user session handling: cookie jars, values captured from responses and a login
+ * request that every user sends first and repeats to refresh its credentials.
+ *
+ * Extractors are given as {@code <name>=<source>}, where the source is a JSON path
+ * ({@code $.data.token}), {@code header:<Header-Name>} or {@code regex:<pattern>} (the
+ * first group, or the whole match without groups). The captured value is substituted
+ * for {@code {var:<name>}} in the user's later requests, and a response that lacks it
+ * leaves the previous value in place.
+ */
+public class SessionSettings {
+    static final byte[] NO_BODY = new byte[0];
+
+    private final List<String> extractorSpecs;
+    private final List<Extractor> extractors = new ArrayList<>();
+    private String loginCurlCommand;
+    private int refreshSeconds;
+
+    /**
+     * Parses the extractors and declares their variables, so they must be created before
+     * the requests using the variables are compiled.
+     */
+    public SessionSettings(List<String> extractorSpecs) {
+        this.extractorSpecs = extractorSpecs;
+        for (String spec : extractorSpecs) {
+            extractors.add(Extractor.parse(spec));
+        }
+    }
+
+    public List<String> getExtractorSpecs() {
+        return Collections.unmodifiableList(extractorSpecs);
+    }
+
+    /**
+     * Returns the curl command every user sends before its first request, or null for none.
+     */
+    public String getLoginCurlCommand() {
+        return loginCurlCommand;
+    }
+
+    public void setLoginCurlCommand(String loginCurlCommand) {
+        this.loginCurlCommand = loginCurlCommand;
+    }
+
+    /**
+     * Returns how often each user sends the login request again, or 0 for only once.
+     */
+    public int getRefreshSeconds() {
+        return refreshSeconds;
+    }
+
+    public void setRefreshSeconds(int refreshSeconds) {
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    long getRefreshNanos() {
+        return TimeUnit.SECONDS.toNanos(refreshSeconds);
+    }
+
+    /**
+     * Whether any extractor reads the body, so senders know whether to keep a prefix.
+     */
+    boolean readsBody() {
+        for (Extractor extractor : extractors) {
+            if (extractor.readsBody()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the response's cookies and extracted values in the user's session.
+     */
+    void capture(UserSession session, HttpResponse head, byte[] prefix, int length) {
+        for (Header cookie : head.getHeaders("Set-Cookie")) {
+            session.setCookie(cookie.getValue());
+        }
+        for (Extractor extractor : extractors) {
+            String value = extractor.extract(head, prefix, length);
+            if (value != null) {
+                session.setValue(extractor.slot, value);
+            }
+        }
+    }
+
+    /**
+     * Captures one value from a response into a session variable.
+     */
+    private static final class Extractor {
+        private final int slot;
+        private final ResponseValidator.JsonPathCheck jsonPath;
+        private final String header;
+        private final Pattern pattern;
+
+        private Extractor(int slot, ResponseValidator.JsonPathCheck jsonPath, String header, Pattern pattern) {
+            this.slot = slot;
+            this.jsonPath = jsonPath;
+            this.header = header;
+            this.pattern = pattern;
+        }
+
+        static Extractor parse(String spec) {
+            int equals = spec.indexOf('=');
+            if (equals <= 0 || equals == spec.length() - 1) {
+                throw new IllegalArgumentException("Invalid extractor '" + spec + "', expected <name>=<$.json.path|header:Name|regex:pattern>");
+            }
+            String name = spec.substring(0, equals).trim();
+            String source = spec.substring(equals + 1).trim();
+            if (!name.matches("[A-Za-z0-9_.-]+")) {
+                throw new IllegalArgumentException("Invalid extractor name '" + name + "'");
+            }
+            if (source.startsWith("$")) {
+                ResponseValidator.JsonPathCheck path = ResponseValidator.JsonPathCheck.parse(source);
+                return new Extractor(UserSession.declare(name), path, null, null);
+            } else if (source.startsWith("header:")) {
+                return new Extractor(UserSession.declare(name), null, source.substring(7).trim(), null);
+            } else if (source.startsWith("regex:")) {
+                return new Extractor(UserSession.declare(name), null, null, Pattern.compile(source.substring(6)));
+            }
+            throw new IllegalArgumentException("Invalid extractor source '" + source + "', expected $.json.path, header:Name or regex:pattern");
+        }
+
+        boolean readsBody() {
+            return header == null;
+        }
+
+        String extract(HttpResponse head, byte[] prefix, int length) {
+            if (header != null) {
+                Header value = head.getFirstHeader(header);
+                return value != null ? value.getValue() : null;
+            }
+            if (jsonPath != null) {
+                return jsonPath.extract(prefix, length);
+            }
+            Matcher matcher = pattern.matcher(new String(prefix, 0, length, StandardCharsets.UTF_8));
+            if (!matcher.find()) {
+                return null;
+            }
+            return matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.metrics.light;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A piece of request text compiled into alternating static segments and placeholder slots.
+ *
+ * Static segments are kept both as strings and as pre-encoded UTF-8 bytes so that rendering
+ * only has to fill in the placeholder values. Braces that do not name a known placeholder
+ * (for example JSON object literals) are left untouched. {@code {file:path}} is not a
+ * placeholder: the file's contents are read once and become part of the static text.
+ */
+class TemplateString {
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\{([a-z]+)(?::([^{}\\s]*))?\\}");
+    private static final Pattern RANGE_PATTERN = Pattern.compile("(-?\\d+)-(-?\\d+)");
+    private static final char[] ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    static final int MAX_STRING_LENGTH = 1 << 20;
+
+    /**
+     * A slot in a template that is filled in for every rendered request.
+     */
+    interface Placeholder {
+        void appendTo(StringBuilder out, RequestTemplate.RenderBuffer buffer);
+    }
+
+    private final String raw;
+    private final String[] segments;
+    private final byte[][] segmentBytes;
+    private final Placeholder[] placeholders;
+
+    private TemplateString(String raw, List<String> segments, List<Placeholder> placeholders) {
+        this.raw = raw;
+        this.segments = segments.toArray(new String[0]);
+        this.segmentBytes = new byte[this.segments.length][];
+        for (int i = 0; i < this.segments.length; i++) {
+            segmentBytes[i] = this.segments[i].getBytes(StandardCharsets.UTF_8);
+        }
+        this.placeholders = placeholders.toArray(new Placeholder[0]);
+    }
+
+    public static TemplateString compile(String raw) {
+        List<String> segments = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+
+        Matcher matcher = TOKEN_PATTERN.matcher(raw);
+        StringBuilder segment = new StringBuilder();
+        int segmentStart = 0;
+        while (matcher.find()) {
+            if (matcher.group(1).equals("file") && matcher.group(2) != null && !matcher.group(2).isEmpty()) {
+                segment.append(raw, segmentStart, matcher.start()).append(readFile(matcher.group(2)));
+                segmentStart = matcher.end();
+                continue;
+            }
+            Placeholder placeholder = placeholderFor(matcher.group(1), matcher.group(2));
+            if (placeholder == null) {
+                continue;
+            }
+            segments.add(segment.append(raw, segmentStart, matcher.start()).toString());
+            segment.setLength(0);
+            placeholders.add(placeholder);
+            segmentStart = matcher.end();
+        }
+        segments.add(segment.append(raw, segmentStart, raw.length()).toString());
+
+        return new TemplateString(raw, segments, placeholders);
+    }
+
+    private static Placeholder placeholderFor(String name, String argument) {
+        switch (name) {
+            case "uuid":
+                return argument == null ? (out, buffer) -> IdGenerator.appendCorrelationId(out, buffer.sequence()) : null;
+            case "seq":
+                return argument == null ? (out, buffer) -> out.append(buffer.sequence()) : null;
+            case "worker":
+                return argument == null ? (out, buffer) -> out.append(buffer.worker()) : null;
+            case "ts":
+                return argument == null ? (out, buffer) -> out.append(buffer.timestamp()) : null;
+            case "col": {
+                if (argument == null || argument.isEmpty()) {
+                    return null;
+                }
+                Feeder feeder = Feeder.find(argument);
+                if (feeder == null) {
+                    throw new IllegalArgumentException("No feeder defines column '" + argument + "' used by {col:" + argument + "}");
+                }
+                int column = feeder.columnIndex(argument);
+                return (out, buffer) -> out.append(feeder.value(buffer, column));
+            }
+            case "var": {
+                if (argument == null || argument.isEmpty()) {
+                    return null;
+                }
+                int slot = UserSession.slotOf(argument);
+                if (slot < 0) {
+                    throw new IllegalArgumentException("No --extract captures {var:" + argument + "}");
+                }
+                return (out, buffer) -> {
+                    String value = buffer.session() != null ? buffer.session().value(slot) : null;
+                    if (value != null) {
+                        out.append(value);
+                    }
+                };
+            }
+            case "rand":
+                int length = parseRandomLength(argument);
+                return (out, buffer) -> IdGenerator.appendRandom(out, length);
+            case "int": {
+                long[] range = parseRange("int", argument, Long.MIN_VALUE);
+                long min = range[0];
+                long bound = range[1] + 1;
+                return (out, buffer) -> out.append(ThreadLocalRandom.current().nextLong(min, bound));
+            }
+            case "str": {
+                long[] range = parseRange("str", argument, 0);
+                int min = (int) range[0];
+                int bound = (int) range[1] + 1;
+                if (bound - 1 > MAX_STRING_LENGTH) {
+                    throw new IllegalArgumentException("Invalid {str:" + argument + "}, lengths are limited to " + MAX_STRING_LENGTH);
+                }
+                return (out, buffer) -> appendRandomString(out, min == bound - 1 ? min : ThreadLocalRandom.current().nextInt(min, bound));
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses {@code N} or {@code <min>-<max>} into an inclusive range; a single number is
+     * the range from zero (or the fixed value, for lengths) up to it.
+     */
+    private static long[] parseRange(String name, String argument, long lowest) {
+        if (argument == null || argument.isEmpty()) {
+            throw new IllegalArgumentException("{" + name + "} needs a range, e.g. {" + name + ":10-100}");
+        }
+        try {
+            Matcher range = RANGE_PATTERN.matcher(argument);
+            long min;
+            long max;
+            if (range.matches()) {
+                min = Long.parseLong(range.group(1));
+                max = Long.parseLong(range.group(2));
+            } else {
+                max = Long.parseLong(argument);
+                min = name.equals("str") ? max : 0;
+            }
+            if (min < lowest || min > max || max == Long.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid {" + name + ":" + argument + "} range");
+            }
+            return new long[] {min, max};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid {" + name + ":" + argument + "}, expected N or <min>-<max>");
+        }
+    }
+
+    private static void appendRandomString(StringBuilder out, int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < length; i++) {
+            out.append(ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)]);
+        }
+    }
+
+    private static String readFile(String path) {
+        try {
+            return Files.readString(Paths.get(path));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read " + path + " for {file:" + path + "}");
+        }
+    }
+
+    private static int parseRandomLength(String argument) {
+        if (argument == null) {
+            return IdGenerator.DEFAULT_RANDOM_LENGTH;
+        }
+        try {
+            int length = Integer.parseInt(argument);
+            if (length >= 1 && length <= IdGenerator.MAX_RANDOM_LENGTH) {
+                return length;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid {rand:N} length '" + argument + "', expected 1-"
+                + IdGenerator.MAX_RANDOM_LENGTH);
+    }
+
+    public boolean isStatic() {
+        return placeholders.length == 0;
+    }
+
+    /**
+     * Returns the template text with placeholders left as written.
+     */
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Renders the template; a static template needs no buffer.
+     */
+    public String render(RequestTemplate.RenderBuffer buffer) {
+        if (isStatic()) {
+            return segments[0];
+        }
+        StringBuilder out = buffer.chars();
+        out.setLength(0);
+        out.append(segments[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            placeholders[i].appendTo(out, buffer);
+            out.append(segments[i + 1]);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the pre-encoded text of a static template.
+     */
+    byte[] staticBytes() {
+        return segmentBytes[0];
+    }
+
+    /**
+     * Renders the template as UTF-8 into the buffer's byte area and returns the encoded length.
+     */
+    public int renderBytes(RequestTemplate.RenderBuffer buffer) {
+        int length = 0;
+        length = buffer.writeBytes(length, segmentBytes[0]);
+        StringBuilder scratch = buffer.chars();
+        for (int i = 0; i < placeholders.length; i++) {
+            scratch.setLength(0);
+            placeholders[i].appendTo(scratch, buffer);
+            length = buffer.writeUtf8(length, scratch);
+            length = buffer.writeBytes(length, segmentBytes[i + 1]);
+        }
+        return length;
+    }
+}
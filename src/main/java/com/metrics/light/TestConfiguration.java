@@ -1,14 +1,62 @@
 package com.metrics.light;
 
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Configuration holder for load test parameters.
  */
 public class TestConfiguration {
+    /**
+     * HTTP engine used to send requests.
+     */
+    public enum Engine {
+        /** Blocking client; concurrency is bounded by worker threads. */
+        CLASSIC,
+        /** Non-blocking client on an I/O reactor; concurrency is bounded by in-flight requests. */
+        ASYNC,
+        /** Blocking client with one virtual thread per user (Java 21+); threads size the carrier pool. */
+        VIRTUAL
+    }
+    
+    /**
+     * How response bodies are handled.
+     */
+    public enum BodyMode {
+        /** Read every body to its end into a reused buffer, counting bytes and time to last byte. */
+        DISCARD,
+        /** Close the response without reading the body; the connection may not be reused. */
+        IGNORE
+    }
+    
     private final String curlCommand;
     private final int users;
     private final int threads;
     private final int durationSeconds;
     private final int delayMs;
+    private ThinkTime thinkTime;
+    private int histogramDigits = LatencyHistogram.DEFAULT_SIGNIFICANT_DIGITS;
+    private RateSchedule rateSchedule;
+    private LoadProfile loadProfile;
+    private int warmupSeconds;
+    private long warmupRequests;
+    private boolean showWarmup;
+    private Engine engine = Engine.CLASSIC;
+    private boolean http2;
+    private Path resultLogPath;
+    private Scenario scenario;
+    private List<String> feeders = Collections.emptyList();
+    private SessionSettings sessions;
+    private int feederPartition;
+    private int feederPartitions = 1;
+    private String idPrefix = IdGenerator.DEFAULT_PREFIX;
+    private int bodyPoolSize;
+    private int reportIntervalSeconds = 5;
+    private InterimReporter.Format reportFormat = InterimReporter.Format.TEXT;
+    private ConnectionSettings connectionSettings = new ConnectionSettings();
+    private BodyMode bodyMode = BodyMode.DISCARD;
+    private ResponseValidator responseValidator = new ResponseValidator();
     
     public TestConfiguration(String curlCommand, int users, int threads, int durationSeconds, int delayMs) {
         this.curlCommand = curlCommand;
@@ -41,4 +89,229 @@ public class TestConfiguration {
     public int getDelayMs() {
         return delayMs;
     }
+    
+    /**
+     * Returns the pause each user takes between a response and its next request: the think
+     * time if one was set, otherwise the fixed delay.
+     */
+    public ThinkTime getThinkTime() {
+        return thinkTime != null ? thinkTime : ThinkTime.ofMillis(delayMs);
+    }
+    
+    public void setThinkTime(ThinkTime thinkTime) {
+        this.thinkTime = thinkTime;
+    }
+    
+    public int getHistogramDigits() {
+        return histogramDigits;
+    }
+    
+    public void setHistogramDigits(int histogramDigits) {
+        this.histogramDigits = histogramDigits;
+    }
+    
+    /**
+     * Returns the arrival rate schedule for open-model runs, or null for the default
+     * closed-loop mode where each user waits for its response before sending again.
+     */
+    public RateSchedule getRateSchedule() {
+        return rateSchedule;
+    }
+    
+    public void setRateSchedule(RateSchedule rateSchedule) {
+        this.rateSchedule = rateSchedule;
+    }
+    
+    public boolean isOpenModel() {
+        return rateSchedule != null;
+    }
+    
+    /**
+     * Returns the load profile shaping the run, or null to run at full load throughout. In
+     * the closed model it gates the number of active users; in the open model it has already
+     * been turned into the rate schedule and only labels the report's stages.
+     */
+    public LoadProfile getLoadProfile() {
+        return loadProfile;
+    }
+    
+    public void setLoadProfile(LoadProfile loadProfile) {
+        this.loadProfile = loadProfile;
+    }
+    
+    /**
+     * Returns how long the test runs at full load before measuring starts, or 0 for no
+     * time-based warm-up. The warm-up comes on top of the test duration.
+     */
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+    
+    public void setWarmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+    
+    /**
+     * Returns how many requests complete before measuring starts, or 0 for no count-based
+     * warm-up.
+     */
+    public long getWarmupRequests() {
+        return warmupRequests;
+    }
+    
+    public void setWarmupRequests(long warmupRequests) {
+        this.warmupRequests = warmupRequests;
+    }
+    
+    public boolean isShowWarmup() {
+        return showWarmup;
+    }
+    
+    public void setShowWarmup(boolean showWarmup) {
+        this.showWarmup = showWarmup;
+    }
+    
+    public Engine getEngine() {
+        return engine;
+    }
+    
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+    
+    public boolean isHttp2() {
+        return http2;
+    }
+    
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+    
+    /**
+     * Returns the file that receives one binary record per request, or null if disabled.
+     */
+    public Path getResultLogPath() {
+        return resultLogPath;
+    }
+    
+    public void setResultLogPath(Path resultLogPath) {
+        this.resultLogPath = resultLogPath;
+    }
+    
+    /**
+     * Returns the {@code <file>[:<strategy>]} specs of the data files feeding {col:name}
+     * placeholders.
+     */
+    public List<String> getFeeders() {
+        return feeders;
+    }
+    
+    public void setFeeders(List<String> feeders) {
+        this.feeders = feeders;
+    }
+    
+    /**
+     * Returns which share of every feeder's rows this load generator uses, out of
+     * {@link #getFeederPartitions()}; agents split the rows so none is used twice.
+     */
+    public int getFeederPartition() {
+        return feederPartition;
+    }
+    
+    public int getFeederPartitions() {
+        return feederPartitions;
+    }
+    
+    public void setFeederPartition(int partition, int partitions) {
+        this.feederPartition = partition;
+        this.feederPartitions = partitions;
+    }
+    
+    /**
+     * Returns the per-user session handling, or null if users keep no state between requests.
+     */
+    public SessionSettings getSessions() {
+        return sessions;
+    }
+    
+    public void setSessions(SessionSettings sessions) {
+        this.sessions = sessions;
+    }
+    
+    /**
+     * Returns the multi-request scenario to run, or null to replay the single curl command.
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+    
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+    
+    /**
+     * Returns the text that starts every generated {uuid} correlation ID.
+     */
+    public String getIdPrefix() {
+        return idPrefix;
+    }
+    
+    public void setIdPrefix(String idPrefix) {
+        this.idPrefix = idPrefix;
+    }
+    
+    /**
+     * Returns how many request bodies are rendered up front and cycled through, or 0 to
+     * render every body as it is sent.
+     */
+    public int getBodyPoolSize() {
+        return bodyPoolSize;
+    }
+    
+    public void setBodyPoolSize(int bodyPoolSize) {
+        this.bodyPoolSize = bodyPoolSize;
+    }
+    
+    /**
+     * Returns how often live interim metrics are printed during the run.
+     */
+    public int getReportIntervalSeconds() {
+        return reportIntervalSeconds;
+    }
+    
+    public void setReportIntervalSeconds(int reportIntervalSeconds) {
+        this.reportIntervalSeconds = reportIntervalSeconds;
+    }
+    
+    public InterimReporter.Format getReportFormat() {
+        return reportFormat;
+    }
+    
+    public void setReportFormat(InterimReporter.Format reportFormat) {
+        this.reportFormat = reportFormat;
+    }
+    
+    public ConnectionSettings getConnectionSettings() {
+        return connectionSettings;
+    }
+    
+    public void setConnectionSettings(ConnectionSettings connectionSettings) {
+        this.connectionSettings = connectionSettings;
+    }
+    
+    public BodyMode getBodyMode() {
+        return bodyMode;
+    }
+    
+    public void setBodyMode(BodyMode bodyMode) {
+        this.bodyMode = bodyMode;
+    }
+    
+    public ResponseValidator getResponseValidator() {
+        return responseValidator;
+    }
+    
+    public void setResponseValidator(ResponseValidator responseValidator) {
+        this.responseValidator = responseValidator;
+    }
 }
\ No newline at end of file
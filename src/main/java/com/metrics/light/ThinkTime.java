@@ -0,0 +1,122 @@
+package com.metrics.light;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pause a simulated user takes after each response before sending its next request.
+ *
+ * Think times are drawn per request from one of these distributions:
+ * <ul>
+ *   <li>{@code 250ms} or {@code constant:250ms}: always the same pause</li>
+ *   <li>{@code uniform:100ms-400ms}: evenly spread between the two bounds</li>
+ *   <li>{@code exponential:250ms} (or {@code poisson:250ms}): exponentially distributed
+ *       with this mean, so each user's requests form a Poisson process</li>
+ * </ul>
+ * Durations take {@code us}, {@code ms} or {@code s} suffixes; a bare number is milliseconds.
+ */
+public class ThinkTime {
+    public static final ThinkTime NONE = new ThinkTime(Distribution.CONSTANT, 0, 0, "0ms");
+
+    /**
+     * Shape of the think time distribution.
+     */
+    public enum Distribution {
+        CONSTANT,
+        UNIFORM,
+        EXPONENTIAL
+    }
+
+    private final Distribution distribution;
+    // Constant and exponential use the first value only, as the pause and the mean
+    private final long firstNanos;
+    private final long secondNanos;
+    private final String spec;
+
+    private ThinkTime(Distribution distribution, long firstNanos, long secondNanos, String spec) {
+        this.distribution = distribution;
+        this.firstNanos = firstNanos;
+        this.secondNanos = secondNanos;
+        this.spec = spec;
+    }
+
+    public static ThinkTime ofMillis(long millis) {
+        return millis <= 0 ? NONE : new ThinkTime(Distribution.CONSTANT, TimeUnit.MILLISECONDS.toNanos(millis), 0, millis + "ms");
+    }
+
+    public static ThinkTime parse(String spec) {
+        String value = spec.trim().toLowerCase();
+        int colon = value.indexOf(':');
+        String kind = colon >= 0 ? value.substring(0, colon).trim() : "constant";
+        String arguments = colon >= 0 ? value.substring(colon + 1).trim() : value;
+        switch (kind) {
+            case "constant":
+                return new ThinkTime(Distribution.CONSTANT, parseNanos(spec, arguments), 0, spec.trim());
+            case "uniform": {
+                int dash = arguments.indexOf('-');
+                if (dash <= 0) {
+                    throw new IllegalArgumentException("Invalid think time '" + spec + "', expected uniform:<min>-<max>");
+                }
+                long min = parseNanos(spec, arguments.substring(0, dash));
+                long max = parseNanos(spec, arguments.substring(dash + 1));
+                if (min > max) {
+                    throw new IllegalArgumentException("Invalid think time '" + spec + "': minimum exceeds maximum");
+                }
+                return new ThinkTime(Distribution.UNIFORM, min, max, spec.trim());
+            }
+            case "exponential":
+            case "poisson":
+                return new ThinkTime(Distribution.EXPONENTIAL, parseNanos(spec, arguments), 0, spec.trim());
+            default:
+                throw new IllegalArgumentException("Unknown think time distribution '" + kind
+                        + "', expected constant, uniform or exponential");
+        }
+    }
+
+    private static long parseNanos(String spec, String value) {
+        String duration = value.trim();
+        try {
+            long nanos;
+            if (duration.endsWith("us")) {
+                nanos = Math.round(Double.parseDouble(duration.substring(0, duration.length() - 2)) * 1_000);
+            } else if (duration.endsWith("ms")) {
+                nanos = Math.round(Double.parseDouble(duration.substring(0, duration.length() - 2)) * 1_000_000);
+            } else if (duration.endsWith("s")) {
+                nanos = Math.round(Double.parseDouble(duration.substring(0, duration.length() - 1)) * 1_000_000_000);
+            } else {
+                nanos = Math.round(Double.parseDouble(duration) * 1_000_000);
+            }
+            if (nanos < 0) {
+                throw new IllegalArgumentException("Invalid think time '" + spec + "': durations must be non-negative");
+            }
+            return nanos;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid think time '" + spec + "'");
+        }
+    }
+
+    /**
+     * Draws the next pause in nanoseconds.
+     */
+    public long nextNanos() {
+        switch (distribution) {
+            case UNIFORM:
+                return firstNanos == secondNanos ? firstNanos : ThreadLocalRandom.current().nextLong(firstNanos, secondNanos + 1);
+            case EXPONENTIAL:
+                return (long) (-firstNanos * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+            default:
+                return firstNanos;
+        }
+    }
+
+    public boolean isNone() {
+        return firstNanos == 0 && secondNanos == 0;
+    }
+
+    public String getSpec() { return spec; }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,315 @@
+package com.metrics.light;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-second throughput timeline.
+ *
+ * Only the last {@link #LIVE_SECONDS} seconds are recorded live, into a ring of slots that
+ * each hold striped counters and one latency histogram per recording-thread stripe, so
+ * concurrent threads share neither a counter nor a histogram. When a slot is taken over for
+ * a newer second, the second it held is folded into the archive: its stripes are merged and
+ * kept encoded, at 12 bytes per non-empty bucket plus a small header. A second's latencies
+ * rarely span more than a few hundred buckets at {@link #INTERVAL_SIGNIFICANT_DIGITS}
+ * digits, so the timeline costs a few KB per second of the run, and the live ring a fixed
+ * {@code LIVE_SECONDS} sets of stripes. A request recorded more than
+ * {@code LIVE_SECONDS - 1} seconds after it completed is dropped.
+ */
+public class ThroughputTimeline {
+    static final int INTERVAL_SIGNIFICANT_DIGITS = 2;
+    static final int LIVE_SECONDS = 4;
+    // How far past the expected duration a merged second may lie, for long shutdowns
+    private static final int MERGE_SLACK_SECONDS = 3600;
+
+    private final Slot[] slots = new Slot[LIVE_SECONDS];
+    // Folded seconds that saw requests
+    private final TreeMap<Long, Archived> archive = new TreeMap<>();
+    private final long maxMergedSecond;
+    private volatile long startNanos;
+
+    /**
+     * @param durationSeconds expected test duration, used to bound merged seconds
+     */
+    public ThroughputTimeline(int durationSeconds) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        this.maxMergedSecond = (long) Math.max(1, durationSeconds) + MERGE_SLACK_SECONDS;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the start of the timeline; seconds are counted from this instant.
+     */
+    public void start(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public void record(long timestampNanos, long responseTimeNanos, boolean success) {
+        long second = Math.max(0, (timestampNanos - startNanos) / 1_000_000_000L);
+        Slot slot = slots[(int) (second % slots.length)];
+        if (slot.second != second && !claim(slot, second)) {
+            return; // Straggler for a second that has already been folded
+        }
+
+        slot.requests.increment();
+        if (!success) {
+            slot.errors.increment();
+        }
+        slot.stripes[MetricsCollector.stripeForCurrentThread(slot.stripes.length - 1)].recordValue(responseTimeNanos);
+    }
+
+    /**
+     * Takes a slot over for a newer second, folding the second it held into the archive.
+     * Only happens once per slot per second, so the lock is never on the per-request path.
+     */
+    private boolean claim(Slot slot, long newSecond) {
+        synchronized (slot) {
+            if (slot.second > newSecond) {
+                return false;
+            }
+            if (slot.second < newSecond) {
+                if (slot.second >= 0) {
+                    LatencyHistogram merged = slot.merge();
+                    archive(slot.second, slot.requests.sum(), slot.errors.sum(), merged.getTotalCount() > 0 ? merged : null);
+                    for (LatencyHistogram stripe : slot.stripes) {
+                        stripe.reset();
+                    }
+                }
+                slot.requests.reset();
+                slot.errors.reset();
+                slot.second = newSecond;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Adds the counters and histogram of one second to the archive.
+     */
+    private void archive(long second, long requests, long errors, LatencyHistogram histogram) {
+        synchronized (archive) {
+            Archived existing = archive.get(second);
+            if (existing != null) {
+                LatencyHistogram combined = existing.histogram();
+                if (histogram != null) {
+                    if (combined == null) {
+                        combined = histogram;
+                    } else {
+                        combined.add(histogram);
+                    }
+                }
+                histogram = combined;
+                requests += existing.requests;
+                errors += existing.errors;
+            }
+            archive.put(second, new Archived(requests, errors, histogram));
+        }
+    }
+
+    /**
+     * Writes every recorded second, with its counters and histogram, for merging into a
+     * timeline in another process with {@link #mergeFrom}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        Map<Long, Archived> seconds = snapshot();
+        out.writeInt(seconds.size());
+        for (Map.Entry<Long, Archived> second : seconds.entrySet()) {
+            Archived archived = second.getValue();
+            out.writeLong(second.getKey());
+            out.writeLong(archived.requests);
+            out.writeLong(archived.errors);
+            out.writeBoolean(archived.encoded != null);
+            if (archived.encoded != null) {
+                out.write(archived.encoded);
+            }
+        }
+    }
+    
+    /**
+     * Adds the seconds written by {@link #writeTo} into this timeline. Seconds are matched by
+     * their offset from each timeline's start.
+     */
+    public void mergeFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Protocol error: negative timeline length " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            long second = in.readLong();
+            long requests = in.readLong();
+            long errors = in.readLong();
+            LatencyHistogram histogram = in.readBoolean() ? LatencyHistogram.decode(in) : null;
+            if (second < 0 || second > maxMergedSecond) {
+                throw new IOException("Protocol error: timeline second " + second + " is outside 0-" + maxMergedSecond);
+            }
+            archive(second, requests, errors, histogram);
+        }
+    }
+    
+    /**
+     * Returns the recorded seconds in order, from the first to the last second that saw a
+     * request, including empty seconds in between.
+     */
+    public List<Interval> getIntervals() {
+        List<Interval> intervals = new ArrayList<>();
+        long next = -1;
+        for (Map.Entry<Long, Archived> second : snapshot().entrySet()) {
+            long current = second.getKey();
+            for (; next >= 0 && next < current; next++) {
+                intervals.add(new Interval(next, 0, 0, null));
+            }
+            Archived archived = second.getValue();
+            LatencyHistogram histogram = archived.histogram();
+            intervals.add(new Interval(current, archived.requests, archived.errors,
+                    histogram != null ? LatencySummary.from(histogram) : null));
+            next = current + 1;
+        }
+        return intervals;
+    }
+
+    /**
+     * Combines the seconds in {@code [fromSecond, toSecond)} into a single interval, merging
+     * their histograms, or returns null if none of them saw a request.
+     */
+    public Interval aggregate(long fromSecond, long toSecond) {
+        long requests = 0;
+        long errors = 0;
+        LatencyHistogram merged = null;
+        for (Archived archived : snapshot().subMap(fromSecond, toSecond).values()) {
+            requests += archived.requests;
+            errors += archived.errors;
+            LatencyHistogram histogram = archived.histogram();
+            if (histogram != null) {
+                if (merged == null) {
+                    merged = histogram;
+                } else {
+                    merged.add(histogram);
+                }
+            }
+        }
+        if (requests == 0) {
+            return null;
+        }
+        return new Interval(fromSecond, requests, errors, merged != null ? LatencySummary.from(merged) : null);
+    }
+
+    /**
+     * Returns the archived and live seconds that saw a request, by second.
+     */
+    private TreeMap<Long, Archived> snapshot() {
+        TreeMap<Long, Archived> seconds;
+        synchronized (archive) {
+            seconds = new TreeMap<>(archive);
+        }
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                long requests = slot.requests.sum();
+                if (slot.second < 0 || requests == 0) {
+                    continue;
+                }
+                LatencyHistogram merged = slot.merge();
+                long errors = slot.errors.sum();
+                Archived archived = seconds.get(slot.second);
+                if (archived != null) {
+                    // A second both recorded here and merged from elsewhere
+                    LatencyHistogram histogram = archived.histogram();
+                    if (histogram != null) {
+                        merged.add(histogram);
+                    }
+                    requests += archived.requests;
+                    errors += archived.errors;
+                }
+                seconds.put(slot.second, new Archived(requests, errors, merged.getTotalCount() > 0 ? merged : null));
+            }
+        }
+        return seconds;
+    }
+
+    /**
+     * Statistics for one second of the run.
+     */
+    public static class Interval {
+        private final long second;
+        private final long requests;
+        private final long errors;
+        private final LatencySummary responseTimes;
+
+        public Interval(long second, long requests, long errors, LatencySummary responseTimes) {
+            this.second = second;
+            this.requests = requests;
+            this.errors = errors;
+            this.responseTimes = responseTimes;
+        }
+
+        /** Seconds since the start of the test. */
+        public long getSecond() { return second; }
+        public long getRequests() { return requests; }
+        public long getErrors() { return errors; }
+        /** Response times recorded in this second, or null if there were none. */
+        public LatencySummary getResponseTimes() { return responseTimes; }
+    }
+
+    private static class Slot {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram[] stripes = MetricsCollector.newStripes(INTERVAL_SIGNIFICANT_DIGITS);
+        private volatile long second = -1;
+
+        LatencyHistogram merge() {
+            LatencyHistogram merged = stripes[0].newEmptyCopy();
+            for (LatencyHistogram stripe : stripes) {
+                merged.add(stripe);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * A folded second, its histogram kept encoded since most of a histogram's buckets are empty.
+     */
+    private static class Archived {
+        private final long requests;
+        private final long errors;
+        private final byte[] encoded;
+
+        Archived(long requests, long errors, LatencyHistogram histogram) {
+            this.requests = requests;
+            this.errors = errors;
+            if (histogram == null) {
+                this.encoded = null;
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                histogram.encode(new DataOutputStream(bytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.encoded = bytes.toByteArray();
+        }
+
+        LatencyHistogram histogram() {
+            if (encoded == null) {
+                return null;
+            }
+            try {
+                return LatencyHistogram.decode(new DataInputStream(new ByteArrayInputStream(encoded)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
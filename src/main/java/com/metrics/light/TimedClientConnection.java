@@ -0,0 +1,147 @@
+package com.metrics.light;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.EndpointDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.io.HttpClientConnection;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import java.io.IOException;
+import java.net.SocketAddress;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Connection view handed to the request executor that notes when the request was last
+ * flushed, so the time spent writing it can be told apart from the wait for the response.
+ *
+ * One instance per thread is pointed at the connection of each exchange in turn, so timing
+ * the write allocates nothing.
+ */
+final class TimedClientConnection implements HttpClientConnection {
+    private static final ThreadLocal<TimedClientConnection> CURRENT = ThreadLocal.withInitial(TimedClientConnection::new);
+
+    private HttpClientConnection delegate;
+    private long flushedNanos;
+
+    /**
+     * Returns the calling thread's instance wrapping {@code connection}.
+     */
+    static TimedClientConnection wrap(HttpClientConnection connection) {
+        TimedClientConnection timed = CURRENT.get();
+        timed.delegate = connection;
+        timed.flushedNanos = -1;
+        return timed;
+    }
+
+    /**
+     * Returns when the request was last flushed, or -1 if it was not.
+     */
+    long getFlushedNanos() {
+        return flushedNanos;
+    }
+
+    /**
+     * Drops the reference to the connection once the exchange is done.
+     */
+    void release() {
+        delegate = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+        flushedNanos = System.nanoTime();
+    }
+
+    @Override
+    public boolean isConsistent() {
+        return delegate.isConsistent();
+    }
+
+    @Override
+    public void sendRequestHeader(ClassicHttpRequest request) throws HttpException, IOException {
+        delegate.sendRequestHeader(request);
+    }
+
+    @Override
+    public void terminateRequest(ClassicHttpRequest request) throws HttpException, IOException {
+        delegate.terminateRequest(request);
+    }
+
+    @Override
+    public void sendRequestEntity(ClassicHttpRequest request) throws HttpException, IOException {
+        delegate.sendRequestEntity(request);
+    }
+
+    @Override
+    public ClassicHttpResponse receiveResponseHeader() throws HttpException, IOException {
+        return delegate.receiveResponseHeader();
+    }
+
+    @Override
+    public void receiveResponseEntity(ClassicHttpResponse response) throws HttpException, IOException {
+        delegate.receiveResponseEntity(response);
+    }
+
+    @Override
+    public boolean isDataAvailable(Timeout timeout) throws IOException {
+        return delegate.isDataAvailable(timeout);
+    }
+
+    @Override
+    public boolean isStale() throws IOException {
+        return delegate.isStale();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public EndpointDetails getEndpointDetails() {
+        return delegate.getEndpointDetails();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return delegate.getLocalAddress();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return delegate.getRemoteAddress();
+    }
+
+    @Override
+    public ProtocolVersion getProtocolVersion() {
+        return delegate.getProtocolVersion();
+    }
+
+    @Override
+    public SSLSession getSSLSession() {
+        return delegate.getSSLSession();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public Timeout getSocketTimeout() {
+        return delegate.getSocketTimeout();
+    }
+
+    @Override
+    public void setSocketTimeout(Timeout timeout) {
+        delegate.setSocketTimeout(timeout);
+    }
+}
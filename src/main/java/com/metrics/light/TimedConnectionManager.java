@@ -0,0 +1,107 @@
+package com.metrics.light;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.HttpsSupport;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pooling connection manager of the blocking client that times pool waits, DNS lookups, new
+ * connections and TLS handshakes into the calling thread's {@link RequestTimings}.
+ */
+class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+    
+    TimedConnectionManager(TimeValue timeToLive) {
+        super(RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", new TimedSslSocketFactory())
+                        .build(),
+                PoolConcurrencyPolicy.STRICT, PoolReusePolicy.LIFO, timeToLive, null, new TimedDnsResolver(), null);
+    }
+    
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        long start = System.nanoTime();
+        LeaseRequest lease = super.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                try {
+                    return lease.get(timeout);
+                } finally {
+                    RequestTimings.current().set(RequestPhase.POOL_WAIT, System.nanoTime() - start);
+                }
+            }
+            
+            @Override
+            public boolean cancel() {
+                return lease.cancel();
+            }
+        };
+    }
+    
+    @Override
+    public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context) throws IOException {
+        RequestTimings timings = RequestTimings.current();
+        long start = System.nanoTime();
+        super.connect(endpoint, connectTimeout, context);
+        long tls = Math.max(0, timings.get(RequestPhase.TLS));
+        long dns = Math.max(0, timings.get(RequestPhase.DNS));
+        timings.set(RequestPhase.CONNECT, System.nanoTime() - start - tls - dns);
+    }
+    
+    /**
+     * The system resolver with lookups timed. Lookups served from the JVM's address cache
+     * show up as near-zero durations.
+     */
+    private static class TimedDnsResolver extends SystemDefaultDnsResolver {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return super.resolve(host);
+            } finally {
+                RequestTimings.current().set(RequestPhase.DNS, System.nanoTime() - start);
+            }
+        }
+    }
+    
+    /**
+     * The default TLS socket factory with the handshake timed.
+     */
+    private static class TimedSslSocketFactory extends SSLConnectionSocketFactory {
+        TimedSslSocketFactory() {
+            super(SSLContexts.createDefault(), HttpsSupport.getDefaultHostnameVerifier());
+        }
+        
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, Object attachment,
+                                          HttpContext context) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.createLayeredSocket(socket, target, port, attachment, context);
+            } finally {
+                RequestTimings.current().set(RequestPhase.TLS, System.nanoTime() - start);
+            }
+        }
+    }
+}
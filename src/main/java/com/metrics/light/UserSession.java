@@ -0,0 +1,111 @@
+package com.metrics.light;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The state one simulated user carries between its requests: its cookies, the values its
+ * extractors captured and when it next has to log in.
+ *
+ * Sessions are kept deliberately small, since there is one per user and a test may
+ * simulate hundreds of thousands: the cookies are held as the ready-to-send
+ * {@code Cookie} header value and the captured values in an array indexed by variable
+ * slot, rather than in a cookie store and attribute map per user.
+ */
+final class UserSession {
+    // Names of the {var:name} variables, in slot order; fixed before any session is created
+    private static final List<String> VARIABLES = new CopyOnWriteArrayList<>();
+
+    private String cookies;
+    private final String[] values = new String[VARIABLES.size()];
+    private boolean loggedIn;
+    private long lastLoginNanos;
+
+    /**
+     * Declares a variable captured by an extractor and returns its slot.
+     */
+    static synchronized int declare(String name) {
+        int slot = VARIABLES.indexOf(name);
+        if (slot >= 0) {
+            return slot;
+        }
+        VARIABLES.add(name);
+        return VARIABLES.size() - 1;
+    }
+
+    /**
+     * Returns the slot of a declared variable, or -1 if no extractor captures it.
+     */
+    static int slotOf(String name) {
+        return VARIABLES.indexOf(name);
+    }
+
+    static synchronized void clearDeclared() {
+        VARIABLES.clear();
+    }
+
+    String value(int slot) {
+        return slot < values.length ? values[slot] : null;
+    }
+
+    void setValue(int slot, String value) {
+        values[slot] = value;
+    }
+
+    /**
+     * Returns the {@code Cookie} header value to send, or null if the user has no cookies.
+     */
+    String cookies() {
+        return cookies;
+    }
+
+    /**
+     * Applies a {@code Set-Cookie} header. Only the name and value are kept; attributes
+     * other than a zero {@code Max-Age} removing the cookie are ignored, as a test talks to
+     * a single site.
+     */
+    void setCookie(String header) {
+        int end = header.indexOf(';');
+        String pair = (end >= 0 ? header.substring(0, end) : header).trim();
+        int equals = pair.indexOf('=');
+        if (equals <= 0) {
+            return;
+        }
+        String name = pair.substring(0, equals).trim();
+        boolean expired = end >= 0 && header.substring(end).toLowerCase().replace(" ", "").contains(";max-age=0");
+
+        StringBuilder updated = new StringBuilder();
+        if (cookies != null) {
+            for (String existing : cookies.split("; ")) {
+                if (!existing.startsWith(name + "=")) {
+                    if (updated.length() > 0) {
+                        updated.append("; ");
+                    }
+                    updated.append(existing);
+                }
+            }
+        }
+        if (!expired) {
+            if (updated.length() > 0) {
+                updated.append("; ");
+            }
+            updated.append(name).append('=').append(pair.substring(equals + 1).trim());
+        }
+        cookies = updated.length() > 0 ? updated.toString() : null;
+    }
+
+    /**
+     * Returns whether the user has to send the login request before its next request: it
+     * has not logged in yet, or its last login is older than the refresh interval.
+     *
+     * @param refreshNanos how often to log in again, 0 for only once
+     */
+    boolean isLoginDue(long nowNanos, long refreshNanos) {
+        return !loggedIn || (refreshNanos > 0 && nowNanos - lastLoginNanos >= refreshNanos);
+    }
+
+    void loginSent(long nowNanos) {
+        loggedIn = true;
+        lastLoginNanos = nowNanos;
+    }
+}
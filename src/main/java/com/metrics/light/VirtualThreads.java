@@ -0,0 +1,60 @@
+package com.metrics.light;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads (Java 21+) from code compiled for Java 11.
+ *
+ * The factory method is looked up reflectively so the same jar runs on older JVMs, where the
+ * virtual engine reports a clear error instead of failing to load.
+ */
+final class VirtualThreads {
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle lookupFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Sets how many carrier (platform) threads run virtual threads. Only takes effect if
+     * called before the first virtual thread is started.
+     */
+    static void setCarrierParallelism(int parallelism) {
+        if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null) {
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", String.valueOf(parallelism));
+        }
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for every submitted task.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer (running on Java "
+                    + System.getProperty("java.specification.version") + ")");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not create virtual thread executor", t);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.metrics.light;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asymmetric synchronization between many wait-free writers and an occasional reader,
+ * after the phaser of the same name in HdrHistogram.
+ *
+ * Writers wrap each update in {@link #writerCriticalSectionEnter()} and
+ * {@link #writerCriticalSectionExit(long)}, which are single atomic increments. A reader that
+ * has swapped the data structure writers should use calls {@link #flipPhase()} while holding
+ * the reader lock; on return, no writer is still inside a critical section that started
+ * before the flip, so the swapped-out structure can be read safely.
+ */
+class WriterReaderPhaser {
+    private static final AtomicLongFieldUpdater<WriterReaderPhaser> START_EPOCH =
+            AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "startEpoch");
+    private static final AtomicLongFieldUpdater<WriterReaderPhaser> EVEN_END_EPOCH =
+            AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "evenEndEpoch");
+    private static final AtomicLongFieldUpdater<WriterReaderPhaser> ODD_END_EPOCH =
+            AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "oddEndEpoch");
+
+    private volatile long startEpoch = 0;
+    private volatile long evenEndEpoch = 0;
+    private volatile long oddEndEpoch = Long.MIN_VALUE;
+
+    private final ReentrantLock readerLock = new ReentrantLock();
+
+    long writerCriticalSectionEnter() {
+        return START_EPOCH.getAndIncrement(this);
+    }
+
+    void writerCriticalSectionExit(long criticalValueAtEnter) {
+        (criticalValueAtEnter < 0 ? ODD_END_EPOCH : EVEN_END_EPOCH).getAndIncrement(this);
+    }
+
+    void readerLock() {
+        readerLock.lock();
+    }
+
+    void readerUnlock() {
+        readerLock.unlock();
+    }
+
+    /**
+     * Waits until every writer that entered before this call has exited. Must be called with
+     * the reader lock held.
+     */
+    void flipPhase() {
+        if (!readerLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("flipPhase() requires the reader lock");
+        }
+
+        boolean nextPhaseIsEven = startEpoch < 0;
+        long initialStartValue;
+        if (nextPhaseIsEven) {
+            initialStartValue = 0;
+            EVEN_END_EPOCH.lazySet(this, initialStartValue);
+        } else {
+            initialStartValue = Long.MIN_VALUE;
+            ODD_END_EPOCH.lazySet(this, initialStartValue);
+        }
+
+        long startValueAtFlip = START_EPOCH.getAndSet(this, initialStartValue);
+
+        while ((nextPhaseIsEven ? oddEndEpoch : evenEndEpoch) != startValueAtFlip) {
+            Thread.yield();
+        }
+    }
+}
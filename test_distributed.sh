@@ -0,0 +1,89 @@
+#!/bin/bash
+
+# Distributed run on localhost: two agents and a coordinator against a local HTTP server.
+# Checks that the coordinator's merged totals equal the sum of the agents' own totals.
+
+JAR_FILE="$(pwd)/target/metrics-light-1.0.0.jar"
+TARGET_PORT=${TARGET_PORT:-18090}
+AGENT_PORTS=${AGENT_PORTS:-"7171 7172"}
+
+if [ ! -f "$JAR_FILE" ]; then
+    echo "Error: JAR file not found. Please run './build.sh' first."
+    exit 1
+fi
+
+WORK_DIR=$(mktemp -d)
+PIDS=()
+cleanup() {
+    kill "${PIDS[@]}" 2>/dev/null
+    wait 2>/dev/null
+    rm -rf "$WORK_DIR"
+}
+trap cleanup EXIT
+
+export METRICS_LIGHT_AGENT_TOKEN=$(od -An -N16 -tx1 /dev/urandom | tr -d ' \n')
+
+echo "=== Metrics Light - Distributed Run on Localhost ==="
+echo ""
+
+echo "1. Starting target server on port $TARGET_PORT..."
+(cd "$WORK_DIR" && exec python3 -m http.server "$TARGET_PORT" --bind 127.0.0.1 > server.log 2>&1) &
+PIDS+=($!)
+
+AGENTS=""
+for port in $AGENT_PORTS; do
+    echo "2. Starting agent on port $port..."
+    java -jar "$JAR_FILE" agent --port "$port" > "$WORK_DIR/agent-$port.log" 2>&1 &
+    PIDS+=($!)
+    AGENTS="${AGENTS:+$AGENTS,}127.0.0.1:$port"
+done
+
+for port in $AGENT_PORTS; do
+    for i in $(seq 1 50); do
+        grep -q "Agent listening" "$WORK_DIR/agent-$port.log" && break
+        sleep 0.2
+    done
+done
+sleep 1
+
+echo "3. Running the coordinator against $AGENTS..."
+echo "curl http://127.0.0.1:$TARGET_PORT/" > "$WORK_DIR/curl.txt"
+(cd "$WORK_DIR" && java -jar "$JAR_FILE" -u 8 -t 4 -d 5 --agents "$AGENTS" --export-json merged.json)
+if [ ! -f "$WORK_DIR/merged.json" ]; then
+    echo "FAILED: coordinator did not produce a report"
+    exit 1
+fi
+
+echo ""
+echo "4. Comparing merged totals with the agents' totals..."
+STATUS=0
+for metric in "Total Requests:totalRequests" "Successful Requests:successfulRequests" "Failed Requests:failedRequests"; do
+    label=${metric%%:*}
+    field=${metric##*:}
+    sum=0
+    for port in $AGENT_PORTS; do
+        count=$(grep "^$label:" "$WORK_DIR/agent-$port.log" | tail -1 | awk -F': ' '{print $2}')
+        sum=$((sum + ${count:-0}))
+    done
+    merged=$(grep "\"$field\"" "$WORK_DIR/merged.json" | head -1 | tr -dc '0-9')
+    if [ "$sum" = "$merged" ]; then
+        echo "  $label $merged (agents: $sum) OK"
+    else
+        echo "  $label $merged (agents: $sum) MISMATCH"
+        STATUS=1
+    fi
+done
+
+merged=$(grep '"totalRequests"' "$WORK_DIR/merged.json" | head -1 | tr -dc '0-9')
+if [ "${merged:-0}" -eq 0 ]; then
+    echo "  No requests were sent"
+    STATUS=1
+fi
+
+echo ""
+if [ $STATUS -eq 0 ]; then
+    echo "=== Distributed run passed ==="
+else
+    echo "=== Distributed run FAILED ==="
+fi
+exit $STATUS
@@ -27,12 +27,18 @@ cat > curl.txt << 'EOF'
 curl -X POST http://httpbin.org/post -H 'Request-ID: {uuid}' -H 'Content-Type: application/json' -d '{"correlationId":"{uuid}","test":true}'
 EOF
 java -jar $JAR_FILE -u 2 -t 1 -d 5
+java -cp $JAR_FILE verify_uuid_replacement.java || exit 1
+java -cp $JAR_FILE verify_correlation_id.java || exit 1
 
 echo ""
 echo "4. Testing with delay between requests..."
 echo "curl http://httpbin.org/get" > curl.txt
 java -jar $JAR_FILE -u 2 -t 1 -d 5 -r 500
 
+echo ""
+echo "5. Checking that recording metrics allocates no garbage..."
+java -cp $JAR_FILE verify_zero_allocation.java || exit 1
+
 # Clean up
 rm -f curl.txt
 
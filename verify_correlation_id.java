@@ -1,16 +1,69 @@
-import java.util.*;
+import com.metrics.light.LoadTestExecutor;
+import com.metrics.light.RequestTemplate;
+import com.metrics.light.TestConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+/**
+ * Checks the correlation IDs substituted for {uuid}: each is the configured prefix followed
+ * by 16 hex digits, and no two requests of a run get the same ID, even when rendered by
+ * many threads at once.
+ *
+ * Run with: java -cp target/metrics-light-1.0.0.jar verify_correlation_id.java [prefix]
+ */
 public class verify_correlation_id {
-    public static void main(String[] args) {
-        System.out.println("=== Verification: APPLOADID Format ===");
+    private static final int THREADS = 4;
+    private static final int REQUESTS_PER_THREAD = 50_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        String prefix = args.length > 0 ? args[0] : "VERIFYID";
+        System.out.println("=== Verification: Correlation ID Format and Uniqueness ===");
         System.out.println();
-        
-        for (int i = 1; i <= 3; i++) {
-            String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
-            System.out.println("Request " + i + " correlation ID: APPLOADID" + uuid);
+
+        // The executor applies the configured prefix, as it does when a test starts
+        String curl = "curl http://127.0.0.1/{uuid}";
+        TestConfiguration config = new TestConfiguration(curl, 1, 1, 1, 0);
+        config.setIdPrefix(prefix);
+        new LoadTestExecutor(config);
+        RequestTemplate template = RequestTemplate.compile(curl);
+        Pattern format = Pattern.compile(Pattern.quote(prefix) + "[0-9a-f]{16}");
+
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Set<String> malformed = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                RequestTemplate.RenderBuffer buffer = new RequestTemplate.RenderBuffer();
+                for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                    buffer.begin();
+                    String id = template.renderUri(buffer).getPath().substring(1);
+                    if (!format.matcher(id).matches()) {
+                        malformed.add(id);
+                    }
+                    ids.add(id);
+                }
+            });
+            threads.add(thread);
+            thread.start();
         }
-        
-        System.out.println();
-        System.out.println("Format: APPLOADID{6-character-uuid}");
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int rendered = THREADS * REQUESTS_PER_THREAD;
+        System.out.println("Sample ID: " + ids.iterator().next());
+        System.out.printf("Rendered %d IDs on %d threads, %d distinct, %d malformed%n", rendered, THREADS, ids.size(), malformed.size());
+        if (!malformed.isEmpty()) {
+            System.out.println("FAILED: expected " + prefix + " followed by 16 hex digits, got " + malformed.iterator().next());
+            System.exit(1);
+        }
+        if (ids.size() != rendered) {
+            System.out.println("FAILED: " + (rendered - ids.size()) + " duplicate IDs");
+            System.exit(1);
+        }
+        System.out.println("OK");
     }
-}
\ No newline at end of file
+}
@@ -1,31 +1,68 @@
-import java.util.*;
+import com.metrics.light.RequestTemplate;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
 
+/**
+ * Checks {uuid} replacement in a compiled request: every {uuid} of one request, whether in
+ * the URL, a header or the body, gets the same ID, and each new request gets a fresh one.
+ *
+ * Run with: java -cp target/metrics-light-1.0.0.jar verify_uuid_replacement.java
+ */
 public class verify_uuid_replacement {
+    private static final int REQUESTS = 10_000;
+    private static final Pattern BODY_ID = Pattern.compile("\"correlationId\":\"([^\"]*)\",\"userId\":\"([^\"]*)\"");
+
     public static void main(String[] args) {
-        System.out.println("=== UUID Token Replacement Verification ===");
-        System.out.println();
-        
-        String curlCommand = "curl -X POST http://example.com/api -H 'Request-ID: {uuid}' -H 'Content-Type: application/json' -d '{\"correlationId\":\"{uuid}\",\"userId\":\"{uuid}\"}'";
-        
-        System.out.println("Original curl command:");
-        System.out.println(curlCommand);
+        System.out.println("=== Verification: {uuid} Token Replacement ===");
         System.out.println();
-        
-        System.out.println("Sample replacements (simulating what the app does for each request):");
+
+        String curl = "curl -X POST 'http://127.0.0.1/api?id={uuid}' -H 'Request-ID: {uuid}' -H 'Content-Type: application/json'"
+                + " -d '{\"correlationId\":\"{uuid}\",\"userId\":\"{uuid}\"}'";
+        System.out.println("Curl command:");
+        System.out.println(curl);
         System.out.println();
-        
-        for (int i = 1; i <= 3; i++) {
-            String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
-            String generatedId = "APPLOADID" + uuid;
-            String processedCommand = curlCommand.replace("{uuid}", generatedId);
-            
-            System.out.println("Request " + i + ":");
-            System.out.println("  Generated ID: " + generatedId);
-            System.out.println("  Processed command: " + processedCommand);
-            System.out.println();
+
+        RequestTemplate template = RequestTemplate.compile(curl);
+        RequestTemplate.RenderBuffer buffer = new RequestTemplate.RenderBuffer();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            buffer.begin();
+            String fromUrl = template.renderUri(buffer).getQuery().substring("id=".length());
+            BasicHttpRequest request = new BasicHttpRequest(template.getMethod(), "/");
+            template.applyHeaders(request, buffer);
+            String fromHeader = request.getFirstHeader("Request-ID").getValue();
+            int length = template.renderBody(buffer);
+            String body = new String(buffer.body(), 0, length, StandardCharsets.UTF_8);
+            Matcher matcher = BODY_ID.matcher(body);
+            if (!matcher.find()) {
+                fail("request " + i + " has an unexpected body: " + body);
+            }
+
+            if (i < 3) {
+                System.out.println("Request " + (i + 1) + ":");
+                System.out.println("  URL ID:    " + fromUrl);
+                System.out.println("  Header ID: " + fromHeader);
+                System.out.println("  Body:      " + body);
+            }
+            if (!fromUrl.equals(fromHeader) || !fromUrl.equals(matcher.group(1)) || !fromUrl.equals(matcher.group(2))) {
+                fail("request " + i + " got different IDs: " + fromUrl + ", " + fromHeader + ", " + matcher.group(1) + ", " + matcher.group(2));
+            }
+            if (!seen.add(fromUrl)) {
+                fail("request " + i + " reused the ID " + fromUrl);
+            }
         }
-        
-        System.out.println("Note: Each {uuid} token is replaced with the SAME generated ID within a single request,");
-        System.out.println("but each new request gets a completely fresh ID.");
+
+        System.out.println();
+        System.out.printf("Rendered %d requests: one ID per request, %d distinct%n", REQUESTS, seen.size());
+        System.out.println("OK");
+    }
+
+    private static void fail(String message) {
+        System.out.println("FAILED: " + message);
+        System.exit(1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+import com.metrics.light.MetricsCollector;
+import com.metrics.light.RequestPhase;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Checks that recording metrics stays allocation-free, by measuring the bytes the recording
+ * thread allocates per recorded request with ThreadMXBean.
+ *
+ * The only allocation allowed is folding each finished second of the per-second timeline,
+ * some tens of KB once a second, which amortizes far below the bound.
+ *
+ * Run with: java -cp target/metrics-light-1.0.0.jar verify_zero_allocation.java
+ */
+public class verify_zero_allocation {
+    private static final double MAX_BYTES_PER_RECORD = 1.0;
+    private static final long WARMUP_NANOS = 3_000_000_000L;
+    private static final long MEASURE_NANOS = 3_000_000_000L;
+
+    public static void main(String[] args) {
+        System.out.println("=== Verification: Allocation-Free Recording ===");
+        System.out.println();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MetricsCollector collector = new MetricsCollector(3, 60);
+        collector.setEndpoints(Arrays.asList("first", "second"));
+        // As in a live run, where interim reporting reads the intervals
+        collector.enableIntervalRecording();
+        collector.start(System.nanoTime());
+        long[] phases = new long[RequestPhase.values().length];
+
+        // Let the JIT compile the recording path before measuring
+        record(collector, phases, WARMUP_NANOS);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long records = record(collector, phases, MEASURE_NANOS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        double perRecord = (double) allocated / records;
+        System.out.printf("Recorded %d requests, allocated %d bytes (%.4f bytes per request, bound %.1f)%n",
+                records, allocated, perRecord, MAX_BYTES_PER_RECORD);
+        if (perRecord > MAX_BYTES_PER_RECORD) {
+            System.out.println("FAILED: recording allocates on the hot path");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static long record(MetricsCollector collector, long[] phases, long durationNanos) {
+        long seed = System.nanoTime() | 1;
+        long records = 0;
+        long end = System.nanoTime() + durationNanos;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 1000; i++) {
+                seed ^= seed << 13;
+                seed ^= seed >>> 7;
+                seed ^= seed << 17;
+                long latency = 100_000L + (seed >>> 1) % 100_000_000L;
+                boolean success = (seed & 15) != 0;
+                for (int p = 0; p < phases.length; p++) {
+                    phases[p] = latency >>> p;
+                }
+                collector.recordResponse((int) (seed & 1), latency, success);
+                collector.recordStatus(success ? 200 : 503);
+                collector.recordPhases(phases);
+                collector.recordBytesReceived(512);
+            }
+            records += 1000;
+        }
+        return records;
+    }
+}